@@ -17,26 +17,25 @@ package com.pinterest.slate;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.ext.MessageBodyReader;
 import javax.ws.rs.ext.MessageBodyWriter;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.pinterest.slate.utils.GsonStreams;
+import com.pinterest.slate.utils.GsonStreams.BodyTooLargeException;
 
 public class GsonMessageBodyHandler
     implements MessageBodyWriter<Object>, MessageBodyReader<Object> {
-  private static final String UTF_8 = "UTF-8";
-  
   private static final Gson GSON = new GsonBuilder().serializeNulls().create();
 
   @Override
@@ -53,13 +52,7 @@ public class GsonMessageBodyHandler
                          Annotation[] annotations,
                          MediaType mediaType,
                          MultivaluedMap<String, String> httpHeaders,
-                         InputStream entityStream) {
-    InputStreamReader streamReader = null;
-    try {
-      streamReader = new InputStreamReader(entityStream, UTF_8);
-    } catch (UnsupportedEncodingException e) {
-      e.printStackTrace();
-    }
+                         InputStream entityStream) throws IOException {
     try {
       Type jsonType;
       if (type.equals(genericType)) {
@@ -67,13 +60,11 @@ public class GsonMessageBodyHandler
       } else {
         jsonType = genericType;
       }
-      return GSON.fromJson(streamReader, jsonType);
+      return GsonStreams.read(GSON, entityStream, StandardCharsets.UTF_8, jsonType);
+    } catch (BodyTooLargeException e) {
+      throw new WebApplicationException(e.getMessage(), Status.REQUEST_ENTITY_TOO_LARGE);
     } finally {
-      try {
-        streamReader.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
+      entityStream.close();
     }
   }
 
@@ -102,7 +93,6 @@ public class GsonMessageBodyHandler
                       MediaType mediaType,
                       MultivaluedMap<String, Object> httpHeaders,
                       OutputStream entityStream) throws IOException, WebApplicationException {
-    OutputStreamWriter writer = new OutputStreamWriter(entityStream, UTF_8);
     try {
       Type jsonType;
       if (type.equals(genericType)) {
@@ -110,9 +100,9 @@ public class GsonMessageBodyHandler
       } else {
         jsonType = genericType;
       }
-      GSON.toJson(object, jsonType, writer);
+      GsonStreams.write(GSON, object, jsonType, entityStream);
     } finally {
-      writer.close();
+      entityStream.close();
     }
   }
 }
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.pinterest.slate.utils.HttpUtils;
+
+/**
+ * Inflates gzip encoded request bodies and gzips response bodies of at least
+ * {@link HttpUtils#GZIP_MIN_BYTES} for clients that accept gzip.
+ */
+public class GzipEncodingInterceptor implements ReaderInterceptor, WriterInterceptor {
+
+  private static final String GZIP = "gzip";
+  @Context
+  private HttpHeaders requestHeaders;
+
+  @Override
+  public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException,
+                                                                 WebApplicationException {
+    if (GZIP.equalsIgnoreCase(context.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+      context.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+      InputStream in = new BufferedInputStream(context.getInputStream());
+      // the server's own gzip handler may have inflated the body already
+      in.mark(2);
+      boolean gzipped = in.read() == 0x1f && in.read() == 0x8b;
+      in.reset();
+      context.setInputStream(gzipped ? new GZIPInputStream(in) : in);
+    }
+    return context.proceed();
+  }
+
+  @Override
+  public void aroundWriteTo(WriterInterceptorContext context) throws IOException,
+                                                              WebApplicationException {
+    if (!acceptsGzip() || context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+      context.proceed();
+      return;
+    }
+    OutputStream out = context.getOutputStream();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    context.setOutputStream(body);
+    context.proceed();
+    if (body.size() < HttpUtils.GZIP_MIN_BYTES) {
+      body.writeTo(out);
+      return;
+    }
+    context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, GZIP);
+    GZIPOutputStream gzip = new GZIPOutputStream(out);
+    body.writeTo(gzip);
+    gzip.finish();
+  }
+
+  private boolean acceptsGzip() {
+    List<String> accepted = requestHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+    if (accepted == null) {
+      return false;
+    }
+    for (String value : accepted) {
+      if (value.toLowerCase().contains(GZIP)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
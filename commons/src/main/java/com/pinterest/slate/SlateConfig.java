@@ -76,10 +76,196 @@ public class SlateConfig extends Configuration {
   
   private String baseMetricsUrl = "";
 
+  private int planningParallelism = 0; // sequential planning
+
+  private int maxConcurrentPlanRequestsPerSatellite = 10;
+
+  private int currentStateCacheTtlSeconds = 0; // no caching
+
+  private Map<String, Integer> currentStateCacheTtlSecondsByDefinition = Collections.emptyMap();
+
+  private int planCacheMaxEntries = 1000;
+
+  private int planCacheTtlSeconds = 600;
+
+  private int graphExecutorWorkers = 1; // single threaded execution
+
+  private long graphExecutorPollIntervalMs = 1000;
+
+  private long graphFlushIntervalMs = 0; // write through
+
+  private long taskMinPollIntervalMs = 1000;
+
+  private long taskMaxPollIntervalMs = 300_000;
+
+  private int defaultMaxConcurrentTasks = 1;
+
+  private int taskStatusBatchSize = 100;
+
+  private String taskCallbackSecret; // no pushed status updates
+
+  private long graphLeaseDurationMs = 0; // single node, no leases
+
+  private int batchPriorityMinVertices = 500;
+
+  private String resumeManifestPath;
+
+  private int drainTimeoutSeconds = 60;
+
   private Map<String, String> onboardingButton = Collections.emptyMap();
 
   private Map<String, String> approvalReviewButton = Collections.emptyMap();
 
+  public int getPlanningParallelism() {
+    return planningParallelism;
+  }
+
+  public void setPlanningParallelism(int planningParallelism) {
+    this.planningParallelism = planningParallelism;
+  }
+
+  public int getMaxConcurrentPlanRequestsPerSatellite() {
+    return maxConcurrentPlanRequestsPerSatellite;
+  }
+
+  public void setMaxConcurrentPlanRequestsPerSatellite(int maxConcurrentPlanRequestsPerSatellite) {
+    this.maxConcurrentPlanRequestsPerSatellite = maxConcurrentPlanRequestsPerSatellite;
+  }
+
+  public int getCurrentStateCacheTtlSeconds() {
+    return currentStateCacheTtlSeconds;
+  }
+
+  public void setCurrentStateCacheTtlSeconds(int currentStateCacheTtlSeconds) {
+    this.currentStateCacheTtlSeconds = currentStateCacheTtlSeconds;
+  }
+
+  public Map<String, Integer> getCurrentStateCacheTtlSecondsByDefinition() {
+    return currentStateCacheTtlSecondsByDefinition;
+  }
+
+  public void setCurrentStateCacheTtlSecondsByDefinition(Map<String, Integer> currentStateCacheTtlSecondsByDefinition) {
+    this.currentStateCacheTtlSecondsByDefinition = currentStateCacheTtlSecondsByDefinition == null
+        ? Collections.emptyMap()
+        : currentStateCacheTtlSecondsByDefinition;
+  }
+
+  public int getPlanCacheMaxEntries() {
+    return planCacheMaxEntries;
+  }
+
+  public void setPlanCacheMaxEntries(int planCacheMaxEntries) {
+    this.planCacheMaxEntries = planCacheMaxEntries;
+  }
+
+  public int getPlanCacheTtlSeconds() {
+    return planCacheTtlSeconds;
+  }
+
+  public void setPlanCacheTtlSeconds(int planCacheTtlSeconds) {
+    this.planCacheTtlSeconds = planCacheTtlSeconds;
+  }
+
+  public int getGraphExecutorWorkers() {
+    return graphExecutorWorkers;
+  }
+
+  public void setGraphExecutorWorkers(int graphExecutorWorkers) {
+    this.graphExecutorWorkers = graphExecutorWorkers;
+  }
+
+  public long getGraphExecutorPollIntervalMs() {
+    return graphExecutorPollIntervalMs;
+  }
+
+  public void setGraphExecutorPollIntervalMs(long graphExecutorPollIntervalMs) {
+    this.graphExecutorPollIntervalMs = graphExecutorPollIntervalMs;
+  }
+
+  public long getGraphFlushIntervalMs() {
+    return graphFlushIntervalMs;
+  }
+
+  public void setGraphFlushIntervalMs(long graphFlushIntervalMs) {
+    this.graphFlushIntervalMs = graphFlushIntervalMs;
+  }
+
+  public long getGraphLeaseDurationMs() {
+    return graphLeaseDurationMs;
+  }
+
+  public void setGraphLeaseDurationMs(long graphLeaseDurationMs) {
+    this.graphLeaseDurationMs = graphLeaseDurationMs;
+  }
+
+  public int getBatchPriorityMinVertices() {
+    return batchPriorityMinVertices;
+  }
+
+  public void setBatchPriorityMinVertices(int batchPriorityMinVertices) {
+    this.batchPriorityMinVertices = batchPriorityMinVertices;
+  }
+
+  /**
+   * @return file the graph executor records active graphs in when it's drained,
+   *         null to reload all incomplete graphs on startup
+   */
+  public String getResumeManifestPath() {
+    return resumeManifestPath;
+  }
+
+  public void setResumeManifestPath(String resumeManifestPath) {
+    this.resumeManifestPath = resumeManifestPath;
+  }
+
+  public int getDrainTimeoutSeconds() {
+    return drainTimeoutSeconds;
+  }
+
+  public void setDrainTimeoutSeconds(int drainTimeoutSeconds) {
+    this.drainTimeoutSeconds = drainTimeoutSeconds;
+  }
+
+  public long getTaskMinPollIntervalMs() {
+    return taskMinPollIntervalMs;
+  }
+
+  public void setTaskMinPollIntervalMs(long taskMinPollIntervalMs) {
+    this.taskMinPollIntervalMs = taskMinPollIntervalMs;
+  }
+
+  public long getTaskMaxPollIntervalMs() {
+    return taskMaxPollIntervalMs;
+  }
+
+  public void setTaskMaxPollIntervalMs(long taskMaxPollIntervalMs) {
+    this.taskMaxPollIntervalMs = taskMaxPollIntervalMs;
+  }
+
+  public int getDefaultMaxConcurrentTasks() {
+    return defaultMaxConcurrentTasks;
+  }
+
+  public void setDefaultMaxConcurrentTasks(int defaultMaxConcurrentTasks) {
+    this.defaultMaxConcurrentTasks = defaultMaxConcurrentTasks;
+  }
+
+  public int getTaskStatusBatchSize() {
+    return taskStatusBatchSize;
+  }
+
+  public void setTaskStatusBatchSize(int taskStatusBatchSize) {
+    this.taskStatusBatchSize = taskStatusBatchSize;
+  }
+
+  public String getTaskCallbackSecret() {
+    return taskCallbackSecret;
+  }
+
+  public void setTaskCallbackSecret(String taskCallbackSecret) {
+    this.taskCallbackSecret = taskCallbackSecret;
+  }
+
   public Map<String, String> getOnboardingButton() {
     return onboardingButton;
   }
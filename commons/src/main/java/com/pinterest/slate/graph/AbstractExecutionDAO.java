@@ -18,6 +18,7 @@ package com.pinterest.slate.graph;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import com.pinterest.slate.process.Status;
 
@@ -38,4 +39,96 @@ public interface AbstractExecutionDAO {
 
   public List<ExecutionGraph> listRecentExecutionsForRequester(String requester) throws IOException;
 
+  /**
+   * @return true if graphs can be leased, the lease methods must only be called
+   *         on DAOs that support leases
+   */
+  public default boolean supportsLeases() {
+    return false;
+  }
+
+  /**
+   * Called by the runtime when leases are turned on or off, a DAO only pays
+   * for lease checks on writes while leases are enabled.
+   * 
+   * @param leasesEnabled
+   */
+  public default void setLeasesEnabled(boolean leasesEnabled) {
+  }
+
+  /**
+   * Take the lease on a graph if it isn't held or the current lease has
+   * expired.
+   * 
+   * @param executionId
+   * @param owner
+   * @param leaseDurationMs
+   * @return fencing token of the new lease or -1 if the lease is held by someone
+   *         else
+   * @throws IOException
+   */
+  public default long acquireLease(String executionId,
+                                   String owner,
+                                   long leaseDurationMs) throws IOException {
+    throw new UnsupportedOperationException("Leases aren't supported");
+  }
+
+  public default boolean renewLease(String executionId,
+                                    String owner,
+                                    long fencingToken,
+                                    long leaseDurationMs) throws IOException {
+    throw new UnsupportedOperationException("Leases aren't supported");
+  }
+
+  public default void releaseLease(String executionId,
+                                   String owner,
+                                   long fencingToken) throws IOException {
+    throw new UnsupportedOperationException("Leases aren't supported");
+  }
+
+  /**
+   * @return true if status updates pushed by tasks can be stored until the
+   *         node executing their graph takes them
+   */
+  public default boolean supportsPushedStatusUpdates() {
+    return false;
+  }
+
+  /**
+   * Store a status update pushed by a task, replacing an update of the task
+   * that wasn't taken yet.
+   * 
+   * @param executionId
+   * @param processId
+   * @param taskId
+   * @param update      json of the status update
+   * @throws IOException
+   */
+  public default void savePushedStatusUpdate(String executionId,
+                                             String processId,
+                                             String taskId,
+                                             String update) throws IOException {
+    throw new UnsupportedOperationException("Pushed status updates aren't supported");
+  }
+
+  /**
+   * Remove the stored status updates pushed by tasks of a graph.
+   * 
+   * @param executionId
+   * @return json of the status updates by process id and task id
+   * @throws IOException
+   */
+  public default Map<String, Map<String, String>> takePushedStatusUpdates(
+      String executionId) throws IOException {
+    throw new UnsupportedOperationException("Pushed status updates aren't supported");
+  }
+
+  /**
+   * @return ids of incomplete graphs whose lease has expired
+   * @throws IOException
+   */
+  public default List<String> listExpiredLeases() throws IOException {
+    throw new UnsupportedOperationException("Leases aren't supported");
+  }
+
 }
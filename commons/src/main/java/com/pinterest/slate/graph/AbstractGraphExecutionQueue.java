@@ -28,10 +28,67 @@ public abstract class AbstractGraphExecutionQueue {
 
   public abstract void add(String executionId) throws IOException;
 
+  /**
+   * Add a graph along with its scheduling attributes, queues that don't
+   * schedule graphs ignore the attributes.
+   * 
+   * @param executionId
+   * @param requester
+   * @param priority
+   * @throws IOException
+   */
+  public void add(String executionId,
+                  String requester,
+                  ExecutionPriority priority) throws IOException {
+    add(executionId);
+  }
+
+  /**
+   * Take the next graph only if it is available without waiting for it.
+   * 
+   * @return execution id or null
+   */
+  public String poll() {
+    return take();
+  }
+
+  /**
+   * Take the next graph along with the scheduling attributes carried in its
+   * record. The record stays unacknowledged until
+   * {@link #acknowledge(ExecutionQueueRecord)} so queues that can deliver a
+   * record again don't lose graphs held by a scheduling layer when the node
+   * dies.
+   * 
+   * @return record or null
+   */
+  public ExecutionQueueRecord takeRecord() {
+    String executionId = take();
+    return executionId != null ? new ExecutionQueueRecord(executionId, null, null) : null;
+  }
+
+  /**
+   * Same as {@link #takeRecord()} without waiting for a record.
+   * 
+   * @return record or null
+   */
+  public ExecutionQueueRecord pollRecord() {
+    String executionId = poll();
+    return executionId != null ? new ExecutionQueueRecord(executionId, null, null) : null;
+  }
+
+  /**
+   * Mark a record taken with {@link #takeRecord()} or {@link #pollRecord()} as
+   * handed to the executor.
+   * 
+   * @param record
+   */
+  public void acknowledge(ExecutionQueueRecord record) {
+  }
+
   public abstract void delete(String executionId) throws IOException;
 
   public abstract void bootstrap(List<String> graphs);
 
   public abstract boolean isEmpty();
-  
+
 }
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.JsonObject;
+import com.pinterest.slate.resources.Resource;
+
+/**
+ * Cache of external current state of resources used during planning.
+ * 
+ * The cache is opt-in, it's disabled unless a TTL is configured either by
+ * default or per resource definition class. Entries are keyed by resource id
+ * and remember the lastUpdateTimestamp they were read at so any update to a
+ * resource through Slate invalidates it's cached state, entries are also
+ * invalidated with {@link #invalidate(String)} once a process that changes the
+ * resource ends. Concurrent lookups for the same resource share a single
+ * fetch.
+ */
+public class CurrentStateCache {
+
+  public static final int MAX_ENTRIES_PER_DEFINITION = 10_000;
+  private int defaultTtlSeconds;
+  private Map<String, Integer> ttlSecondsByDefinition;
+  private Map<String, Cache<String, CachedState>> caches = new ConcurrentHashMap<>();
+
+  public CurrentStateCache(int defaultTtlSeconds, Map<String, Integer> ttlSecondsByDefinition) {
+    this.defaultTtlSeconds = defaultTtlSeconds;
+    this.ttlSecondsByDefinition = ttlSecondsByDefinition != null ? ttlSecondsByDefinition
+        : Collections.emptyMap();
+  }
+
+  /**
+   * Get the current state of the resource from cache or load it using the
+   * supplied loader.
+   * 
+   * @param resource
+   * @param loader   to read external current state on a cache miss
+   * @return copy of the current state
+   * @throws Exception if the loader fails
+   */
+  public JsonObject get(Resource resource, Callable<JsonObject> loader) throws Exception {
+    Cache<String, CachedState> cache = getCache(resource);
+    if (cache == null) {
+      return loader.call();
+    }
+    String id = resource.getId();
+    long lastUpdateTimestamp = resource.getLastUpdateTimestamp();
+    Callable<CachedState> load = () -> new CachedState(lastUpdateTimestamp,
+        Optional.ofNullable(loader.call()));
+    try {
+      CachedState cached = cache.get(id, load);
+      if (cached.lastUpdateTimestamp != lastUpdateTimestamp) {
+        // resource was updated since its state was cached
+        cache.invalidate(id);
+        cached = cache.get(id, load);
+      }
+      return cached.state.map(JsonObject::deepCopy).orElse(null);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #get(Resource, Callable)}. Concurrent misses
+   * for the same resource aren't merged here, the {@link ResourceSnapshot} of a
+   * plan request already shares loads within the request.
+   * 
+   * @param resource
+   * @param loader   starts reading external current state on a cache miss
+   * @return future completed with a copy of the current state
+   */
+  public CompletableFuture<JsonObject> getAsync(Resource resource,
+                                                Supplier<CompletableFuture<JsonObject>> loader) {
+    Cache<String, CachedState> cache = getCache(resource);
+    if (cache == null) {
+      return loader.get();
+    }
+    String id = resource.getId();
+    long lastUpdateTimestamp = resource.getLastUpdateTimestamp();
+    CachedState cached = cache.getIfPresent(id);
+    if (cached != null && cached.lastUpdateTimestamp == lastUpdateTimestamp) {
+      return CompletableFuture.completedFuture(cached.state.map(JsonObject::deepCopy).orElse(null));
+    }
+    return loader.get().thenApply(state -> {
+      cache.put(id, new CachedState(lastUpdateTimestamp, Optional.ofNullable(state)));
+      return state != null ? state.deepCopy() : null;
+    });
+  }
+
+  /**
+   * @param resource
+   * @return cache for the definition of the resource or null if its state
+   *         isn't cached
+   */
+  private Cache<String, CachedState> getCache(Resource resource) {
+    String resourceDefinitionClass = resource.getResourceDefinitionClass();
+    int ttlSeconds = ttlSecondsByDefinition.getOrDefault(resourceDefinitionClass,
+        defaultTtlSeconds);
+    if (ttlSeconds <= 0) {
+      return null;
+    }
+    return caches.computeIfAbsent(resourceDefinitionClass,
+        k -> CacheBuilder.newBuilder().expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .maximumSize(MAX_ENTRIES_PER_DEFINITION).recordStats().build());
+  }
+
+  /**
+   * Drop the cached state of a resource, e.g. once a process that changes it
+   * has ended.
+   * 
+   * @param resourceId
+   */
+  public void invalidate(String resourceId) {
+    for (Cache<String, CachedState> cache : caches.values()) {
+      cache.invalidate(resourceId);
+    }
+  }
+
+  public void invalidateAll() {
+    caches.values().forEach(Cache::invalidateAll);
+  }
+
+  /**
+   * @return hit, miss, load failure and size counters for the cache
+   */
+  public Map<String, Long> getStats() {
+    CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+    long size = 0;
+    for (Cache<String, CachedState> cache : caches.values()) {
+      stats = stats.plus(cache.stats());
+      size += cache.size();
+    }
+    Map<String, Long> map = new HashMap<>();
+    map.put("hits", stats.hitCount());
+    map.put("misses", stats.missCount());
+    map.put("loadFailures", stats.loadExceptionCount());
+    map.put("size", size);
+    return map;
+  }
+
+  private static final class CachedState {
+
+    private final long lastUpdateTimestamp;
+    private final Optional<JsonObject> state;
+
+    private CachedState(long lastUpdateTimestamp, Optional<JsonObject> state) {
+      this.lastUpdateTimestamp = lastUpdateTimestamp;
+      this.state = state;
+    }
+
+  }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.pinterest.slate.resources.Resource;
+
+/**
+ * Normalized view of the edges declared by the resources of a single plan
+ * request so edge checks are lookups instead of scans over every neighbor's
+ * edge sets.
+ * 
+ * Data edges are indexed from both ends by the full declaration, src to dst to
+ * the srcFields that declare dst in the outputs of src and dst to src to the
+ * dstFields that declare src in the inputs of dst, so edges between the same
+ * pair of resources on different fields are all kept. Parent / child edges are
+ * indexed the same way.
+ */
+public class EdgeSet {
+
+  private Map<String, Map<String, Set<String>>> outputs = new HashMap<>();
+  private Map<String, Map<String, Set<String>>> inputs = new HashMap<>();
+  private Map<String, Set<String>> children = new HashMap<>();
+  private Map<String, String> parents = new HashMap<>();
+
+  public EdgeSet() {
+  }
+
+  public EdgeSet(Map<String, Resource> resources) {
+    for (Resource resource : resources.values()) {
+      add(resource);
+    }
+  }
+
+  /**
+   * Index the edges declared by this resource, replacing edges previously
+   * indexed for the same id.
+   * 
+   * @param resource
+   */
+  public void add(Resource resource) {
+    String id = resource.getId();
+    outputs.put(id, index(resource.getOutputResources()));
+    inputs.put(id, index(resource.getInputResources()));
+    if (resource.getChildResources() != null) {
+      children.put(id, new HashSet<>(resource.getChildResources()));
+    } else {
+      children.remove(id);
+    }
+    if (resource.getParentResource() != null) {
+      parents.put(id, resource.getParentResource());
+    } else {
+      parents.remove(id);
+    }
+  }
+
+  // neighbor id to the fields declaring it
+  private static Map<String, Set<String>> index(Map<String, Set<String>> edges) {
+    if (edges == null || edges.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<String, Set<String>> index = new HashMap<>();
+    for (Entry<String, Set<String>> entry : edges.entrySet()) {
+      if (entry.getValue() == null) {
+        continue;
+      }
+      for (String id : entry.getValue()) {
+        index.computeIfAbsent(id, k -> new HashSet<>()).add(entry.getKey());
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @param src
+   * @param dst
+   * @return true if src declares dst in any of its outputs
+   */
+  public boolean hasOutput(String src, String dst) {
+    return !getOutputFields(src, dst).isEmpty();
+  }
+
+  /**
+   * @param dst
+   * @param src
+   * @return true if dst declares src in any of its inputs
+   */
+  public boolean hasInput(String dst, String src) {
+    return !getInputFields(dst, src).isEmpty();
+  }
+
+  /**
+   * @param src
+   * @param dst
+   * @return output fields of src that declare dst
+   */
+  public Set<String> getOutputFields(String src, String dst) {
+    return outputs.getOrDefault(src, Collections.emptyMap()).getOrDefault(dst,
+        Collections.emptySet());
+  }
+
+  /**
+   * @param dst
+   * @param src
+   * @return input fields of dst that declare src
+   */
+  public Set<String> getInputFields(String dst, String src) {
+    return inputs.getOrDefault(dst, Collections.emptyMap()).getOrDefault(src,
+        Collections.emptySet());
+  }
+
+  /**
+   * @param src
+   * @param srcField
+   * @param dst
+   * @param dstField
+   * @return true if the edge is declared on both ends, in srcField of the outputs
+   *         of src and in dstField of the inputs of dst
+   */
+  public boolean hasEdge(String src, String srcField, String dst, String dstField) {
+    return getOutputFields(src, dst).contains(srcField)
+        && getInputFields(dst, src).contains(dstField);
+  }
+
+  /**
+   * @param parent
+   * @param child
+   * @return true if parent declares child as one of its children
+   */
+  public boolean hasChild(String parent, String child) {
+    Set<String> set = children.get(parent);
+    return set != null && set.contains(child);
+  }
+
+  /**
+   * @param child
+   * @param parent
+   * @return true if child declares parent as its parent
+   */
+  public boolean hasParent(String child, String parent) {
+    return parent.equals(parents.get(child));
+  }
+
+}
@@ -18,17 +18,18 @@ package com.pinterest.slate.graph;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.stream.Collectors;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
@@ -41,7 +42,11 @@ import javax.persistence.Table;
 import javax.persistence.Transient;
 
 import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.StateVersion;
 import com.pinterest.slate.process.Status;
+import com.pinterest.slate.process.StatusUpdate;
+import com.pinterest.slate.process.Task;
+import com.pinterest.slate.process.TaskRuntime;
 import com.pinterest.slate.resources.Resource;
 import com.pinterest.slate.resources.ResourceFactory;
 
@@ -75,24 +80,106 @@ public class ExecutionGraph implements Serializable {
   private Map<String, PlanVertex> executionPlan;
   @Transient
   private SortedMap<String, EdgeMutation> allEdgeMutations;
+  @Transient
+  private ExecutionPriority priority;
+  // sequence of the last state store journal entry included in this graph
+  @Transient
+  private long journalSequence;
+  // token of the lease this graph is being executed under, 0 if not leased
+  @Transient
+  private transient long fencingToken;
+  // vertex id to incident edge mutations, not serialized and rebuilt on demand
+  @Transient
+  private transient Map<String, List<EdgeMutation>> edgeMutationIndex;
+  // vertex id to the ids of vertices that depend on it and the number of
+  // upstream vertices each vertex is still waiting on, not serialized and
+  // rebuilt on demand
+  @Transient
+  private transient Map<String, List<String>> downstreamVertices;
+  @Transient
+  private transient Map<String, Integer> pendingDependencies;
+  // vertices whose completion has already been released to their dependents
+  @Transient
+  private transient Set<String> releasedVertices;
+  // version of the last change to the graph level execution state
+  @Transient
+  private transient long stateVersion = StateVersion.next();
+
+  // status checks of the running processes are made together so checks of
+  // tasks on the same satellite can be batched, status updates pushed by tasks
+  // are only taken if a running task accepts them and don't override a check
+  // made in this tick
+  private Map<String, Map<String, StatusUpdate>> prefetchStatus(
+      GraphExecutionRuntime graphRuntime) throws IOException {
+    TaskRuntime taskRuntime = graphRuntime.getTaskRuntime();
+    Map<String, LifecycleProcess> running = new HashMap<>();
+    boolean acceptsPushedUpdates = false;
+    for (String id : currentPlanSet) {
+      LifecycleProcess process = executionPlan.get(id).getProcess();
+      if (process != null && process.getEndStatus() == Status.RUNNING) {
+        running.put(process.getProcessId(), process);
+        for (Task task : process.getRunningTasks()) {
+          acceptsPushedUpdates |= taskRuntime.acceptsPushedUpdates(task.getTaskDefinitionId());
+        }
+      }
+    }
+    Map<String, Map<String, StatusUpdate>> updates = new HashMap<>();
+    if (running.isEmpty()) {
+      return updates;
+    }
+    for (Entry<String, Map<String, StatusUpdate>> entry : taskRuntime
+        .prefetchStatus(running.values()).entrySet()) {
+      updates.put(entry.getKey(), new HashMap<>(entry.getValue()));
+    }
+    if (!acceptsPushedUpdates) {
+      return updates;
+    }
+    for (Entry<String, Map<String, StatusUpdate>> entry : graphRuntime
+        .takePushedStatusUpdates(executionId).entrySet()) {
+      LifecycleProcess process = running.get(entry.getKey());
+      if (process == null) {
+        continue;
+      }
+      for (Entry<String, StatusUpdate> pushed : entry.getValue().entrySet()) {
+        Task task = process.getAllTasks().get(pushed.getKey());
+        if (task != null && task.getStatus() == Status.RUNNING
+            && taskRuntime.acceptsPushedUpdates(task.getTaskDefinitionId())) {
+          updates.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+              .putIfAbsent(pushed.getKey(), pushed.getValue());
+        }
+      }
+    }
+    return updates;
+  }
 
   public void continueExecution(GraphExecutionRuntime graphRuntime) throws Exception {
     if (status == Status.NOT_STARTED) {
-      status = Status.RUNNING;
+      setStatus(Status.RUNNING);
     }
+    // vertices completed in this tick, resource updates for them are written
+    // together once all the vertices have been processed
+    Map<String, PlanVertex> completedVertices = new LinkedHashMap<>();
+    List<String> proposedResourcesToUnlock = new ArrayList<>();
+    Map<String, Map<String, StatusUpdate>> statusUpdates = prefetchStatus(graphRuntime);
     for (Iterator<String> iterator = currentPlanSet.iterator(); iterator.hasNext();) {
       String id = iterator.next();
       PlanVertex planVertex = executionPlan.get(id);
       LifecycleProcess process = planVertex.getProcess();
       if (process == null) {
         iterator.remove();
-        updateResource(graphRuntime, id, planVertex);
+        stateVersion = StateVersion.next();
+        completedVertices.put(id, planVertex);
         continue;
       }
       if (process.isComplete()) {
         process.setEndTimeMs(System.currentTimeMillis());
         // if this process is completed
         iterator.remove();
+        stateVersion = StateVersion.next();
+        if (graphRuntime.getCurrentStateCache() != null) {
+          // the process may have changed the external state of the resource
+          graphRuntime.getCurrentStateCache().invalidate(id);
+        }
       }
       switch (process.getEndStatus()) {
       case NOT_STARTED:
@@ -108,31 +195,39 @@ public class ExecutionGraph implements Serializable {
         // push update
         // its automatically unlocked because the resource_local_owner of the proposed
         // resource should be null
-        updateResource(graphRuntime, id, planVertex);
+        completedVertices.put(id, planVertex);
         if (planVertex.getCurrentResource() == null) {
-          graphRuntime.getResourceDB().unlockProposedResource(id);
+          proposedResourcesToUnlock.add(id);
         }
         break;
       case FAILED:
       case CANCELLED:
         // unlock node
         graphRuntime.getResourceDB().unlockResource(planVertex.getProposedResource().getId());
-        status = process.getEndStatus();
+        setStatus(process.getEndStatus());
         break;
       case RUNNING:// update status
-        process.continueExecution(graphRuntime.getTaskRuntime());
+        process.continueExecution(graphRuntime.getTaskRuntime(),
+            statusUpdates.getOrDefault(process.getProcessId(), Collections.emptyMap()));
         break;
       }
     }
+    if (!completedVertices.isEmpty()) {
+      updateResources(graphRuntime, completedVertices);
+      for (String id : proposedResourcesToUnlock) {
+        graphRuntime.getResourceDB().unlockProposedResource(id);
+      }
+      releaseDependents(completedVertices.keySet());
+    }
     if (currentPlanSet.isEmpty()) {
       // if any process fails mark the graph execution as failed
       if (executionPlan.values().stream().anyMatch(
           v -> v.getProcess() != null && v.getProcess().getEndStatus() == Status.FAILED)) {
-        status = Status.FAILED;
+        setStatus(Status.FAILED);
       } else if (executionPlan.values().stream().allMatch(
           v -> v.getProcess() == null || v.getProcess().getEndStatus() == Status.SUCCEEDED)) {
         // if all processes succeed mark the graph execution as succeeded
-        status = Status.SUCCEEDED;
+        setStatus(Status.SUCCEEDED);
       } else {
         throw new Exception(
             "Unexpected situation where there are no Vertices and the status is not set");
@@ -140,53 +235,95 @@ public class ExecutionGraph implements Serializable {
     }
   }
 
-  private void updateResource(GraphExecutionRuntime graphRuntime,
-                              String id,
-                              PlanVertex planVertex) throws IOException {
-    graphRuntime.getResourceDB().updateResource(planVertex.getProposedResource());
-    enqueuePlanVerticesWithSatissfiedDependencies();
-    try {
-      List<Resource> checkAndAddEdgeMutations = checkAndAddEdgeMutations(id);
-      graphRuntime.getResourceDB().updateResources(checkAndAddEdgeMutations);
-    } catch (RuntimeException e) {
-      System.err.println(id + " & allEdgeMutations:" + allEdgeMutations);
+  /**
+   * Write proposed resources of the completed vertices along with any edge
+   * mutations that are now ready, each resource is written only once.
+   * 
+   * @param graphRuntime
+   * @param completedVertices
+   * @throws IOException
+   */
+  private void updateResources(GraphExecutionRuntime graphRuntime,
+                               Map<String, PlanVertex> completedVertices) throws IOException {
+    Map<String, Resource> updatedResources = new LinkedHashMap<>();
+    for (PlanVertex planVertex : completedVertices.values()) {
+      Resource proposedResource = planVertex.getProposedResource();
+      updatedResources.put(proposedResource.getId(), proposedResource);
     }
+    for (String id : completedVertices.keySet()) {
+      try {
+        checkAndAddEdgeMutations(id, updatedResources);
+      } catch (RuntimeException e) {
+        System.err.println(id + " & allEdgeMutations:" + allEdgeMutations);
+      }
+    }
+    // resources may be changed in place when they are written
+    for (String id : updatedResources.keySet()) {
+      PlanVertex vertex = executionPlan.get(id);
+      if (vertex != null) {
+        vertex.proposedResourceChanged();
+      }
+    }
+    graphRuntime.getResourceDB().updateResources(updatedResources.values());
   }
 
-  private List<Resource> checkAndAddEdgeMutations(String id) {
-    List<Resource> updatedResources = new ArrayList<>();
-    for (Entry<String, EdgeMutation> entry : allEdgeMutations.entrySet()) {
-      if (entry.getKey().contains(id)) {
-        EdgeMutation value = entry.getValue();
-        String srcId = value.getSrcId();
-        String dstId = value.getDestId();
-        // other id is destination
-        if ((executionPlan.get(srcId).getProcess() == null
-            || executionPlan.get(srcId).getProcess().getEndStatus() == Status.SUCCEEDED)
-            && (executionPlan.get(dstId).getProcess() == null
-                || executionPlan.get(dstId).getProcess().getEndStatus() == Status.SUCCEEDED)) {
-          // both vertices of this edge have completed execution therefore it's time to
-          // update the edges
-          Resource srcResource = executionPlan.get(srcId).getProposedResource();
-          Resource dstResource = executionPlan.get(dstId).getProposedResource();
-
-          // e.g.
-          // EdgeMutation
-          // [srcFieldName=consumer, dstFieldName=topics,
-          // srcId=prn:kafka:dev:aws_us-east-1::datakafka08:test_topic,
-          // destId=prn:merced:prod:aws_us-east-1::kafka:hour:test_topic, add=true]
-
-          if (value.isParentChild()) {
-            handleParentEdgeMutation(value, srcResource, dstResource);
-          } else {
-            handlePeerEdgeMutation(value, srcResource, dstResource);
+  private void checkAndAddEdgeMutations(String id, Map<String, Resource> updatedResources) {
+    List<EdgeMutation> edgeMutations = getEdgeMutationIndex().get(id);
+    if (edgeMutations == null) {
+      return;
+    }
+    for (EdgeMutation value : edgeMutations) {
+      String srcId = value.getSrcId();
+      String dstId = value.getDestId();
+      // other id is destination
+      if (isComplete(executionPlan.get(srcId)) && isComplete(executionPlan.get(dstId))) {
+        // both vertices of this edge have completed execution therefore it's time to
+        // update the edges
+        Resource srcResource = executionPlan.get(srcId).getProposedResource();
+        Resource dstResource = executionPlan.get(dstId).getProposedResource();
+
+        // e.g.
+        // EdgeMutation
+        // [srcFieldName=consumer, dstFieldName=topics,
+        // srcId=prn:kafka:dev:aws_us-east-1::datakafka08:test_topic,
+        // destId=prn:merced:prod:aws_us-east-1::kafka:hour:test_topic, add=true]
+
+        if (value.isParentChild()) {
+          handleParentEdgeMutation(value, srcResource, dstResource);
+        } else {
+          handlePeerEdgeMutation(value, srcResource, dstResource);
+        }
+        updatedResources.put(srcId, srcResource);
+        updatedResources.put(dstId, dstResource);
+      }
+    }
+  }
+
+  private static boolean isComplete(PlanVertex planVertex) {
+    return planVertex.getProcess() == null
+        || planVertex.getProcess().getEndStatus() == Status.SUCCEEDED;
+  }
+
+  /**
+   * Index of edge mutations by the source and destination vertex ids, the index
+   * is not persisted so it's rebuilt when the graph is deserialized.
+   * 
+   * @return index of edge mutations
+   */
+  Map<String, List<EdgeMutation>> getEdgeMutationIndex() {
+    if (edgeMutationIndex == null) {
+      Map<String, List<EdgeMutation>> index = new HashMap<>();
+      if (allEdgeMutations != null) {
+        for (EdgeMutation mutation : allEdgeMutations.values()) {
+          index.computeIfAbsent(mutation.getSrcId(), k -> new ArrayList<>()).add(mutation);
+          if (!mutation.getDestId().equals(mutation.getSrcId())) {
+            index.computeIfAbsent(mutation.getDestId(), k -> new ArrayList<>()).add(mutation);
           }
-          updatedResources.add(srcResource);
-          updatedResources.add(dstResource);
         }
       }
+      edgeMutationIndex = index;
     }
-    return updatedResources;
+    return edgeMutationIndex;
   }
 
   private void handleParentEdgeMutation(EdgeMutation value,
@@ -231,27 +368,122 @@ public class ExecutionGraph implements Serializable {
     }
   }
 
+  /**
+   * Enqueue every vertex whose upstream vertices have all completed. The
+   * dependency counters are rebuilt from the plan, subsequent completions are
+   * released incrementally by {@link #releaseDependents(Set)}.
+   */
   public void enqueuePlanVerticesWithSatissfiedDependencies() {
-    // get any vertices that can now be executed because it's upstream has beem
-    // completed
-    Set<String> completed = executionPlan.values().stream()
-        .filter(v -> v.getProcess() == null || v.getProcess().getEndStatus() == Status.SUCCEEDED)
-        .map(v -> v.getProposedResource().getId()).collect(Collectors.toSet());
-
-    // find vertices whose dependencies have been satisfied so we can enqueue them
-    // for execution
-    List<PlanVertex> nonNullPlans = executionPlan.values().stream()
-        .filter(v -> v.getProcess() != null && v.getProcess().getEndStatus() == Status.NOT_STARTED)
-        .collect(Collectors.toList());
-    for (PlanVertex v : nonNullPlans) {
-      List<String> upstreamVertices = v.getUpstreamVertices();
-      if (upstreamVertices == null || upstreamVertices.stream().filter(i -> i != null).count() == 0
-          || completed.containsAll(upstreamVertices)) {
-        currentPlanSet.add(v.getProposedResource().getId());
+    downstreamVertices = null;
+    buildDependencyIndex();
+    for (Entry<String, Integer> entry : pendingDependencies.entrySet()) {
+      if (entry.getValue() == 0) {
+        enqueueIfNotStarted(entry.getKey());
       }
     }
   }
 
+  /**
+   * Decrement the dependency counters of the vertices downstream of the
+   * completed vertices and enqueue the ones that have no pending upstream
+   * vertices left.
+   * 
+   * @param completedIds
+   */
+  void releaseDependents(Set<String> completedIds) {
+    if (downstreamVertices == null) {
+      // graph was deserialized, rebuilding the index accounts for everything that
+      // has completed so far
+      enqueuePlanVerticesWithSatissfiedDependencies();
+      return;
+    }
+    for (String id : completedIds) {
+      if (!releasedVertices.add(id)) {
+        continue;
+      }
+      List<String> dependents = downstreamVertices.get(id);
+      if (dependents == null) {
+        continue;
+      }
+      for (String dependent : dependents) {
+        int pending = pendingDependencies.merge(dependent, -1, Integer::sum);
+        if (pending == 0) {
+          enqueueIfNotStarted(dependent);
+        }
+      }
+    }
+  }
+
+  private void enqueueIfNotStarted(String id) {
+    PlanVertex v = executionPlan.get(id);
+    if (v.getProcess() != null && v.getProcess().getEndStatus() == Status.NOT_STARTED) {
+      if (currentPlanSet.add(v.getProposedResource().getId())) {
+        stateVersion = StateVersion.next();
+      }
+    }
+  }
+
+  /**
+   * Build the downstream adjacency and remaining dependency counters from the
+   * upstream vertices of each vertex. Upstream vertices that aren't part of the
+   * plan are never released, same as before.
+   */
+  private void buildDependencyIndex() {
+    Map<String, List<String>> downstream = new HashMap<>();
+    Map<String, Integer> pending = new HashMap<>();
+    Set<String> released = new HashSet<>();
+    for (Entry<String, PlanVertex> entry : executionPlan.entrySet()) {
+      if (isComplete(entry.getValue())) {
+        released.add(entry.getKey());
+      }
+    }
+    for (Entry<String, PlanVertex> entry : executionPlan.entrySet()) {
+      int count = 0;
+      List<String> upstreamVertices = entry.getValue().getUpstreamVertices();
+      if (upstreamVertices != null) {
+        for (String upstream : new HashSet<>(upstreamVertices)) {
+          if (upstream == null || released.contains(upstream)) {
+            continue;
+          }
+          downstream.computeIfAbsent(upstream, k -> new ArrayList<>()).add(entry.getKey());
+          count++;
+        }
+      }
+      pending.put(entry.getKey(), count);
+    }
+    pendingDependencies = pending;
+    releasedVertices = released;
+    downstreamVertices = downstream;
+  }
+
+  /**
+   * Version of the execution state of this graph, increases whenever the
+   * graph, a vertex, a process or a task changes. Poll scheduling of running
+   * tasks isn't tracked.
+   * 
+   * @return version of the last change to the execution state
+   */
+  public long getStateVersion() {
+    long version = stateVersion;
+    for (PlanVertex v : executionPlan.values()) {
+      version = Math.max(version, v.getStateVersion());
+    }
+    return version;
+  }
+
+  /**
+   * @return earliest time a vertex of this graph needs to be visited again or
+   *         Long.MAX_VALUE if no vertex is executing
+   */
+  public long nextPollTimeMs() {
+    long next = Long.MAX_VALUE;
+    for (String id : currentPlanSet) {
+      LifecycleProcess process = executionPlan.get(id).getProcess();
+      next = Math.min(next, process != null ? process.nextPollTimeMs() : 0);
+    }
+    return next;
+  }
+
   public Status getStatus() {
     return status;
   }
@@ -270,10 +502,14 @@ public class ExecutionGraph implements Serializable {
 
   public void setExecutionPlan(Map<String, PlanVertex> executionPlan) {
     this.executionPlan = executionPlan;
+    stateVersion = StateVersion.next();
+    this.downstreamVertices = null;
   }
 
   public void setAllEdgeMutations(SortedMap<String, EdgeMutation> allEdgeMutations) {
     this.allEdgeMutations = allEdgeMutations;
+    this.edgeMutationIndex = null;
+    getEdgeMutationIndex();
   }
 
   public SortedMap<String, EdgeMutation> getAllEdgeMutations() {
@@ -302,6 +538,7 @@ public class ExecutionGraph implements Serializable {
 
   public void setEndTime(Date endTime) {
     this.endTime = endTime;
+    stateVersion = StateVersion.next();
   }
 
   public String getStateStoragePath() {
@@ -318,10 +555,36 @@ public class ExecutionGraph implements Serializable {
 
   public void setCurrentPlanSet(Set<String> currentPlanSet) {
     this.currentPlanSet = currentPlanSet;
+    stateVersion = StateVersion.next();
   }
 
   public void setStatus(Status status) {
     this.status = status;
+    stateVersion = StateVersion.next();
+  }
+
+  public long getFencingToken() {
+    return fencingToken;
+  }
+
+  public void setFencingToken(long fencingToken) {
+    this.fencingToken = fencingToken;
+  }
+
+  public ExecutionPriority getPriority() {
+    return priority != null ? priority : ExecutionPriority.INTERACTIVE;
+  }
+
+  public void setPriority(ExecutionPriority priority) {
+    this.priority = priority;
+  }
+
+  public long getJournalSequence() {
+    return journalSequence;
+  }
+
+  public void setJournalSequence(long journalSequence) {
+    this.journalSequence = journalSequence;
   }
 
 }
@@ -16,10 +16,14 @@
 package com.pinterest.slate.graph;
 
 import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.hibernate.SessionFactory;
+import org.hibernate.type.TimestampType;
 
 import com.pinterest.slate.process.Status;
 
@@ -30,6 +34,7 @@ import io.dropwizard.hibernate.UnitOfWork;
 public class ExecutionGraphDAO extends AbstractDAO<ExecutionGraph> implements AbstractExecutionDAO {
 
   protected AbstractStateStore store;
+  private volatile boolean leasesEnabled;
 
   public ExecutionGraphDAO(SessionFactory sessionFactory, AbstractStateStore store) {
     super(sessionFactory);
@@ -41,10 +46,144 @@ public class ExecutionGraphDAO extends AbstractDAO<ExecutionGraph> implements Ab
     if (graph.getStateStoragePath() == null) {
       graph.setStateStoragePath(store.getExecutionGraphStoragePath(graph.getExecutionId()));
     }
+    if (graph.getFencingToken() > 0) {
+      // the row is only updated if the lease is still current, the row stays
+      // locked until the unit of work commits so the lease can't be taken over
+      // while the state is being written
+      int updated = currentSession().createNativeQuery(
+          "update executiongraph set status=:status, start_time=:startTime, end_time=:endTime, state_path=:statePath where execution_id=:id and fencing_token=:token")
+          .setParameter("status", graph.getStatus().name())
+          .setParameter("startTime", toTimestamp(graph.getStartTime()), TimestampType.INSTANCE)
+          .setParameter("endTime", toTimestamp(graph.getEndTime()), TimestampType.INSTANCE)
+          .setParameter("statePath", graph.getStateStoragePath())
+          .setParameter("id", graph.getExecutionId())
+          .setParameter("token", graph.getFencingToken()).executeUpdate();
+      if (updated == 0) {
+        throw new LeaseLostException(graph.getExecutionId(), graph.getFencingToken());
+      }
+      store.saveExecutionGraph(graph);
+      return;
+    }
+    if (leasesEnabled) {
+      checkNotLeased(graph);
+    }
     store.saveExecutionGraph(graph);
     persist(graph);
   }
 
+  /**
+   * A write without a lease must not overwrite a graph leased by a node.
+   */
+  private void checkNotLeased(ExecutionGraph graph) throws LeaseLostException {
+    Number leased = (Number) currentSession().createNativeQuery(
+        "select count(*) from executiongraph where execution_id=:id and lease_owner is not null and lease_expiry>=:now")
+        .setParameter("id", graph.getExecutionId()).setParameter("now", System.currentTimeMillis())
+        .uniqueResult();
+    if (leased.longValue() > 0) {
+      throw new LeaseLostException(graph.getExecutionId(), graph.getFencingToken());
+    }
+  }
+
+  @Override
+  public boolean supportsLeases() {
+    return true;
+  }
+
+  @Override
+  public void setLeasesEnabled(boolean leasesEnabled) {
+    this.leasesEnabled = leasesEnabled;
+  }
+
+  @Override
+  public long acquireLease(String executionId,
+                           String owner,
+                           long leaseDurationMs) throws IOException {
+    long now = System.currentTimeMillis();
+    int updated = currentSession().createNativeQuery(
+        "update executiongraph set lease_owner=:owner, lease_expiry=:expiry, fencing_token=coalesce(fencing_token, 0) + 1 where execution_id=:id and (lease_owner is null or lease_expiry<:now)")
+        .setParameter("owner", owner).setParameter("expiry", now + leaseDurationMs)
+        .setParameter("id", executionId).setParameter("now", now).executeUpdate();
+    if (updated == 0) {
+      return -1;
+    }
+    Number token = (Number) currentSession()
+        .createNativeQuery("select fencing_token from executiongraph where execution_id=:id")
+        .setParameter("id", executionId).uniqueResult();
+    return token.longValue();
+  }
+
+  @Override
+  public boolean renewLease(String executionId,
+                            String owner,
+                            long fencingToken,
+                            long leaseDurationMs) throws IOException {
+    return currentSession().createNativeQuery(
+        "update executiongraph set lease_expiry=:expiry where execution_id=:id and lease_owner=:owner and fencing_token=:token")
+        .setParameter("expiry", System.currentTimeMillis() + leaseDurationMs)
+        .setParameter("id", executionId).setParameter("owner", owner)
+        .setParameter("token", fencingToken).executeUpdate() > 0;
+  }
+
+  @Override
+  public void releaseLease(String executionId, String owner, long fencingToken) throws IOException {
+    currentSession().createNativeQuery(
+        "update executiongraph set lease_owner=null, lease_expiry=null where execution_id=:id and lease_owner=:owner and fencing_token=:token")
+        .setParameter("id", executionId).setParameter("owner", owner)
+        .setParameter("token", fencingToken).executeUpdate();
+  }
+
+  @Override
+  public List<String> listExpiredLeases() throws IOException {
+    return currentSession().createNativeQuery(
+        "select execution_id from executiongraph where status not in ('FAILED', 'SUCCEEDED', 'CANCELLED') and lease_owner is not null and lease_expiry<:now")
+        .setParameter("now", System.currentTimeMillis()).list();
+  }
+
+  @Override
+  public boolean supportsPushedStatusUpdates() {
+    return true;
+  }
+
+  @Override
+  public void savePushedStatusUpdate(String executionId,
+                                     String processId,
+                                     String taskId,
+                                     String update) throws IOException {
+    currentSession().createNativeQuery(
+        "delete from taskstatusupdate where process_id=:processId and task_id=:taskId")
+        .setParameter("processId", processId).setParameter("taskId", taskId).executeUpdate();
+    currentSession().createNativeQuery(
+        "insert into taskstatusupdate (process_id, task_id, execution_id, status_update, update_time) values (:processId, :taskId, :id, :update, :now)")
+        .setParameter("processId", processId).setParameter("taskId", taskId)
+        .setParameter("id", executionId).setParameter("update", update)
+        .setParameter("now", new Timestamp(System.currentTimeMillis()), TimestampType.INSTANCE)
+        .executeUpdate();
+  }
+
+  @Override
+  public Map<String, Map<String, String>> takePushedStatusUpdates(
+      String executionId) throws IOException {
+    // the rows stay locked until the unit of work commits so an update pushed
+    // meanwhile replaces the row after it has been deleted
+    List<Object[]> rows = currentSession().createNativeQuery(
+        "select process_id, task_id, status_update from taskstatusupdate where execution_id=:id for update")
+        .setParameter("id", executionId).list();
+    Map<String, Map<String, String>> updates = new HashMap<>();
+    for (Object[] row : rows) {
+      String processId = (String) row[0];
+      String taskId = (String) row[1];
+      updates.computeIfAbsent(processId, k -> new HashMap<>()).put(taskId, (String) row[2]);
+      currentSession().createNativeQuery(
+          "delete from taskstatusupdate where process_id=:processId and task_id=:taskId")
+          .setParameter("processId", processId).setParameter("taskId", taskId).executeUpdate();
+    }
+    return updates;
+  }
+
+  private static Timestamp toTimestamp(Date date) {
+    return date != null ? new Timestamp(date.getTime()) : null;
+  }
+
   public ExecutionGraph get(String executionId) throws IOException {
     return store.getExecutionGraph(executionId);
   }
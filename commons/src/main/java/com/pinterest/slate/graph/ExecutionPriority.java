@@ -0,0 +1,47 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+/**
+ * Scheduling class of an execution graph, graphs of a higher priority class
+ * get a larger share of the graph executor.
+ */
+public enum ExecutionPriority {
+
+  INTERACTIVE(16),
+  BATCH(4),
+  BACKFILL(1);
+
+  private final int defaultWeight;
+
+  private ExecutionPriority(int defaultWeight) {
+    this.defaultWeight = defaultWeight;
+  }
+
+  public int getDefaultWeight() {
+    return defaultWeight;
+  }
+
+  /**
+   * @param other
+   * @return true if this class is scheduled after the other one, classes are
+   *         declared from the highest to the lowest
+   */
+  public boolean isLowerThan(ExecutionPriority other) {
+    return ordinal() > other.ordinal();
+  }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+/**
+ * A graph taken from an execution queue along with the scheduling attributes
+ * carried in its record, the attributes are null if the record carries none.
+ */
+public class ExecutionQueueRecord {
+
+  private final String executionId;
+  private final String requester;
+  private final ExecutionPriority priority;
+
+  public ExecutionQueueRecord(String executionId,
+                              String requester,
+                              ExecutionPriority priority) {
+    this.executionId = executionId;
+    this.requester = requester;
+    this.priority = priority;
+  }
+
+  public String getExecutionId() {
+    return executionId;
+  }
+
+  public String getRequester() {
+    return requester;
+  }
+
+  public ExecutionPriority getPriority() {
+    return priority;
+  }
+
+}
@@ -16,21 +16,33 @@
 package com.pinterest.slate.graph;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.common.collect.Sets.SetView;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.pinterest.slate.graph.PlanCache.CachedPlan;
 import com.pinterest.slate.resources.EdgeDefinition;
 import com.pinterest.slate.resources.Plan;
 import com.pinterest.slate.resources.PlanException;
@@ -38,16 +50,23 @@ import com.pinterest.slate.resources.Resource;
 import com.pinterest.slate.resources.ResourceChange;
 import com.pinterest.slate.resources.ResourceDefinition;
 import com.pinterest.slate.resources.ResourceFactory;
+import com.pinterest.slate.utils.HttpUtils;
+import com.pinterest.slate.validation.GraphValidationException;
 import com.pinterest.slate.validation.ResourceValidationFactory;
 import com.pinterest.slate.validation.ResourceValidator;
 
 public class GraphEngine {
 
   private static final Logger logger = Logger.getLogger(GraphEngine.class.getCanonicalName());
+  private static final Gson GSON = new Gson();
   public static int MAX_ITERATIONS = 100;
   private AbstractResourceDB resourceDB;
   private GraphExecutor graphExecutor;
   private ResourceFactory resourceFactory;
+  private PlanningExecutor planningExecutor;
+  private CurrentStateCache currentStateCache;
+  private PlanCache planCache;
+  private int batchPriorityMinVertices = 0;
 
   public GraphEngine(ResourceFactory resourceFactory,
                      AbstractResourceDB resourceDB,
@@ -62,6 +81,62 @@ public class GraphEngine {
     this.resourceDB = resourceDB;
   }
 
+  public PlanningExecutor getPlanningExecutor() {
+    return planningExecutor;
+  }
+
+  /**
+   * Plan vertices concurrently using the supplied executor, planning is
+   * sequential if no executor is set.
+   * 
+   * @param planningExecutor
+   */
+  public void setPlanningExecutor(PlanningExecutor planningExecutor) {
+    this.planningExecutor = planningExecutor;
+  }
+
+  public CurrentStateCache getCurrentStateCache() {
+    return currentStateCache;
+  }
+
+  /**
+   * Cache external current state of resources across plan requests, current
+   * state is only read once per plan request if no cache is set.
+   * 
+   * @param currentStateCache
+   */
+  public void setCurrentStateCache(CurrentStateCache currentStateCache) {
+    this.currentStateCache = currentStateCache;
+  }
+
+  public PlanCache getPlanCache() {
+    return planCache;
+  }
+
+  /**
+   * Cache computed plans so that executions can reuse them using the plan
+   * handle.
+   * 
+   * @param planCache
+   */
+  public void setPlanCache(PlanCache planCache) {
+    this.planCache = planCache;
+  }
+
+  public int getBatchPriorityMinVertices() {
+    return batchPriorityMinVertices;
+  }
+
+  /**
+   * @param batchPriorityMinVertices graphs of at least this many vertices are
+   *                                 executed with batch priority unless a
+   *                                 priority is requested, 0 executes all
+   *                                 graphs as interactive
+   */
+  public void setBatchPriorityMinVertices(int batchPriorityMinVertices) {
+    this.batchPriorityMinVertices = batchPriorityMinVertices;
+  }
+
   /**
    * 1. Check dependency satisfaction 2. Check and pull cascading updates 3.
    * 
@@ -71,8 +146,30 @@ public class GraphEngine {
    */
   public Map<String, PlanVertex> planGraphUpdate(String requester,
                                                  Map<String, Resource> deltaGraph) throws Exception {
+    return planGraphUpdate(requester, deltaGraph, null);
+  }
+
+  /**
+   * Same as {@link #planGraphUpdate(String, Map)}, additionally records how many
+   * iterations it took for planning to converge and caches the plan if a
+   * {@link PlanCache} is configured.
+   * 
+   * @param requester
+   * @param deltaGraph
+   * @param summary    optional, populated with the planning summary
+   * @return
+   * @throws Exception
+   */
+  public Map<String, PlanVertex> planGraphUpdate(String requester,
+                                                 Map<String, Resource> deltaGraph,
+                                                 PlanSummary summary) throws Exception {
+    // capture the delta graph as submitted since planning will modify it
+    JsonElement submittedDeltaGraph = summary != null && planCache != null
+        ? GSON.toJsonTree(deltaGraph)
+        : null;
     Map<String, Resource> existingResourcesMap = new HashMap<>();
-    for (Entry<String, Resource> entry : new HashSet<>(deltaGraph.entrySet())) {
+    Set<Entry<String, Resource>> proposedEntries = new HashSet<>(deltaGraph.entrySet());
+    for (Entry<String, Resource> entry : proposedEntries) {
       Resource value = entry.getValue();
       if (!entry.getKey().equals(value.getId())) {
         throw new PlanException(
@@ -80,8 +177,31 @@ public class GraphEngine {
                 + value.getId());
       }
       normalizeResourceEdges(value);
-      validateResource(value);
-      Resource resourceById = resourceDB.getResourceById(value.getId());
+    }
+    // validate the whole delta graph up front so every failure is reported at
+    // once and no satellite calls are made for a graph that can't be planned
+    validateDeltaGraph(deltaGraph);
+    // resolve the proposed resources and their neighbors one frontier at a time
+    // instead of one lookup per id
+    ResourceSnapshot snapshot = new ResourceSnapshot(resourceDB);
+    Set<String> frontier = new HashSet<>(deltaGraph.keySet());
+    for (Resource value : deltaGraph.values()) {
+      addEdgeIds(value, frontier);
+    }
+    snapshot.resolve(frontier);
+    frontier = new HashSet<>();
+    for (String id : deltaGraph.keySet()) {
+      Resource resourceById = snapshot.get(id);
+      if (resourceById != null && resourceById.getChildResources() != null) {
+        frontier.addAll(resourceById.getChildResources());
+      }
+    }
+    snapshot.resolve(frontier);
+    // index the declared edges once, neighbors are added as they are resolved
+    EdgeSet edgeSet = new EdgeSet(deltaGraph);
+    for (Entry<String, Resource> entry : proposedEntries) {
+      Resource value = entry.getValue();
+      Resource resourceById = snapshot.get(value.getId());
       if (resourceById != null) {
         // check if resources are locked
         if (resourceById.getResourceLockOwner() != null) {
@@ -92,35 +212,73 @@ public class GraphEngine {
         existingResourcesMap.put(value.getId(), resourceById);
       }
       resolveResourceAndAddToGraph(value.getId(), deltaGraph, value.getInputResources(), true,
-          existingResourcesMap);
+          existingResourcesMap, snapshot, edgeSet);
       resolveResourceAndAddToGraph(value.getId(), deltaGraph, value.getOutputResources(), false,
-          existingResourcesMap);
-      resolveParentChildAndAddToGraph(value, resourceById, deltaGraph, existingResourcesMap);
-      validateResourceInputsAndOutputs(value, deltaGraph);
+          existingResourcesMap, snapshot, edgeSet);
+      resolveParentChildAndAddToGraph(value, resourceById, deltaGraph, existingResourcesMap,
+          snapshot, edgeSet);
+      validateResourceInputsAndOutputs(value, deltaGraph, edgeSet);
     }
-    validateMutualEdgeConnectivity(deltaGraph);
+    validateMutualEdgeConnectivity(deltaGraph, edgeSet);
     Map<String, String> netSubstitutionMap = new HashMap<>();
-    int i = 1;
-    Map<String, PlanVertex> planGraph = null;
-    while (i < MAX_ITERATIONS) {
+    Map<String, PlanVertex> planGraph = new HashMap<>();
+    SortedMap<String, Exception> planErrors = new TreeMap<>();
+    // plan every vertex once and then only re-plan the vertices whose proposed
+    // resource or neighbors were changed by the previous pass until nothing
+    // changes
+    Set<String> worklist = new HashSet<>(deltaGraph.keySet());
+    int i = 0;
+    int replannedVertices = 0;
+    while (!worklist.isEmpty() && i < MAX_ITERATIONS) {
       i++;
-      try {
-        Map<String, PlanVertex> tmpPlanGraph = new HashMap<>();
-        netSubstitutionMap.putAll(runResourceLevelPlanning(requester, existingResourcesMap,
-            deltaGraph, tmpPlanGraph, true));
-        if (planGraph != null && tmpPlanGraph.equals(planGraph)) {
-          break;
-        } else {
-          planGraph = tmpPlanGraph;
+      if (i > 1) {
+        replannedVertices += worklist.size();
+      }
+      Map<String, PlanVertex> tmpPlanGraph = new HashMap<>();
+      Map<String, Exception> tmpPlanErrors = new HashMap<>();
+      Set<String> changedIds = new HashSet<>();
+      Map<String, String> substitutionMap = runResourceLevelPlanning(requester,
+          existingResourcesMap, snapshot, deltaGraph, worklist, tmpPlanGraph, tmpPlanErrors,
+          changedIds);
+      for (String id : worklist) {
+        planGraph.remove(id);
+        planErrors.remove(id);
+      }
+      for (Entry<String, String> entry : substitutionMap.entrySet()) {
+        // vertex will be planned again under the substituted id
+        tmpPlanGraph.remove(entry.getValue());
+        tmpPlanErrors.remove(entry.getValue());
+        changedIds.add(entry.getKey());
+      }
+      planGraph.putAll(tmpPlanGraph);
+      planErrors.putAll(tmpPlanErrors);
+      netSubstitutionMap.putAll(substitutionMap);
+      worklist = new HashSet<>();
+      for (String id : changedIds) {
+        Resource resource = deltaGraph.get(id);
+        if (resource != null) {
+          worklist.add(id);
+          addNeighborIds(resource, deltaGraph, worklist);
         }
-      } catch (Exception e) {
       }
     }
-    logger.info("Number of iterations:" + i);
-    planGraph = new HashMap<>();
-    runResourceLevelPlanning(requester, existingResourcesMap, deltaGraph, planGraph, false);
+    if (!worklist.isEmpty()) {
+      logger.warning("Planning didn't converge after " + i + " iterations, unstable vertices:"
+          + worklist);
+    }
+    logger.info("Number of iterations:" + i + " replanned vertices:" + replannedVertices);
+    if (summary != null) {
+      summary.setIterations(i);
+      summary.setReplannedVertices(replannedVertices);
+    }
+    if (!planErrors.isEmpty()) {
+      throw planErrors.get(planErrors.firstKey());
+    }
     for (Entry<String, String> entry : netSubstitutionMap.entrySet()) {
       PlanVertex planVertex = planGraph.get(entry.getKey());
+      if (planVertex == null) {
+        continue;
+      }
       planVertex.setOldId(entry.getValue());
       planVertex.setNewId(entry.getKey());
     }
@@ -139,9 +297,66 @@ public class GraphEngine {
         }
       }
     }
+    if (submittedDeltaGraph != null) {
+      summary.setPlanHandle(planCache.put(new CachedPlan(requester, submittedDeltaGraph, planGraph,
+          generateAllEdgeMutations(planGraph), getResourceVersions(planGraph))));
+    }
     return planGraph;
   }
 
+  private Map<String, Long> getResourceVersions(Map<String, PlanVertex> planGraph) {
+    Map<String, Long> resourceVersions = new HashMap<>();
+    for (Entry<String, PlanVertex> entry : planGraph.entrySet()) {
+      Resource currentResource = entry.getValue().getCurrentResource();
+      if (currentResource != null) {
+        resourceVersions.put(entry.getKey(), currentResource.getLastUpdateTimestamp());
+      }
+    }
+    return resourceVersions;
+  }
+
+  /**
+   * Lookup the cached plan for the handle and check that it can still be
+   * executed i.e. it was planned for the same requester and delta graph and
+   * none of the resources have been updated since.
+   * 
+   * @param requester
+   * @param deltaGraph
+   * @param planHandle
+   * @return cached plan or null if the delta graph needs to be planned again
+   */
+  private CachedPlan getReusablePlan(String requester,
+                                     Map<String, Resource> deltaGraph,
+                                     String planHandle) {
+    if (planHandle == null || planCache == null) {
+      return null;
+    }
+    CachedPlan cachedPlan = planCache.remove(planHandle);
+    if (cachedPlan == null) {
+      logger.info("Plan handle:" + planHandle + " not found, planning again");
+      return null;
+    }
+    if (!cachedPlan.getRequester().equals(requester)
+        || !cachedPlan.getDeltaGraph().equals(GSON.toJsonTree(deltaGraph))) {
+      logger.info("Plan handle:" + planHandle + " doesn't match the request, planning again");
+      return null;
+    }
+    try {
+      Map<String, Long> resourceVersions = resourceDB
+          .getLastUpdateTimestamp(new ArrayList<>(cachedPlan.getPlanGraph().keySet()));
+      if (!cachedPlan.getResourceVersions().equals(resourceVersions)) {
+        logger.info("Resources changed since plan handle:" + planHandle
+            + " was created, planning again");
+        return null;
+      }
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Failed to check resource versions for plan handle:" + planHandle,
+          e);
+      return null;
+    }
+    return cachedPlan;
+  }
+
   /**
    * This method catches any partial graph connectivity problems. It's not going
    * to catch cases where there are multiple edges between the same vertices.
@@ -153,92 +368,94 @@ public class GraphEngine {
    * @param deltaGraph
    * @throws PlanException
    */
-  private void validateMutualEdgeConnectivity(Map<String, Resource> deltaGraph) throws PlanException {
-    for (Entry<String, Resource> entry : deltaGraph.entrySet()) {
-      Resource r = entry.getValue();
-      for (Entry<String, Set<String>> entry2 : r.getInputResources().entrySet()) {
-        for (String i : entry2.getValue()) {
-          try {
-            if (!deltaGraph.get(i).getOutputResources().values().stream().flatMap(v -> v.stream())
-                .anyMatch(p -> p.equals(entry.getKey()))) {
+  private void validateMutualEdgeConnectivity(Map<String, Resource> deltaGraph,
+                                              EdgeSet edgeSet) throws PlanException {
+    for (Resource r : deltaGraph.values()) {
+      String id = r.getId();
+      if (r.getInputResources() != null) {
+        for (Entry<String, Set<String>> entry : r.getInputResources().entrySet()) {
+          for (String i : entry.getValue()) {
+            if (deltaGraph.containsKey(i) && !edgeSet.hasOutput(i, id)) {
               throw new PlanException("Missign mutual edge connection, connect is specified in:"
-                  + entry.getKey() + " but not in " + i);
+                  + id + " input:" + entry.getKey() + " but not in outputs of " + i);
             }
-          } catch (Exception e) {
-            // TODO figure out where to cut the graph for recursive planning
           }
         }
       }
-      for (Entry<String, Set<String>> entry2 : r.getOutputResources().entrySet()) {
-        for (String i : entry2.getValue()) {
-          try {
-            if (!deltaGraph.get(i).getInputResources().values().stream().flatMap(v -> v.stream())
-                .anyMatch(p -> p.equals(entry.getKey()))) {
+      if (r.getOutputResources() != null) {
+        for (Entry<String, Set<String>> entry : r.getOutputResources().entrySet()) {
+          for (String i : entry.getValue()) {
+            if (deltaGraph.containsKey(i) && !edgeSet.hasInput(i, id)) {
               throw new PlanException("Missign mutual edge connection, connect is specified in:"
-                  + entry.getKey() + " but not in " + i);
+                  + id + " output:" + entry.getKey() + " but not in inputs of " + i);
             }
-          } catch (Exception e) {
-            // TODO figure out where to cut the graph for recursive planning
           }
         }
       }
       if (r.getChildResources() != null) {
         for (String i : r.getChildResources()) {
-          try {
-            if (!deltaGraph.get(i).getParentResource().equals(entry.getKey())) {
-              throw new PlanException("Missign mutual edge connection, connect is specified in:"
-                  + entry.getKey() + " but not in " + i);
-            }
-          } catch (Exception e) {
-            // TODO figure out where to cut the graph for recursive planning
+          if (deltaGraph.containsKey(i) && !edgeSet.hasParent(i, id)) {
+            throw new PlanException("Missign mutual edge connection, connect is specified in:"
+                + id + " but not in " + i);
           }
         }
       }
-      if (r.getParentResource() != null) {
-        Resource parentResource = deltaGraph.get(r.getParentResource());
-        if (parentResource.getChildResources() == null
-            || !parentResource.getChildResources().contains(r.getId())) {
-          throw new PlanException("Missign mutual edge connection, connect is specified in:"
-              + r.getParentResource() + " but not in " + parentResource.getId());
-        }
+      if (r.getParentResource() != null && !edgeSet.hasChild(r.getParentResource(), id)) {
+        throw new PlanException("Missign mutual edge connection, connect is specified in:" + id
+            + " but not in " + r.getParentResource());
       }
     }
   }
 
+  /**
+   * Plan the supplied vertices of the deltaGraph. Errors for individual vertices
+   * are collected in planErrors so the rest of the graph can still converge.
+   * 
+   * @param requester
+   * @param existingResourcesMap
+   * @param snapshot
+   * @param deltaGraph
+   * @param ids                  vertices to plan
+   * @param planGraph            planned vertices are added to this map
+   * @param planErrors           errors for vertices that failed planning
+   * @param changedIds           vertices whose desired state changed
+   * @return id substitutions performed, new id to old id
+   * @throws Exception
+   */
   private Map<String, String> runResourceLevelPlanning(String requester,
                                                        Map<String, Resource> existingResourcesMap,
+                                                       ResourceSnapshot snapshot,
                                                        Map<String, Resource> deltaGraph,
+                                                       Collection<String> ids,
                                                        Map<String, PlanVertex> planGraph,
-                                                       boolean catchIndividualPlanExceptions) throws IOException,
-                                                                                              PlanException,
-                                                                                              Exception {
+                                                       Map<String, Exception> planErrors,
+                                                       Set<String> changedIds) throws IOException,
+                                                                               PlanException,
+                                                                               Exception {
     // now iterate over the members of the deltaGraph to trigger the planning
-    // process
+    // process, calls to the resource definitions are fanned out and the results
+    // are merged in id order so the outcome doesn't depend on completion order
+    SortedMap<String, VertexPlanResult> results = planVertices(requester, existingResourcesMap,
+        snapshot, deltaGraph, ids);
     Map<String, String> idSubstitutionMap = new HashMap<>();
-    for (Entry<String, Resource> entry : deltaGraph.entrySet()) {
-      // check if this resource already exists
-      Resource currentResource = existingResourcesMap.get(entry.getKey());
-      Resource proposedResource = entry.getValue();
-      JsonObject currentState = null;
-      // validate the type is correct
-      if (currentResource != null) {
-        if (!currentResource.getResourceDefinitionClass()
-            .equalsIgnoreCase(proposedResource.getResourceDefinitionClass())) {
-          throw new Exception("Invalid change: Existing resource type"
-              + currentResource.getResourceDefinitionClass() + " and proposed resource type("
-              + proposedResource.getResourceDefinitionClass()
-              + ") must be the same. Changing the type of an existing resource is now allowed at the moment.");
-        }
-        // fetch current state only if the resources exists
-        currentState = getCurrentState(currentResource);
+    for (VertexPlanResult result : results.values()) {
+      if (result.fatalError != null) {
+        throw result.fatalError;
       }
-
+      Resource currentResource = result.currentResource;
+      Resource proposedResource = result.proposedResource;
       try {
-        // lookup the class of the proposed resource
-        ResourceDefinition def = resourceFactory.getResourceDefinition(proposedResource);
-        Plan plan = def.planChange(new ResourceChange(requester, currentResource, currentState,
-            proposedResource, deltaGraph));
-        proposedResource.setDesiredState(plan.getProposedResource().getDesiredState());
+        if (result.planError != null) {
+          throw result.planError;
+        }
+        Plan plan = result.plan;
+        JsonObject desiredState = plan.getProposedResource().getDesiredState();
+        // definitions may edit the proposed resource in place so the plan is
+        // compared with the copy taken before planning
+        if (result.isChangedBy(desiredState)) {
+          changedIds.add(proposedResource.getId());
+        }
+        proposedResource.setDesiredState(desiredState);
         planGraph.putIfAbsent(proposedResource.getId(), new PlanVertex());
         PlanVertex planVertex = planGraph.get(proposedResource.getId());
         if (planVertex.getProcess() != null) {
@@ -247,12 +464,12 @@ public class GraphEngine {
         // perform validation of the process & it's tasks to confirm that this graph has
         // the pre-requisites to execute
         initializePlanVertex(currentResource, proposedResource, plan, planVertex);
-        if (plan.getProcess() != null) {
-          plan.getProcess().validateTasks();
+        if (result.taskValidationError != null) {
+          throw result.taskValidationError;
         }
         String rectifiedId = plan.getUpdatedResourceId();
         if (rectifiedId != null && !rectifiedId.equals(plan.getProposedResource().getId())) {
-          Resource resourceById = resourceDB.getResourceById(rectifiedId);
+          Resource resourceById = snapshot.get(rectifiedId);
           if (resourceById != null) {
             existingResourcesMap.put(rectifiedId, resourceById);
             // let's be safer and fail the planning to force customers to query the latest
@@ -267,9 +484,7 @@ public class GraphEngine {
           performIdSubstitution(deltaGraph, idSubstitutionMap, proposedResource, rectifiedId);
         }
       } catch (Exception e) {
-        if (!catchIndividualPlanExceptions) {
-          throw e;
-        }
+        planErrors.put(proposedResource.getId(), e);
       }
     }
     // update resource ids in the map
@@ -284,6 +499,47 @@ public class GraphEngine {
     return idSubstitutionMap;
   }
 
+  private void addNeighborIds(Resource resource,
+                              Map<String, Resource> deltaGraph,
+                              Set<String> neighborIds) {
+    Set<String> ids = new HashSet<>();
+    addEdgeIds(resource, ids);
+    if (resource.getParentResource() != null) {
+      ids.add(resource.getParentResource());
+    }
+    for (String id : ids) {
+      if (deltaGraph.containsKey(id)) {
+        neighborIds.add(id);
+      }
+    }
+  }
+
+  /**
+   * Add ids of input, output and child resources of the supplied resource.
+   * 
+   * @param resource
+   * @param ids
+   */
+  private void addEdgeIds(Resource resource, Set<String> ids) {
+    if (resource.getInputResources() != null) {
+      for (Set<String> inputs : resource.getInputResources().values()) {
+        if (inputs != null) {
+          ids.addAll(inputs);
+        }
+      }
+    }
+    if (resource.getOutputResources() != null) {
+      for (Set<String> outputs : resource.getOutputResources().values()) {
+        if (outputs != null) {
+          ids.addAll(outputs);
+        }
+      }
+    }
+    if (resource.getChildResources() != null) {
+      ids.addAll(resource.getChildResources());
+    }
+  }
+
   /**
    * Perform Id substitution if the proposed Id is not the same as Id generated
    * from planner. This is a critical step to perform de-duplication of resources.
@@ -330,11 +586,55 @@ public class GraphEngine {
     planVertex.setCurrentResource(currentResource);
   }
 
-  private void validateResource(Resource resource) throws PlanException {
+  /**
+   * Run all configured validators against every resource of the delta graph,
+   * in parallel if a {@link PlanningExecutor} is configured.
+   * 
+   * @param deltaGraph
+   * @throws PlanException with every validation failure if any resource is
+   *                       invalid
+   */
+  private void validateDeltaGraph(Map<String, Resource> deltaGraph) throws PlanException {
+    SortedMap<String, List<String>> errors = new TreeMap<>();
+    if (planningExecutor == null || deltaGraph.size() < 2) {
+      for (Resource resource : deltaGraph.values()) {
+        List<String> resourceErrors = validateResource(resource);
+        if (!resourceErrors.isEmpty()) {
+          errors.put(resource.getId(), resourceErrors);
+        }
+      }
+    } else {
+      Map<String, Future<List<String>>> futures = new HashMap<>();
+      for (Resource resource : deltaGraph.values()) {
+        futures.put(resource.getId(), planningExecutor.submit(() -> validateResource(resource)));
+      }
+      for (Entry<String, Future<List<String>>> entry : futures.entrySet()) {
+        try {
+          List<String> resourceErrors = entry.getValue().get();
+          if (!resourceErrors.isEmpty()) {
+            errors.put(entry.getKey(), resourceErrors);
+          }
+        } catch (InterruptedException | ExecutionException e) {
+          throw new PlanException(e);
+        }
+      }
+    }
+    if (!errors.isEmpty()) {
+      throw new GraphValidationException(errors);
+    }
+  }
+
+  private List<String> validateResource(Resource resource) {
+    List<String> errors = new ArrayList<>();
     for (ResourceValidator resourceValidator : ResourceValidationFactory.getInstance()
         .getValidators()) {
-      resourceValidator.validate(resource);
+      try {
+        resourceValidator.validate(resource);
+      } catch (Exception e) {
+        errors.add(String.valueOf(e.getMessage()));
+      }
     }
+    return errors;
   }
 
   private void normalizeResourceEdges(Resource value) {
@@ -358,10 +658,189 @@ public class GraphEngine {
     value.setOutputResources(outputs);
   }
 
-  private JsonObject getCurrentState(Resource currentResource) throws PlanException {
+  /**
+   * Fetch current state and plan each of the supplied vertices. This step is
+   * read-only with respect to the deltaGraph so the vertices can be planned
+   * concurrently if a {@link PlanningExecutor} is configured, satellite calls
+   * are then made with the non-blocking definition methods and all of them are
+   * kept outstanding within the per satellite permits.
+   * 
+   * @param requester
+   * @param existingResourcesMap
+   * @param snapshot
+   * @param deltaGraph
+   * @param ids
+   * @return results sorted by resource id
+   * @throws Exception
+   */
+  private SortedMap<String, VertexPlanResult> planVertices(String requester,
+                                                           Map<String, Resource> existingResourcesMap,
+                                                           ResourceSnapshot snapshot,
+                                                           Map<String, Resource> deltaGraph,
+                                                           Collection<String> ids) throws Exception {
+    SortedMap<String, VertexPlanResult> results = new TreeMap<>();
+    if (planningExecutor == null) {
+      for (String id : ids) {
+        results.put(id, planVertex(requester, existingResourcesMap.get(id), deltaGraph.get(id),
+            snapshot, deltaGraph));
+      }
+      return results;
+    }
+    Map<String, Future<VertexPlanResult>> futures = new HashMap<>();
+    for (String id : ids) {
+      futures.put(id, planVertexAsync(requester, existingResourcesMap.get(id), deltaGraph.get(id),
+          snapshot, deltaGraph));
+    }
+    for (Entry<String, Future<VertexPlanResult>> entry : futures.entrySet()) {
+      try {
+        results.put(entry.getKey(), entry.getValue().get());
+      } catch (ExecutionException e) {
+        throw new PlanException(e.getCause());
+      }
+    }
+    return results;
+  }
+
+  private VertexPlanResult planVertex(String requester,
+                                      Resource currentResource,
+                                      Resource proposedResource,
+                                      ResourceSnapshot snapshot,
+                                      Map<String, Resource> deltaGraph) {
+    VertexPlanResult result = new VertexPlanResult(currentResource, proposedResource);
+    JsonObject currentState = null;
+    if (currentResource != null) {
+      if (!hasSameType(result)) {
+        return result;
+      }
+      // fetch current state only if the resources exists
+      try {
+        currentState = getCurrentState(currentResource, snapshot);
+      } catch (PlanException e) {
+        result.fatalError = e;
+        return result;
+      }
+    }
+    try {
+      // lookup the class of the proposed resource
+      ResourceDefinition def = resourceFactory.getResourceDefinition(proposedResource);
+      ResourceChange change = new ResourceChange(requester, currentResource, currentState,
+          proposedResource, deltaGraph);
+      result.copyBeforePlanning();
+      result.plan = def.planChange(change);
+    } catch (Exception e) {
+      result.planError = e;
+      return result;
+    }
+    validateTasks(result);
+    return result;
+  }
+
+  /**
+   * Non-blocking variant of
+   * {@link #planVertex(String, Resource, Resource, ResourceSnapshot, Map)},
+   * the returned future isn't completed exceptionally by planning errors.
+   */
+  private CompletableFuture<VertexPlanResult> planVertexAsync(String requester,
+                                                              Resource currentResource,
+                                                              Resource proposedResource,
+                                                              ResourceSnapshot snapshot,
+                                                              Map<String, Resource> deltaGraph) {
+    VertexPlanResult result = new VertexPlanResult(currentResource, proposedResource);
+    if (currentResource == null) {
+      return planChangeAsync(requester, result, null, deltaGraph);
+    }
+    if (!hasSameType(result)) {
+      return CompletableFuture.completedFuture(result);
+    }
+    return getCurrentStateAsync(currentResource, snapshot).handle((currentState, e) -> {
+      if (e != null) {
+        result.fatalError = new PlanException(HttpUtils.unwrap(e));
+        return CompletableFuture.completedFuture(result);
+      }
+      return planChangeAsync(requester, result, currentState, deltaGraph);
+    }).thenCompose(future -> future);
+  }
+
+  private CompletableFuture<VertexPlanResult> planChangeAsync(String requester,
+                                                              VertexPlanResult result,
+                                                              JsonObject currentState,
+                                                              Map<String, Resource> deltaGraph) {
+    ResourceDefinition def;
+    try {
+      // lookup the class of the proposed resource
+      def = resourceFactory.getResourceDefinition(result.proposedResource);
+    } catch (Exception e) {
+      result.planError = e;
+      return CompletableFuture.completedFuture(result);
+    }
+    ResourceChange change = new ResourceChange(requester, result.currentResource, currentState,
+        result.proposedResource, deltaGraph);
+    result.copyBeforePlanning();
+    return planningExecutor.callAsyncWithPermit(def, () -> def.planChangeAsync(change))
+        .handle((plan, e) -> {
+          if (e != null) {
+            Throwable cause = HttpUtils.unwrap(e);
+            result.planError = cause instanceof Exception ? (Exception) cause
+                : new PlanException(cause);
+            return result;
+          }
+          result.plan = plan;
+          validateTasks(result);
+          return result;
+        });
+  }
+
+  /**
+   * Changing the type of an existing resource isn't allowed.
+   * 
+   * @param result
+   * @return false if the type changed, the result then carries the error
+   */
+  private static boolean hasSameType(VertexPlanResult result) {
+    if (result.currentResource.getResourceDefinitionClass()
+        .equalsIgnoreCase(result.proposedResource.getResourceDefinitionClass())) {
+      return true;
+    }
+    result.fatalError = new Exception("Invalid change: Existing resource type"
+        + result.currentResource.getResourceDefinitionClass() + " and proposed resource type("
+        + result.proposedResource.getResourceDefinitionClass()
+        + ") must be the same. Changing the type of an existing resource is now allowed at the moment.");
+    return false;
+  }
+
+  private static void validateTasks(VertexPlanResult result) {
+    try {
+      if (result.plan.getProcess() != null) {
+        result.plan.getProcess().validateTasks();
+      }
+    } catch (Exception e) {
+      result.taskValidationError = e;
+    }
+  }
+
+  private CompletableFuture<JsonObject> getCurrentStateAsync(Resource currentResource,
+                                                             ResourceSnapshot snapshot) {
+    ResourceDefinition def;
+    try {
+      def = resourceFactory.getResourceDefinition(currentResource);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    Supplier<CompletableFuture<JsonObject>> loader = () -> planningExecutor
+        .callAsyncWithPermit(def, () -> def.readExternalCurrentStateAsync(currentResource));
+    return snapshot.getCurrentStateAsync(currentResource,
+        currentStateCache != null ? () -> currentStateCache.getAsync(currentResource, loader)
+            : loader);
+  }
+
+  private JsonObject getCurrentState(Resource currentResource,
+                                     ResourceSnapshot snapshot) throws PlanException {
     ResourceDefinition def = resourceFactory.getResourceDefinition(currentResource);
+    Callable<JsonObject> loader = () -> def.readExternalCurrentState(currentResource);
     try {
-      JsonObject currentState = def.readExternalCurrentState(currentResource);
+      JsonObject currentState = snapshot.getCurrentState(currentResource,
+          currentStateCache != null ? () -> currentStateCache.get(currentResource, loader)
+              : loader);
       return currentState;
     } catch (Exception e) {
       throw new PlanException(e);
@@ -370,10 +849,76 @@ public class GraphEngine {
 
   public ExecutionGraph executeGraphUpate(String requester,
                                           Map<String, Resource> deltaGraph) throws Exception {
+    return executeGraphUpate(requester, deltaGraph, null);
+  }
+
+  /**
+   * Execute the delta graph, reusing the plan cached for the planHandle if none
+   * of the involved resources have changed since it was planned.
+   * 
+   * @param requester
+   * @param deltaGraph
+   * @param planHandle optional, returned from planning the same delta graph
+   * @return
+   * @throws Exception
+   */
+  public ExecutionGraph executeGraphUpate(String requester,
+                                          Map<String, Resource> deltaGraph,
+                                          String planHandle) throws Exception {
+    return executeGraphUpate(requester, deltaGraph, planHandle, null);
+  }
+
+  /**
+   * Same as {@link #executeGraphUpate(String, Map, String)} with a requested
+   * scheduling priority, the request can only lower the priority derived from
+   * the size of the plan.
+   * 
+   * @param requester
+   * @param deltaGraph
+   * @param planHandle optional, returned from planning the same delta graph
+   * @param priority   optional, derived from the size of the plan if not set
+   * @return
+   * @throws Exception
+   */
+  public ExecutionGraph executeGraphUpate(String requester,
+                                          Map<String, Resource> deltaGraph,
+                                          String planHandle,
+                                          ExecutionPriority priority) throws Exception {
+    return executeGraphUpate(requester, deltaGraph, planHandle, priority, false);
+  }
+
+  /**
+   * @param requester
+   * @param deltaGraph
+   * @param planHandle       optional, returned from planning the same delta
+   *                         graph
+   * @param priority         optional, derived from the size of the plan if not
+   *                         set
+   * @param overridePriority if the requested priority may also be higher than
+   *                         the derived one, e.g. for admins
+   * @return
+   * @throws Exception
+   */
+  public ExecutionGraph executeGraphUpate(String requester,
+                                          Map<String, Resource> deltaGraph,
+                                          String planHandle,
+                                          ExecutionPriority priority,
+                                          boolean overridePriority) throws Exception {
     if (requester == null || requester.isEmpty()) {
       throw new PlanException("Invalid requester");
     }
-    Map<String, PlanVertex> planGraphUpdate = planGraphUpdate(requester, deltaGraph);
+    Map<String, PlanVertex> planGraphUpdate;
+    SortedMap<String, EdgeMutation> allEdgeMutations;
+    CachedPlan cachedPlan = getReusablePlan(requester, deltaGraph, planHandle);
+    if (cachedPlan != null) {
+      planGraphUpdate = cachedPlan.getPlanGraph();
+      allEdgeMutations = cachedPlan.getEdgeMutations();
+    } else {
+      planGraphUpdate = planGraphUpdate(requester, deltaGraph);
+      // extract all edge mutations so edges are not created in desired state unless
+      // the respective plan operations succeed
+      allEdgeMutations = generateAllEdgeMutations(planGraphUpdate);
+    }
     List<String> ids = planGraphUpdate.values().stream().map(p -> p.getProposedResource().getId())
         .collect(Collectors.toList());
     // lock all resources, if resources don't exist it will skip locking those
@@ -384,10 +929,12 @@ public class GraphEngine {
       ExecutionGraph executionGraph = new ExecutionGraph();
       executionGraph.setExecutionId(requester + "_" + System.currentTimeMillis());
       executionGraph.setRequester(requester);
+      ExecutionPriority derivedPriority = priorityOf(planGraphUpdate);
+      executionGraph.setPriority(
+          priority != null && (overridePriority || priority.isLowerThan(derivedPriority))
+              ? priority
+              : derivedPriority);
       executionGraph.setExecutionPlan(planGraphUpdate);
-      // extract all edge mutations so edges are not created in desired state unless
-      // the respective plan operations succeed
-      SortedMap<String, EdgeMutation> allEdgeMutations = generateAllEdgeMutations(planGraphUpdate);
       executionGraph.setAllEdgeMutations(allEdgeMutations);
       logger.info("Edge mutations:" + allEdgeMutations);
       // if (true) {
@@ -422,7 +969,14 @@ public class GraphEngine {
     }
   }
 
-  private SortedMap<String, EdgeMutation> generateAllEdgeMutations(Map<String, PlanVertex> planGraphUpdate) {
+  private ExecutionPriority priorityOf(Map<String, PlanVertex> planGraph) {
+    if (batchPriorityMinVertices > 0 && planGraph.size() >= batchPriorityMinVertices) {
+      return ExecutionPriority.BATCH;
+    }
+    return ExecutionPriority.INTERACTIVE;
+  }
+
+  SortedMap<String, EdgeMutation> generateAllEdgeMutations(Map<String, PlanVertex> planGraphUpdate) {
     SortedMap<String, EdgeMutation> mutationMap = new TreeMap<>();
     for (Entry<String, PlanVertex> entry : planGraphUpdate.entrySet()) {
       Resource currentResource = entry.getValue().getCurrentResource();
@@ -540,7 +1094,9 @@ public class GraphEngine {
                                             Map<String, Resource> deltaGraph,
                                             Map<String, Set<String>> dependencies,
                                             boolean isInput,
-                                            Map<String, Resource> existingResourcesMap) throws PlanException {
+                                            Map<String, Resource> existingResourcesMap,
+                                            ResourceSnapshot snapshot,
+                                            EdgeSet edgeSet) throws PlanException {
     if (dependencies == null) {
       return;
     }
@@ -550,46 +1106,39 @@ public class GraphEngine {
       }
       for (String id : ids) {
         if (!deltaGraph.containsKey(id)) {
-          boolean anyMatch = false;
-          try {
-            Resource r = resourceDB.getResourceById(id);
-            if (r == null) {
-              throw new PlanException(
-                  "Error finding Resource:" + id + ", please check your input/outputs");
-            }
-
-            if (isInput && !anyMatch) {
-              // then scan for the output of these dependent resources to confirm whether or
-              // not the cross dependency has been added
-              anyMatch = r.getOutputResources().values().stream().flatMap(v -> v.stream())
-                  .anyMatch(v -> {
-                    return v.equals(rid);
-                  });
-            } else if (!isInput && !anyMatch) {
-              anyMatch = r.getInputResources().values().stream().flatMap(v -> v.stream())
-                  .anyMatch(v -> {
-                    return v.equals(rid);
-                  });
-            }
-
-            deltaGraph.put(id, r);
-            existingResourcesMap.put(id, r);
-          } catch (IOException e) {
-            throw new PlanException("Error finding Resource:" + id
-                + ", this resource must exist either in deltagraph or in resourcedb");
+          Resource r = getResource(snapshot, id);
+          if (r == null) {
+            throw new PlanException(
+                "Error finding Resource:" + id + ", please check your input/outputs");
           }
-          if (!anyMatch) {
+          edgeSet.add(r);
+          // confirm the existing resource has the cross dependency to this resource
+          boolean mutual = isInput ? edgeSet.hasOutput(id, rid) : edgeSet.hasInput(id, rid);
+          if (!mutual) {
             throw new PlanException("Resource(" + id + ") is missing edge from " + rid);
           }
+          deltaGraph.put(id, r);
+          existingResourcesMap.put(id, r);
         }
       }
     }
   }
 
+  private Resource getResource(ResourceSnapshot snapshot, String id) throws PlanException {
+    try {
+      return snapshot.get(id);
+    } catch (IOException e) {
+      throw new PlanException("Error finding Resource:" + id
+          + ", this resource must exist either in deltagraph or in resourcedb", e);
+    }
+  }
+
   private void resolveParentChildAndAddToGraph(Resource proposed,
                                                Resource current,
                                                Map<String, Resource> deltaGraph,
-                                               Map<String, Resource> existingResourcesMap) throws PlanException {
+                                               Map<String, Resource> existingResourcesMap,
+                                               ResourceSnapshot snapshot,
+                                               EdgeSet edgeSet) throws PlanException {
     Set<String> set = new HashSet<String>();
     if (proposed.getChildResources() != null) {
       set.addAll(proposed.getChildResources());
@@ -599,23 +1148,21 @@ public class GraphEngine {
     }
     for (String id : set) {
       if (!deltaGraph.containsKey(id)) {
-        try {
-          Resource r = resourceDB.getResourceById(id);
-          if (r == null) {
-            throw new IOException();
-          }
-          deltaGraph.put(id, r);
-          existingResourcesMap.put(id, r);
-        } catch (IOException e) {
+        Resource r = getResource(snapshot, id);
+        if (r == null) {
           throw new PlanException("Error finding Resource:" + id
               + ", this resource must exist either in deltagraph or in resourcedb");
         }
+        edgeSet.add(r);
+        deltaGraph.put(id, r);
+        existingResourcesMap.put(id, r);
       }
     }
   }
 
   private void validateResourceInputsAndOutputs(Resource proposedResource,
-                                                Map<String, Resource> deltaSubGraph) throws PlanException {
+                                                Map<String, Resource> deltaSubGraph,
+                                                EdgeSet edgeSet) throws PlanException {
     ResourceDefinition def = resourceFactory.getResourceDefinition(proposedResource);
     Map<String, Set<String>> inputResources = proposedResource.getInputResources();
     Map<String, Set<String>> outputResources = proposedResource.getOutputResources();
@@ -655,7 +1202,8 @@ public class GraphEngine {
       throw new PlanException("Missing child connection for " + proposedResource.getId()
           + ", needed:" + def.getRequiredChildEdgeTypes());
     }
-    validateChildEdgeType(proposedResource, deltaSubGraph, def.getRequiredChildEdgeTypes());
+    validateChildEdgeType(proposedResource, deltaSubGraph, def.getRequiredChildEdgeTypes(),
+        edgeSet);
     validateParentEdgeType(proposedResource, deltaSubGraph, def.getRequiredParentEdgeTypes());
   }
 
@@ -677,7 +1225,8 @@ public class GraphEngine {
 
   private void validateChildEdgeType(Resource proposedResource,
                                      Map<String, Resource> resolvedSubGraph,
-                                     Set<EdgeDefinition> set) throws PlanException {
+                                     Set<EdgeDefinition> set,
+                                     EdgeSet edgeSet) throws PlanException {
     Set<String> childResources = proposedResource.getChildResources();
     if (childResources == null || childResources.isEmpty()) {
       return;
@@ -696,7 +1245,7 @@ public class GraphEngine {
         throw new PlanException("Incomplete edge parent(" + proposedResource.getId() + ") to child("
             + r + "), please add edge both sides");
       }
-      if (!proposedResource.getId().equals(c.getParentResource())) {
+      if (!edgeSet.hasParent(r, proposedResource.getId())) {
         throw new PlanException("Incomplete edge child(" + r + ") to parent("
             + proposedResource.getId() + "), please add edge both sides");
       }
@@ -773,4 +1322,64 @@ public class GraphEngine {
     return graphExecutor;
   }
 
+  /**
+   * Outcome of planning a single vertex, errors are captured so that they can
+   * be surfaced in the same order as sequential planning would.
+   */
+  private static class VertexPlanResult {
+
+    private Resource currentResource;
+    private Resource proposedResource;
+    private Plan plan;
+    private Exception fatalError;
+    private Exception planError;
+    private Exception taskValidationError;
+    private JsonObject desiredStateBeforePlanning;
+    private Map<String, Set<String>> inputsBeforePlanning;
+    private Map<String, Set<String>> outputsBeforePlanning;
+    private Set<String> childrenBeforePlanning;
+    private String parentBeforePlanning;
+
+    private VertexPlanResult(Resource currentResource, Resource proposedResource) {
+      this.currentResource = currentResource;
+      this.proposedResource = proposedResource;
+    }
+
+    private void copyBeforePlanning() {
+      JsonObject desiredState = proposedResource.getDesiredState();
+      desiredStateBeforePlanning = desiredState != null ? desiredState.deepCopy() : null;
+      inputsBeforePlanning = copyEdges(proposedResource.getInputResources());
+      outputsBeforePlanning = copyEdges(proposedResource.getOutputResources());
+      childrenBeforePlanning = proposedResource.getChildResources() != null
+          ? new HashSet<>(proposedResource.getChildResources())
+          : null;
+      parentBeforePlanning = proposedResource.getParentResource();
+    }
+
+    /**
+     * @param desiredState planned desired state
+     * @return true if planning changed the desired state or the edges of the
+     *         proposed resource
+     */
+    private boolean isChangedBy(JsonObject desiredState) {
+      return !Objects.equals(desiredStateBeforePlanning, desiredState)
+          || !Objects.equals(inputsBeforePlanning, proposedResource.getInputResources())
+          || !Objects.equals(outputsBeforePlanning, proposedResource.getOutputResources())
+          || !Objects.equals(childrenBeforePlanning, proposedResource.getChildResources())
+          || !Objects.equals(parentBeforePlanning, proposedResource.getParentResource());
+    }
+
+    private static Map<String, Set<String>> copyEdges(Map<String, Set<String>> edges) {
+      if (edges == null) {
+        return null;
+      }
+      Map<String, Set<String>> copy = new HashMap<>();
+      for (Entry<String, Set<String>> entry : edges.entrySet()) {
+        copy.put(entry.getKey(), entry.getValue() != null ? new HashSet<>(entry.getValue()) : null);
+      }
+      return copy;
+    }
+
+  }
+
 }
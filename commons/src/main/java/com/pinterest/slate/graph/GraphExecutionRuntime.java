@@ -16,39 +16,379 @@
 package com.pinterest.slate.graph;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.google.gson.Gson;
 import com.pinterest.slate.process.CoreTaskRuntime;
 import com.pinterest.slate.process.Status;
+import com.pinterest.slate.process.StatusUpdate;
 import com.pinterest.slate.process.TaskRuntime;
 
 import io.dropwizard.hibernate.UnitOfWork;
 
+/**
+ * Storage facing runtime of the {@link GraphExecutor}.
+ * 
+ * When a flush interval is set graphs being executed stay resident and are
+ * written behind: a graph is only written when its execution state changed and
+ * the previous write is older than the flush interval, or when it reaches a
+ * terminal status. Changes are tracked with the state version of the graph and
+ * graphs that changed but weren't touched again are written by
+ * {@link #flush(String)}, which the executor calls periodically. Graphs that
+ * weren't written before a crash are resumed from their last written state by
+ * {@link #loadQueueIfSupported()}.
+ * 
+ * When a lease duration is set a graph is only executed by the node holding
+ * the lease on it. Leases are taken with {@link #acquireLease(String)}, must be
+ * renewed with {@link #renewLeases()} well within the lease duration and can be
+ * taken over by any node once they expire. Every lease carries a fencing token
+ * that graph updates are conditional on, so a node that lost its lease can't
+ * overwrite the state written by the new owner.
+ */
 public class GraphExecutionRuntime {
 
+  private static final Gson GSON = new Gson();
   private AbstractResourceDB resourceDB;
   private AbstractExecutionDAO executionGraphDAO;
   private AbstractGraphExecutionQueue executionQueue;
   private TaskRuntime taskRuntime = new CoreTaskRuntime();
   private AbstractGraphAuditSink auditSink;
+  private CurrentStateCache currentStateCache;
+  private long flushIntervalMs = 0;
+  private Map<String, CachedGraph> activeGraphs = new ConcurrentHashMap<>();
+  private long leaseDurationMs = 0;
+  private String leaseOwner = leaseOwnerId();
+  private Map<String, Long> leases = new ConcurrentHashMap<>();
 
   public GraphExecutionRuntime(AbstractExecutionDAO executionGraphDAO) {
     this.executionGraphDAO = executionGraphDAO;
   }
 
-  @UnitOfWork
   public void loadQueueIfSupported() throws IOException {
-    List<String> graphs = executionGraphDAO.listAllIncompleteExecutionGraphIds();
+    loadQueueIfSupported(Collections.emptySet());
+  }
+
+  /**
+   * Queue all incomplete graphs except the deferred ones, which the caller
+   * schedules itself. Deferred graphs that are no longer incomplete are removed
+   * from the set.
+   * 
+   * @param deferred
+   * @throws IOException
+   */
+  @UnitOfWork
+  public void loadQueueIfSupported(Set<String> deferred) throws IOException {
+    List<String> graphs = new ArrayList<>(executionGraphDAO.listAllIncompleteExecutionGraphIds());
+    deferred.retainAll(graphs);
+    graphs.removeAll(deferred);
     executionQueue.bootstrap(graphs);
   }
 
   @UnitOfWork
   public void update(ExecutionGraph executionGraph) throws IOException {
-    executionGraphDAO.save(executionGraph);
+    try {
+      write(executionGraph);
+    } catch (LeaseLostException e) {
+      leases.remove(executionGraph.getExecutionId());
+      activeGraphs.remove(executionGraph.getExecutionId());
+      throw e;
+    }
+  }
+
+  private void write(ExecutionGraph executionGraph) throws IOException {
+    if (flushIntervalMs <= 0) {
+      executionGraphDAO.save(executionGraph);
+      return;
+    }
+    String executionId = executionGraph.getExecutionId();
+    if (Status.isComplete(executionGraph.getStatus())) {
+      activeGraphs.remove(executionId);
+      executionGraphDAO.save(executionGraph);
+      return;
+    }
+    CachedGraph cached = activeGraphs.get(executionId);
+    if (cached == null || cached.graph != executionGraph) {
+      // first write of this graph
+      cached = new CachedGraph(executionGraph);
+      activeGraphs.put(executionId, cached);
+      flush(cached);
+      return;
+    }
+    if (isFlushDue(cached)) {
+      flush(cached);
+    }
+  }
+
+  private boolean isFlushDue(CachedGraph cached) {
+    return cached.isDirty() && System.currentTimeMillis() - cached.lastFlushMs >= flushIntervalMs;
+  }
+
+  /**
+   * Write a resident graph if it changed and wasn't written for the flush
+   * interval, must only be called while the graph isn't being advanced.
+   * 
+   * @param executionId
+   * @throws IOException
+   */
+  @UnitOfWork
+  public void flush(String executionId) throws IOException {
+    CachedGraph cached = activeGraphs.get(executionId);
+    if (cached == null || !isFlushDue(cached)) {
+      return;
+    }
+    try {
+      flush(cached);
+    } catch (LeaseLostException e) {
+      leases.remove(executionId);
+      activeGraphs.remove(executionId);
+      throw e;
+    }
+  }
+
+  /**
+   * @return ids of the graphs kept resident for write behind
+   */
+  public Set<String> getResidentGraphs() {
+    return new HashSet<>(activeGraphs.keySet());
+  }
+
+  /**
+   * Write all resident graphs that have changed since they were last written,
+   * must only be called once the graphs are no longer being advanced.
+   * 
+   * @throws IOException
+   */
+  @UnitOfWork
+  public void flushAll() throws IOException {
+    for (Entry<String, CachedGraph> entry : activeGraphs.entrySet()) {
+      CachedGraph cached = entry.getValue();
+      if (cached.isDirty()) {
+        flush(cached);
+      }
+    }
+  }
+
+  private void flush(CachedGraph cached) throws IOException {
+    long version = cached.graph.getStateVersion();
+    executionGraphDAO.save(cached.graph);
+    cached.flushedVersion = version;
+    cached.lastFlushMs = System.currentTimeMillis();
+  }
+
+  public boolean supportsPushedStatusUpdates() {
+    return executionGraphDAO.supportsPushedStatusUpdates();
+  }
+
+  /**
+   * Store a status update pushed by a task until the node executing its graph
+   * takes it, the update is stored so it isn't lost if the graph is executed by
+   * another node.
+   * 
+   * @param executionId
+   * @param processId
+   * @param taskId
+   * @param update
+   * @throws IOException
+   */
+  @UnitOfWork
+  public void pushStatusUpdate(String executionId,
+                               String processId,
+                               String taskId,
+                               StatusUpdate update) throws IOException {
+    executionGraphDAO.savePushedStatusUpdate(executionId, processId, taskId, GSON.toJson(update));
+  }
+
+  /**
+   * @param executionId
+   * @return status updates pushed by tasks of the graph by process id and task
+   *         id, the updates are removed from storage
+   * @throws IOException
+   */
+  @UnitOfWork
+  public Map<String, Map<String, StatusUpdate>> takePushedStatusUpdates(
+      String executionId) throws IOException {
+    Map<String, Map<String, StatusUpdate>> updates = new HashMap<>();
+    if (!executionGraphDAO.supportsPushedStatusUpdates()) {
+      return updates;
+    }
+    for (Entry<String, Map<String, String>> process : executionGraphDAO
+        .takePushedStatusUpdates(executionId).entrySet()) {
+      Map<String, StatusUpdate> tasks = new HashMap<>();
+      for (Entry<String, String> task : process.getValue().entrySet()) {
+        tasks.put(task.getKey(), GSON.fromJson(task.getValue(), StatusUpdate.class));
+      }
+      updates.put(process.getKey(), tasks);
+    }
+    return updates;
+  }
+
+  /**
+   * Get a graph for execution, resident graphs are returned without reading the
+   * state store.
+   * 
+   * @param executionId
+   * @return execution graph or null if it doesn't exist
+   * @throws IOException
+   */
+  @UnitOfWork
+  public ExecutionGraph getForExecution(String executionId) throws IOException {
+    CachedGraph cached = activeGraphs.get(executionId);
+    if (cached != null) {
+      return cached.graph;
+    }
+    ExecutionGraph executionGraph = executionGraphDAO.get(executionId);
+    if (executionGraph != null && leaseDurationMs > 0) {
+      executionGraph.setFencingToken(leases.getOrDefault(executionId, 0L));
+    }
+    if (flushIntervalMs > 0 && executionGraph != null
+        && !Status.isComplete(executionGraph.getStatus())) {
+      cached = new CachedGraph(executionGraph);
+      cached.flushedVersion = executionGraph.getStateVersion();
+      cached.lastFlushMs = System.currentTimeMillis();
+      activeGraphs.put(executionId, cached);
+    }
+    return executionGraph;
+  }
+
+  /**
+   * Take the lease on a graph before executing it, a graph leased by this node
+   * keeps its lease.
+   * 
+   * @param executionId
+   * @return true if this node may execute the graph
+   * @throws IOException
+   */
+  @UnitOfWork
+  public boolean acquireLease(String executionId) throws IOException {
+    if (leaseDurationMs <= 0 || leases.containsKey(executionId)) {
+      return true;
+    }
+    long fencingToken = executionGraphDAO.acquireLease(executionId, leaseOwner, leaseDurationMs);
+    if (fencingToken < 0) {
+      return false;
+    }
+    // the graph may have been advanced by the previous owner since it was cached
+    activeGraphs.remove(executionId);
+    leases.put(executionId, fencingToken);
+    return true;
+  }
+
+  /**
+   * Renew all leases held by this node.
+   * 
+   * @return ids of the graphs whose lease was lost
+   * @throws IOException
+   */
+  @UnitOfWork
+  public List<String> renewLeases() throws IOException {
+    List<String> lost = new ArrayList<>();
+    for (Entry<String, Long> entry : leases.entrySet()) {
+      String executionId = entry.getKey();
+      if (!executionGraphDAO.renewLease(executionId, leaseOwner, entry.getValue(),
+          leaseDurationMs)) {
+        leases.remove(executionId);
+        activeGraphs.remove(executionId);
+        lost.add(executionId);
+      }
+    }
+    return lost;
+  }
+
+  @UnitOfWork
+  public void releaseLease(String executionId) throws IOException {
+    Long fencingToken = leases.remove(executionId);
+    if (fencingToken != null) {
+      executionGraphDAO.releaseLease(executionId, leaseOwner, fencingToken);
+    }
+  }
+
+  /**
+   * Release all leases held by this node so other nodes can take over its
+   * graphs right away.
+   * 
+   * @throws IOException
+   */
+  @UnitOfWork
+  public void releaseLeases() throws IOException {
+    for (Entry<String, Long> entry : leases.entrySet()) {
+      executionGraphDAO.releaseLease(entry.getKey(), leaseOwner, entry.getValue());
+    }
+    leases.clear();
+  }
+
+  /**
+   * @return ids of incomplete graphs whose owner stopped renewing the lease
+   * @throws IOException
+   */
+  @UnitOfWork
+  public List<String> listExpiredLeases() throws IOException {
+    return executionGraphDAO.listExpiredLeases();
+  }
+
+  public boolean holdsLease(String executionId) {
+    return leases.containsKey(executionId);
+  }
+
+  public long getLeaseDurationMs() {
+    return leaseDurationMs;
+  }
+
+  /**
+   * @param leaseDurationMs how long a graph stays owned by a node that stopped
+   *                        renewing its lease, 0 disables leases
+   */
+  public void setLeaseDurationMs(long leaseDurationMs) {
+    if (leaseDurationMs > 0 && !executionGraphDAO.supportsLeases()) {
+      throw new IllegalArgumentException("Graph leases are configured but the execution DAO "
+          + executionGraphDAO.getClass().getSimpleName() + " doesn't support them");
+    }
+    this.leaseDurationMs = leaseDurationMs;
+    executionGraphDAO.setLeasesEnabled(leaseDurationMs > 0);
+  }
+
+  public String getLeaseOwner() {
+    return leaseOwner;
+  }
+
+  public void setLeaseOwner(String leaseOwner) {
+    this.leaseOwner = leaseOwner;
+  }
+
+  private static String leaseOwnerId() {
+    String host;
+    try {
+      host = InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      host = "unknown";
+    }
+    return host + "-" + UUID.randomUUID();
+  }
+
+  public long getFlushIntervalMs() {
+    return flushIntervalMs;
   }
-  
-  protected void setTaskRuntime(TaskRuntime taskRuntime) {
+
+  /**
+   * @param flushIntervalMs minimum time between writes of a changed graph that
+   *                        is being executed, 0 writes every update through
+   */
+  public void setFlushIntervalMs(long flushIntervalMs) {
+    this.flushIntervalMs = flushIntervalMs;
+  }
+
+  public void setTaskRuntime(TaskRuntime taskRuntime) {
     this.taskRuntime = taskRuntime;
   }
 
@@ -60,6 +400,18 @@ public class GraphExecutionRuntime {
     this.auditSink = auditSink;
   }
 
+  public CurrentStateCache getCurrentStateCache() {
+    return currentStateCache;
+  }
+
+  /**
+   * @param currentStateCache planning cache whose entries are invalidated when a
+   *                          process changing the resource ends
+   */
+  public void setCurrentStateCache(CurrentStateCache currentStateCache) {
+    this.currentStateCache = currentStateCache;
+  }
+
   public AbstractResourceDB getResourceDB() {
     return resourceDB;
   }
@@ -102,4 +454,21 @@ public class GraphExecutionRuntime {
                                                        int page) throws IOException {
     return executionGraphDAO.listAllExecutionsGraphsBetween(from, to, status, page);
   }
+
+  private static final class CachedGraph {
+
+    private final ExecutionGraph graph;
+    private volatile long flushedVersion = -1;
+    private volatile long lastFlushMs;
+
+    private CachedGraph(ExecutionGraph graph) {
+      this.graph = graph;
+    }
+
+    private boolean isDirty() {
+      return graph.getStateVersion() != flushedVersion;
+    }
+
+  }
+
 }
@@ -15,52 +15,265 @@
  */
 package com.pinterest.slate.graph;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.pinterest.slate.process.LifecycleProcess;
 import com.pinterest.slate.process.Status;
+import com.pinterest.slate.process.Task;
 import com.pinterest.slate.process.taskdefinitions.SlackTask;
+import com.pinterest.slate.utils.DaemonThreadFactory;
 
 import io.dropwizard.hibernate.UnitOfWork;
 
+/**
+ * Advances execution graphs taken from the execution queue.
+ * 
+ * With a single worker graphs are advanced one step at a time by the calling
+ * thread with fixed sleeps in between. With multiple workers the calling thread
+ * only dispatches graphs to a pool of workers, each graph is owned by at most
+ * one worker at a time. A graph that made progress is re-queued immediately, a
+ * graph that is waiting on running tasks is parked until its earliest task is
+ * due for a status check or until {@link #wakeUp(String)} is called for it.
+ * 
+ * When the runtime has leases enabled records of graphs leased by another node
+ * are parked until the lease could have expired, leases are renewed in the
+ * background and graphs whose owner stopped renewing its lease are queued to
+ * be taken over.
+ * 
+ * {@link #drain(long, File)} stops the executor between ticks and records the
+ * parked graphs in a {@link ResumeManifest} that the next executor resumes
+ * from, graphs that aren't due yet are parked again instead of being loaded
+ * at startup. Queued graphs are left in the queue, records that weren't handed
+ * out aren't acknowledged so a shared queue delivers them again.
+ */
 public class GraphExecutor implements Runnable {
 
   public static final String BASE_URL = System.getenv("CORE_URL") == null ? "http://localhost:8090"
       : System.getenv("CORE_URL");
+  private static final long IDLE_WAIT_MS = 2000;
   private static Logger logger = Logger.getLogger(GraphExecutor.class.getCanonicalName());
   private GraphExecutionRuntime runtime;
-  private boolean enableExecution = true;
+  private volatile boolean enableExecution = true;
+  private int workers;
+  private long pollIntervalMs;
+  private ExecutorService workerPool;
+  private ScheduledExecutorService parkingTimer;
+  private ScheduledExecutorService leaseTimer;
+  private ScheduledExecutorService flushTimer;
+  private Semaphore idleWorkers;
+  private Semaphore arrivals = new Semaphore(0);
+  private Set<String> ownedGraphs = ConcurrentHashMap.newKeySet();
+  private Set<String> pendingWakeUps = ConcurrentHashMap.newKeySet();
+  private Map<String, ScheduledFuture<?>> parkedGraphs = new ConcurrentHashMap<>();
+  private Map<String, Long> parkedUntil = new ConcurrentHashMap<>();
+  // guards handing a graph between owned and parked so wake-ups aren't lost
+  private final Object parkingLock = new Object();
+  // held while a graph is taken from the queue and handed off or advanced
+  private ReentrantLock tickLock = new ReentrantLock();
+  private AtomicBoolean drained = new AtomicBoolean();
+  private AtomicLong firstTickMs = new AtomicLong();
 
   public GraphExecutor(GraphExecutionRuntime runtime) throws IOException {
+    this(runtime, 1, 1000);
+  }
+
+  /**
+   * @param runtime
+   * @param workers        number of graphs advanced concurrently, 1 keeps the
+   *                       single threaded executor
+   * @param pollIntervalMs how long a graph without progress is parked before
+   *                       its tasks are polled again
+   * @throws IOException
+   */
+  public GraphExecutor(GraphExecutionRuntime runtime,
+                       int workers,
+                       long pollIntervalMs) throws IOException {
+    this(runtime, workers, pollIntervalMs, null);
+  }
+
+  /**
+   * @param runtime
+   * @param workers        number of graphs advanced concurrently, 1 keeps the
+   *                       single threaded executor
+   * @param pollIntervalMs how long a graph without progress is parked before
+   *                       its tasks are polled again
+   * @param resumeManifest optional manifest written by the previous drain
+   * @throws IOException
+   */
+  public GraphExecutor(GraphExecutionRuntime runtime,
+                       int workers,
+                       long pollIntervalMs,
+                       File resumeManifest) throws IOException {
     this.runtime = runtime;
+    this.workers = workers;
+    this.pollIntervalMs = pollIntervalMs;
     String getenv = System.getenv("ENABLE_EXECUTION");
     if (getenv != null) {
       enableExecution = Boolean.parseBoolean(getenv);
       logger.info("Graph execution enabled is :" + enableExecution);
     }
-    runtime.loadQueueIfSupported();
+    parkingTimer = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+    if (workers > 1) {
+      workerPool = Executors.newFixedThreadPool(workers, DaemonThreadFactory.INSTANCE);
+      idleWorkers = new Semaphore(workers);
+      logger.info("Graph executor started with workers:" + workers);
+    }
+    resume(resumeManifest);
+    long flushIntervalMs = runtime.getFlushIntervalMs();
+    if (flushIntervalMs > 0) {
+      // graphs that changed but aren't advanced again, e.g. parked ones, are
+      // written by the timer
+      flushTimer = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+      flushTimer.scheduleWithFixedDelay(this::flushIdleGraphs, flushIntervalMs, flushIntervalMs,
+          TimeUnit.MILLISECONDS);
+    }
+    long leaseDurationMs = runtime.getLeaseDurationMs();
+    if (leaseDurationMs > 0) {
+      leaseTimer = Executors.newSingleThreadScheduledExecutor(DaemonThreadFactory.INSTANCE);
+      leaseTimer.scheduleWithFixedDelay(this::maintainLeases, leaseDurationMs / 3,
+          leaseDurationMs / 3, TimeUnit.MILLISECONDS);
+      logger.info("Graph leases enabled for owner:" + runtime.getLeaseOwner()
+          + " with lease duration:" + leaseDurationMs + "ms");
+    }
+  }
+
+  private void resume(File resumeManifest) throws IOException {
+    ResumeManifest manifest = resumeManifest != null ? ResumeManifest.consume(resumeManifest)
+        : null;
+    if (manifest == null) {
+      runtime.loadQueueIfSupported();
+      return;
+    }
+    long now = System.currentTimeMillis();
+    Set<String> resumed = new HashSet<>(manifest.getGraphs().keySet());
+    // incomplete graphs are still listed so graphs submitted or completed since
+    // the manifest was written are accounted for, graphs of the manifest are
+    // queued or parked here since bootstrapping is a no-op for queues that keep
+    // their records, e.g. Kafka, while the records of parked graphs have
+    // already been taken
+    runtime.loadQueueIfSupported(resumed);
+    int parked = 0;
+    for (String executionId : resumed) {
+      long dueMs = manifest.getGraphs().get(executionId);
+      if (dueMs > now) {
+        park(executionId, dueMs);
+        parked++;
+      } else {
+        enqueue(executionId);
+      }
+    }
+    logger.info("Resumed " + resumed.size() + " graphs from manifest written "
+        + (now - manifest.getWrittenAtMs()) + "ms ago, parked:" + parked);
+  }
+
+  /**
+   * Renew the leases of this node and queue graphs whose lease has expired so
+   * they can be taken over.
+   */
+  private void maintainLeases() {
+    try {
+      for (String executionId : runtime.renewLeases()) {
+        logger.warning("Lost lease on graph:" + executionId);
+        cancelParking(executionId);
+      }
+      for (String executionId : runtime.listExpiredLeases()) {
+        if (!runtime.holdsLease(executionId) && !ownedGraphs.contains(executionId)) {
+          logger.info("Taking over graph:" + executionId + " with an expired lease");
+          enqueue(executionId);
+        }
+      }
+    } catch (Exception e) {
+      logger.log(Level.SEVERE, "Failed to maintain graph leases", e);
+    }
+  }
+
+  /**
+   * Write resident graphs that changed since they were last written and aren't
+   * being advanced.
+   */
+  private void flushIdleGraphs() {
+    if (workers > 1) {
+      for (String executionId : runtime.getResidentGraphs()) {
+        // holding the parking lock keeps the graph from being dispatched
+        synchronized (parkingLock) {
+          if (!ownedGraphs.contains(executionId)) {
+            flushIdleGraph(executionId);
+          }
+        }
+      }
+    } else if (tickLock.tryLock()) {
+      // between ticks of the single threaded executor
+      try {
+        for (String executionId : runtime.getResidentGraphs()) {
+          flushIdleGraph(executionId);
+        }
+      } finally {
+        tickLock.unlock();
+      }
+    }
+  }
+
+  private void flushIdleGraph(String executionId) {
+    try {
+      runtime.flush(executionId);
+    } catch (LeaseLostException e) {
+      logger.warning(e.getMessage());
+      cancelParking(executionId);
+    } catch (Exception e) {
+      logger.log(Level.SEVERE, "Failed to flush graph:" + executionId, e);
+    }
   }
 
   @UnitOfWork
   @Override
   public void run() {
     while (enableExecution) {
-      execute();
+      if (workers > 1) {
+        dispatch();
+      } else {
+        execute();
+      }
     }
   }
 
   @VisibleForTesting
   public void execute() {
+    tickLock.lock();
     try {
+      if (!enableExecution) {
+        return;
+      }
       String executionId = runtime.getExecutionQueue().take();
       if (executionId != null) {
-        ExecutionGraph executionGraph = runtime.get(executionId);
-        if (executionGraph == null) {
-          logger.severe("Graph:" + executionId + " is missing");
-          SlackTask.sendSlackMessage("Error: Graph execution id is missing",
-              "Error: Graph execution id is missing:" + executionId, "", "ambudsharma");
+        if (!runtime.acquireLease(executionId)) {
+          synchronized (parkingLock) {
+            parkLeased(executionId);
+          }
+          return;
+        }
+        ExecutionGraph executionGraph = load(executionId);
+        if (executionGraph == null || isStale(executionGraph)) {
           return;
         }
         try {
@@ -68,27 +281,17 @@ public class GraphExecutor implements Runnable {
         } catch (Exception e) {
           e.printStackTrace();
         }
+        recordFirstTick();
         if (!Status.isComplete(executionGraph.getStatus())) {
           runtime.getExecutionQueue().add(executionId);
         } else {
-          // unlock all resources
-          runtime.getExecutionQueue().delete(executionId);
-          runtime.getResourceDB().unlockResources(executionGraph.getExecutionPlan().keySet());
-          // set end time
-          executionGraph.setEndTime(new Date());
-          logger.info("Graph execution completed:" + executionGraph.getExecutionId()
-              + " with status:" + executionGraph.getStatus());
-          if (runtime.getAuditSink() != null) {
-            // send an audit event
-            runtime.getAuditSink().audit(executionGraph);
-          }
-          // notify requester that graph execution is now complete
-          SlackTask.sendSlackMessage(
-              "Task execution has completed with status:" + executionGraph.getStatus(), "",
-              BASE_URL + "/executions/" + executionId, executionGraph.getRequester());
+          finish(executionGraph);
         }
         // update state
         runtime.update(executionGraph);
+        if (Status.isComplete(executionGraph.getStatus())) {
+          runtime.releaseLease(executionId);
+        }
       } else {
         // add wait if the execution id was null indicating there is no data in the
         // queue
@@ -97,6 +300,8 @@ public class GraphExecutor implements Runnable {
     } catch (Exception e) {
       // TODO Auto-generated catch block
       e.printStackTrace();
+    } finally {
+      tickLock.unlock();
     }
     try {
       // sleep for 1s if there are no graphs to execute to reduce CPU usage
@@ -107,12 +312,349 @@ public class GraphExecutor implements Runnable {
     }
   }
 
+  /**
+   * Hand the next queued graph to a free worker, waits for a free worker first
+   * so graphs stay on the queue until they can be advanced.
+   */
+  private void dispatch() {
+    try {
+      idleWorkers.acquire();
+      tickLock.lock();
+      try {
+        String executionId = enableExecution ? runtime.getExecutionQueue().take() : null;
+        if (executionId != null) {
+          boolean owned;
+          synchronized (parkingLock) {
+            cancelParking(executionId);
+            owned = ownedGraphs.add(executionId);
+          }
+          if (owned) {
+            workerPool.submit(() -> advance(executionId));
+          } else {
+            // the owning worker will re-queue the graph once it's done with it
+            idleWorkers.release();
+          }
+          return;
+        }
+      } finally {
+        tickLock.unlock();
+      }
+      idleWorkers.release();
+      // wait for a queue arrival instead of a fixed sleep
+      if (arrivals.tryAcquire(IDLE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+        arrivals.drainPermits();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      logger.log(Level.SEVERE, "Failed to dispatch graph for execution", e);
+    }
+  }
+
+  private void advance(String executionId) {
+    boolean requeue = false;
+    boolean progressed = false;
+    long nextPollTimeMs = Long.MAX_VALUE;
+    try {
+      if (!runtime.acquireLease(executionId)) {
+        // parked below like a graph without progress
+        requeue = true;
+        nextPollTimeMs = System.currentTimeMillis() + runtime.getLeaseDurationMs();
+        return;
+      }
+      ExecutionGraph executionGraph = load(executionId);
+      if (executionGraph == null || isStale(executionGraph)) {
+        return;
+      }
+      requeue = true;
+      int completedTasks = countCompletedTasks(executionGraph);
+      try {
+        executionGraph.continueExecution(runtime);
+      } catch (Exception e) {
+        logger.log(Level.SEVERE, "Failed to continue execution of graph:" + executionId, e);
+      }
+      recordFirstTick();
+      if (Status.isComplete(executionGraph.getStatus())) {
+        requeue = false;
+        finish(executionGraph);
+      } else {
+        progressed = countCompletedTasks(executionGraph) != completedTasks;
+        nextPollTimeMs = executionGraph.nextPollTimeMs();
+      }
+      runtime.update(executionGraph);
+      if (!requeue) {
+        runtime.releaseLease(executionId);
+      }
+    } catch (LeaseLostException e) {
+      requeue = false;
+      logger.warning(e.getMessage());
+    } catch (Exception e) {
+      logger.log(Level.SEVERE, "Failed to advance graph:" + executionId, e);
+    } finally {
+      boolean enqueue = false;
+      synchronized (parkingLock) {
+        // a wake-up either sees the graph owned or parked, never neither
+        ownedGraphs.remove(executionId);
+        if (pendingWakeUps.remove(executionId)) {
+          progressed = true;
+        }
+        if (requeue) {
+          if (progressed) {
+            enqueue = true;
+          } else {
+            park(executionId, nextPollTimeMs);
+          }
+        }
+      }
+      idleWorkers.release();
+      if (enqueue) {
+        enqueue(executionId);
+      }
+    }
+  }
+
+  /**
+   * Re-queue a graph right away instead of waiting for the poll interval, e.g.
+   * when one of its tasks is known to have completed.
+   * 
+   * @param executionId
+   */
+  public void wakeUp(String executionId) {
+    synchronized (parkingLock) {
+      if (ownedGraphs.contains(executionId)) {
+        pendingWakeUps.add(executionId);
+        return;
+      }
+      ScheduledFuture<?> parked = parkedGraphs.remove(executionId);
+      if (parked == null) {
+        return;
+      }
+      parked.cancel(false);
+      parkedUntil.remove(executionId);
+    }
+    enqueue(executionId);
+  }
+
+  /**
+   * Park a graph until its earliest task is due for a status check, graphs are
+   * never parked for less than the poll interval.
+   * 
+   * @param executionId
+   * @param nextPollTimeMs
+   */
+  private void park(String executionId, long nextPollTimeMs) {
+    long delayMs = pollIntervalMs;
+    if (nextPollTimeMs != Long.MAX_VALUE) {
+      delayMs = Math.max(pollIntervalMs, nextPollTimeMs - System.currentTimeMillis());
+    }
+    parkedUntil.put(executionId, System.currentTimeMillis() + delayMs);
+    try {
+      parkedGraphs.put(executionId, parkingTimer.schedule(() -> {
+        if (parkedGraphs.remove(executionId) != null) {
+          parkedUntil.remove(executionId);
+          enqueue(executionId);
+        }
+      }, delayMs, TimeUnit.MILLISECONDS));
+    } catch (RejectedExecutionException e) {
+      // the executor is draining, a worker that outlived the drain timeout still
+      // records the graph so it ends up in the resume manifest
+      logger.info("Graph:" + executionId + " parked after the parking timer stopped");
+    }
+  }
+
+  /**
+   * Keep the record of a graph leased by another node instead of dropping it,
+   * the owner may have handed the graph back to the queue, e.g. when it was
+   * woken up, and no longer tracks it itself. The record is retried once the
+   * lease could have expired, a record already parked on this node is kept.
+   * Must be called with the parking lock held.
+   * 
+   * @param executionId
+   */
+  private void parkLeased(String executionId) {
+    if (!parkedGraphs.containsKey(executionId)) {
+      park(executionId, System.currentTimeMillis() + runtime.getLeaseDurationMs());
+    }
+  }
+
+  /**
+   * A graph can complete while a duplicate record of it is parked or queued,
+   * e.g. after a lease was taken over, duplicates are dropped once they get
+   * the lease.
+   * 
+   * @param executionGraph
+   * @return true if the graph is already complete
+   * @throws IOException
+   */
+  private boolean isStale(ExecutionGraph executionGraph) throws IOException {
+    if (!Status.isComplete(executionGraph.getStatus())) {
+      return false;
+    }
+    runtime.releaseLease(executionGraph.getExecutionId());
+    return true;
+  }
+
+  /**
+   * @return graphs parked on this executor and when they are due
+   */
+  @VisibleForTesting
+  public Map<String, Long> getParkedGraphs() {
+    return new HashMap<>(parkedUntil);
+  }
+
+  private void cancelParking(String executionId) {
+    ScheduledFuture<?> parked = parkedGraphs.remove(executionId);
+    if (parked != null) {
+      parked.cancel(false);
+      parkedUntil.remove(executionId);
+    }
+  }
+
+  private void enqueue(String executionId) {
+    try {
+      runtime.getExecutionQueue().add(executionId);
+      arrivals.release();
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Failed to re-queue graph:" + executionId, e);
+    }
+  }
+
+  private ExecutionGraph load(String executionId) throws Exception {
+    ExecutionGraph executionGraph = runtime.getForExecution(executionId);
+    if (executionGraph == null) {
+      logger.severe("Graph:" + executionId + " is missing");
+      SlackTask.sendSlackMessage("Error: Graph execution id is missing",
+          "Error: Graph execution id is missing:" + executionId, "", "ambudsharma");
+    }
+    return executionGraph;
+  }
+
+  private void finish(ExecutionGraph executionGraph) throws Exception {
+    String executionId = executionGraph.getExecutionId();
+    // unlock all resources
+    runtime.getExecutionQueue().delete(executionId);
+    runtime.getResourceDB().unlockResources(executionGraph.getExecutionPlan().keySet());
+    // set end time
+    executionGraph.setEndTime(new Date());
+    logger.info("Graph execution completed:" + executionGraph.getExecutionId() + " with status:"
+        + executionGraph.getStatus());
+    if (runtime.getAuditSink() != null) {
+      // send an audit event
+      runtime.getAuditSink().audit(executionGraph);
+    }
+    // notify requester that graph execution is now complete
+    SlackTask.sendSlackMessage(
+        "Task execution has completed with status:" + executionGraph.getStatus(), "",
+        BASE_URL + "/executions/" + executionId, executionGraph.getRequester());
+  }
+
+  private static int countCompletedTasks(ExecutionGraph executionGraph) {
+    int count = 0;
+    for (PlanVertex vertex : executionGraph.getExecutionPlan().values()) {
+      LifecycleProcess process = vertex.getProcess();
+      if (process == null) {
+        continue;
+      }
+      for (Task task : process.getAllTasks().values()) {
+        if (Status.END_STATUS.contains(task.getStatus())) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
   @UnitOfWork
   public void executeGraph(ExecutionGraph executionGraph) throws IOException {
     // set start time to the current time
     executionGraph.setStartTime(new Date());
     runtime.update(executionGraph);
-    runtime.getExecutionQueue().add(executionGraph.getExecutionId());
+    runtime.getExecutionQueue().add(executionGraph.getExecutionId(),
+        executionGraph.getRequester(), executionGraph.getPriority());
+    arrivals.release();
+  }
+
+  /**
+   * Stop taking graphs from the queue, graphs already handed to a worker finish
+   * their current step.
+   */
+  public void shutdown() {
+    enableExecution = false;
+    if (workerPool != null) {
+      workerPool.shutdown();
+    }
+    parkingTimer.shutdownNow();
+    if (leaseTimer != null) {
+      leaseTimer.shutdownNow();
+    }
+    if (flushTimer != null) {
+      flushTimer.shutdownNow();
+    }
+  }
+
+  /**
+   * Stop the executor without interrupting a tick: stop taking graphs, wait for
+   * in-flight ticks to finish, write all resident graphs and record the parked
+   * graphs in a resume manifest. Queued graphs stay in the queue. Only the
+   * first call drains the executor.
+   * 
+   * @param timeoutMs      how long to wait for in-flight ticks
+   * @param resumeManifest optional file to write the manifest to
+   * @throws Exception
+   */
+  public void drain(long timeoutMs, File resumeManifest) throws Exception {
+    if (!drained.compareAndSet(false, true)) {
+      return;
+    }
+    long start = System.currentTimeMillis();
+    enableExecution = false;
+    if (!tickLock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+      logger.warning("Timed out waiting for the current tick before draining");
+    } else {
+      tickLock.unlock();
+    }
+    if (workerPool != null) {
+      workerPool.shutdown();
+      if (!workerPool.awaitTermination(Math.max(0, start + timeoutMs - System.currentTimeMillis()),
+          TimeUnit.MILLISECONDS)) {
+        logger.warning("Timed out waiting for workers to finish their ticks before draining");
+      }
+    }
+    parkingTimer.shutdownNow();
+    if (leaseTimer != null) {
+      leaseTimer.shutdownNow();
+    }
+    if (flushTimer != null) {
+      flushTimer.shutdownNow();
+      flushTimer.awaitTermination(Math.max(0, start + timeoutMs - System.currentTimeMillis()),
+          TimeUnit.MILLISECONDS);
+    }
+    runtime.flushAll();
+    runtime.releaseLeases();
+    // taken last so graphs parked by workers that outlived the timeout are
+    // included, records of queued graphs aren't taken since taking them
+    // acknowledges them to a shared queue while the manifest is local
+    Map<String, Long> graphs = new HashMap<>(parkedUntil);
+    if (resumeManifest != null) {
+      new ResumeManifest(graphs).write(resumeManifest);
+    }
+    logger.info("Graph executor drained in " + (System.currentTimeMillis() - start)
+        + "ms, parked graphs:" + graphs.size());
+  }
+
+  private void recordFirstTick() {
+    if (firstTickMs.get() == 0 && firstTickMs.compareAndSet(0, System.currentTimeMillis())) {
+      logger.info("First graph tick " + getStartupToFirstTickMs() + "ms after startup");
+    }
+  }
+
+  /**
+   * @return time from JVM start to the first graph tick or -1 if no graph was
+   *         advanced yet
+   */
+  public long getStartupToFirstTickMs() {
+    long tick = firstTickMs.get();
+    return tick > 0 ? tick - ManagementFactory.getRuntimeMXBean().getStartTime() : -1;
   }
 
   public GraphExecutionRuntime getRuntime() {
@@ -0,0 +1,33 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a graph is written with a fencing token that is no longer
+ * current, i.e. the lease on the graph has been taken over by another node.
+ */
+public class LeaseLostException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public LeaseLostException(String executionId, long fencingToken) {
+    super("Lease on graph:" + executionId + " with fencing token:" + fencingToken
+        + " is no longer held");
+  }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonElement;
+
+/**
+ * Bounded and expiring cache of plans computed by the {@link GraphEngine} so
+ * that an execution can reuse the plan instead of planning the same delta graph
+ * again.
+ */
+public class PlanCache {
+
+  private Cache<String, CachedPlan> cache;
+
+  public PlanCache(int maxEntries, int ttlSeconds) {
+    cache = CacheBuilder.newBuilder().maximumSize(maxEntries)
+        .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build();
+  }
+
+  /**
+   * @param plan
+   * @return handle for the cached plan
+   */
+  public String put(CachedPlan plan) {
+    String handle = UUID.randomUUID().toString();
+    cache.put(handle, plan);
+    return handle;
+  }
+
+  /**
+   * Remove and return the cached plan, plans can only be used once.
+   * 
+   * @param handle
+   * @return cached plan or null if it doesn't exist or has expired
+   */
+  public CachedPlan remove(String handle) {
+    return cache.asMap().remove(handle);
+  }
+
+  public static class CachedPlan {
+
+    private String requester;
+    private JsonElement deltaGraph;
+    private Map<String, PlanVertex> planGraph;
+    private SortedMap<String, EdgeMutation> edgeMutations;
+    private Map<String, Long> resourceVersions;
+
+    /**
+     * @param requester
+     * @param deltaGraph       delta graph as submitted for planning
+     * @param planGraph
+     * @param edgeMutations
+     * @param resourceVersions lastUpdateTimestamp of the existing resources in
+     *                         the plan
+     */
+    public CachedPlan(String requester,
+                      JsonElement deltaGraph,
+                      Map<String, PlanVertex> planGraph,
+                      SortedMap<String, EdgeMutation> edgeMutations,
+                      Map<String, Long> resourceVersions) {
+      this.requester = requester;
+      this.deltaGraph = deltaGraph;
+      this.planGraph = planGraph;
+      this.edgeMutations = edgeMutations;
+      this.resourceVersions = resourceVersions;
+    }
+
+    public String getRequester() {
+      return requester;
+    }
+
+    public JsonElement getDeltaGraph() {
+      return deltaGraph;
+    }
+
+    public Map<String, PlanVertex> getPlanGraph() {
+      return planGraph;
+    }
+
+    public SortedMap<String, EdgeMutation> getEdgeMutations() {
+      return edgeMutations;
+    }
+
+    public Map<String, Long> getResourceVersions() {
+      return resourceVersions;
+    }
+
+  }
+
+}
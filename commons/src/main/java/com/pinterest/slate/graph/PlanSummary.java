@@ -0,0 +1,58 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+/**
+ * Summary of a single planning request.
+ */
+public class PlanSummary {
+
+  private int iterations;
+  private int replannedVertices;
+  private String planHandle;
+
+  public int getIterations() {
+    return iterations;
+  }
+
+  public void setIterations(int iterations) {
+    this.iterations = iterations;
+  }
+
+  /**
+   * @return number of vertices planned again after the first iteration
+   */
+  public int getReplannedVertices() {
+    return replannedVertices;
+  }
+
+  public void setReplannedVertices(int replannedVertices) {
+    this.replannedVertices = replannedVertices;
+  }
+
+  /**
+   * @return handle to execute the cached plan with, null if the plan wasn't
+   *         cached
+   */
+  public String getPlanHandle() {
+    return planHandle;
+  }
+
+  public void setPlanHandle(String planHandle) {
+    this.planHandle = planHandle;
+  }
+
+}
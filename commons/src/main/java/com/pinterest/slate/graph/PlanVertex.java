@@ -20,6 +20,7 @@ import java.util.List;
 
 import com.google.common.base.Objects;
 import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.StateVersion;
 import com.pinterest.slate.resources.Resource;
 
 public class PlanVertex {
@@ -30,6 +31,10 @@ public class PlanVertex {
   private Resource currentResource;
   private String oldId;
   private String newId;
+  // versions of the last change to the proposed resource and the process of
+  // this vertex, not serialized
+  private transient long resourceVersion = StateVersion.next();
+  private transient long processVersion = resourceVersion;
 
   @Override
   public int hashCode() {
@@ -55,6 +60,29 @@ public class PlanVertex {
 
   public void setProposedResource(Resource proposedResource) {
     this.proposedResource = proposedResource;
+    resourceVersion = StateVersion.next();
+  }
+
+  /**
+   * Record an in place change to the proposed resource, e.g. an edge mutation.
+   */
+  public void proposedResourceChanged() {
+    resourceVersion = StateVersion.next();
+  }
+
+  /**
+   * @return version of the last change to the proposed resource of this vertex
+   */
+  public long getResourceVersion() {
+    return resourceVersion;
+  }
+
+  /**
+   * @return version of the last change to this vertex, its process or tasks
+   */
+  public long getStateVersion() {
+    long version = Math.max(resourceVersion, processVersion);
+    return process != null ? Math.max(version, process.getStateVersion()) : version;
   }
 
   public LifecycleProcess getProcess() {
@@ -63,6 +91,7 @@ public class PlanVertex {
 
   public void setProcess(LifecycleProcess process) {
     this.process = process;
+    processVersion = StateVersion.next();
   }
 
   public List<String> getUpstreamVertices() {
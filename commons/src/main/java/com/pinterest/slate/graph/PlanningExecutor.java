@@ -0,0 +1,169 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.pinterest.slate.resources.RPCBasedResourceDefinition;
+import com.pinterest.slate.resources.ResourceDefinition;
+import com.pinterest.slate.utils.DaemonThreadFactory;
+
+/**
+ * Bounded executor used by the {@link GraphEngine} to fan out per vertex
+ * planning calls. Calls made to an RPC based ResourceDefinition are
+ * non-blocking and capped per satellite so a single large plan request can't
+ * flood one satellite, calls waiting for a permit don't hold a thread so a few
+ * threads can keep many satellite calls outstanding.
+ */
+public class PlanningExecutor {
+
+  private ExecutorService executor;
+  private int maxConcurrentRequestsPerSatellite;
+  private Map<String, SatellitePermits> satellitePermits = new ConcurrentHashMap<>();
+
+  public PlanningExecutor(int parallelism, int maxConcurrentRequestsPerSatellite) {
+    this.executor = Executors.newFixedThreadPool(parallelism, DaemonThreadFactory.INSTANCE);
+    this.maxConcurrentRequestsPerSatellite = maxConcurrentRequestsPerSatellite;
+  }
+
+  public <T> Future<T> submit(Callable<T> task) {
+    return executor.submit(task);
+  }
+
+  /**
+   * Start the supplied call once a permit for the satellite that serves this
+   * ResourceDefinition is available, the permit is held until the returned
+   * future completes. Local definitions are not capped, their calls run on the
+   * pool since they plan on the calling thread.
+   *
+   * @param def
+   * @param call
+   * @return future completed with the result of the call
+   */
+  public <T> CompletableFuture<T> callAsyncWithPermit(ResourceDefinition def,
+                                                      Supplier<CompletableFuture<T>> call) {
+    SatellitePermits permits = getSatellitePermits(def);
+    if (permits == null) {
+      return CompletableFuture.supplyAsync(call, executor).thenCompose(future -> future);
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Runnable start = () -> {
+      CompletableFuture<T> future;
+      try {
+        future = call.get();
+      } catch (RuntimeException e) {
+        future = CompletableFuture.failedFuture(e);
+      }
+      future.whenComplete((value, e) -> {
+        Runnable next = permits.release();
+        if (next != null) {
+          // the next call is started on the pool so calls that fail right away
+          // don't recurse on this thread
+          executor.execute(next);
+        }
+        if (e != null) {
+          result.completeExceptionally(e);
+        } else {
+          result.complete(value);
+        }
+      });
+    };
+    if (permits.acquireOrWait(start)) {
+      start.run();
+    }
+    return result;
+  }
+
+  private SatellitePermits getSatellitePermits(ResourceDefinition def) {
+    if (!(def instanceof RPCBasedResourceDefinition)) {
+      return null;
+    }
+    String satelliteUrl = ((RPCBasedResourceDefinition) def).getSatelliteUrl();
+    if (satelliteUrl == null) {
+      return null;
+    }
+    return satellitePermits.computeIfAbsent(satelliteUrl,
+        k -> new SatellitePermits(maxConcurrentRequestsPerSatellite));
+  }
+
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Stop accepting planning calls and wait for the running ones, calls still
+   * running after the timeout are interrupted.
+   *
+   * @param timeoutMs
+   * @throws InterruptedException
+   */
+  public void shutdown(long timeoutMs) throws InterruptedException {
+    executor.shutdown();
+    if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Permits of a satellite, calls that can't get a permit wait in line and are
+   * handed the permit of a call that completes.
+   */
+  private static final class SatellitePermits {
+
+    private int available;
+    private Queue<Runnable> waiting = new ArrayDeque<>();
+
+    private SatellitePermits(int permits) {
+      this.available = permits;
+    }
+
+    /**
+     * @param start call to start once it's handed a permit
+     * @return true if a permit was taken and the call can start right away
+     */
+    private synchronized boolean acquireOrWait(Runnable start) {
+      if (available > 0) {
+        available--;
+        return true;
+      }
+      waiting.add(start);
+      return false;
+    }
+
+    /**
+     * @return waiting call that takes over the released permit or null
+     */
+    private synchronized Runnable release() {
+      Runnable next = waiting.poll();
+      if (next == null) {
+        available++;
+      }
+      return next;
+    }
+
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.google.gson.JsonObject;
+import com.pinterest.slate.resources.Resource;
+
+/**
+ * View of the {@link AbstractResourceDB} for a single plan request. Ids are
+ * resolved in batches and remembered, including the ones that don't exist, so
+ * every resource is fetched at most once per request. External current state
+ * of resources is memoized the same way.
+ */
+public class ResourceSnapshot {
+
+  private AbstractResourceDB resourceDB;
+  private Map<String, Resource> resources = new HashMap<>();
+  private Set<String> missingIds = new HashSet<>();
+  private Map<String, Optional<JsonObject>> currentStates = new ConcurrentHashMap<>();
+  private Map<String, CompletableFuture<Optional<JsonObject>>> pendingCurrentStates = new ConcurrentHashMap<>();
+
+  public ResourceSnapshot(AbstractResourceDB resourceDB) {
+    this.resourceDB = resourceDB;
+  }
+
+  /**
+   * Fetch all the supplied ids that haven't been resolved yet with a single
+   * call to the ResourceDB.
+   * 
+   * @param ids
+   * @throws IOException
+   */
+  public void resolve(Collection<String> ids) throws IOException {
+    Set<String> unresolved = new HashSet<>();
+    for (String id : ids) {
+      if (!resources.containsKey(id) && !missingIds.contains(id)) {
+        unresolved.add(id);
+      }
+    }
+    if (unresolved.isEmpty()) {
+      return;
+    }
+    Map<String, Resource> map = resourceDB.getResourceByIdAsMap(unresolved);
+    for (String id : unresolved) {
+      Resource resource = map.get(id);
+      if (resource != null) {
+        resources.put(id, resource);
+      } else {
+        missingIds.add(id);
+      }
+    }
+  }
+
+  /**
+   * @param id
+   * @return resource for the id or null if it doesn't exist
+   * @throws IOException
+   */
+  public Resource get(String id) throws IOException {
+    resolve(Collections.singleton(id));
+    return resources.get(id);
+  }
+
+  /**
+   * Get the external current state of the resource, loading it only on the
+   * first lookup for this snapshot. Current state may be looked up concurrently
+   * for different resources.
+   * 
+   * @param resource
+   * @param loader
+   * @return copy of the current state
+   * @throws Exception
+   */
+  public JsonObject getCurrentState(Resource resource,
+                                    Callable<JsonObject> loader) throws Exception {
+    String key = resource.getId() + "@" + resource.getLastUpdateTimestamp();
+    Optional<JsonObject> currentState = currentStates.get(key);
+    if (currentState == null) {
+      currentState = Optional.ofNullable(loader.call());
+      currentStates.put(key, currentState);
+    }
+    return currentState.map(JsonObject::deepCopy).orElse(null);
+  }
+
+  /**
+   * Non-blocking variant of {@link #getCurrentState(Resource, Callable)},
+   * concurrent lookups for the same resource share a single load.
+   * 
+   * @param resource
+   * @param loader   starts loading the current state
+   * @return future completed with a copy of the current state
+   */
+  public CompletableFuture<JsonObject> getCurrentStateAsync(Resource resource,
+                                                            Supplier<CompletableFuture<JsonObject>> loader) {
+    String key = resource.getId() + "@" + resource.getLastUpdateTimestamp();
+    Optional<JsonObject> currentState = currentStates.get(key);
+    if (currentState != null) {
+      return CompletableFuture.completedFuture(currentState.map(JsonObject::deepCopy).orElse(null));
+    }
+    CompletableFuture<Optional<JsonObject>> pending = pendingCurrentStates.computeIfAbsent(key,
+        k -> loader.get().thenApply(Optional::ofNullable));
+    return pending.whenComplete((state, e) -> {
+      // failed loads aren't remembered same as the blocking lookup
+      if (e == null) {
+        currentStates.put(key, state);
+      }
+      pendingCurrentStates.remove(key, pending);
+    }).thenApply(state -> state.map(JsonObject::deepCopy).orElse(null));
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.Gson;
+
+/**
+ * Graphs that were active when the {@link GraphExecutor} was drained along with
+ * the time each of them is next due to be advanced, so the next start can
+ * resume them without loading every incomplete graph up front.
+ */
+public class ResumeManifest {
+
+  private static final Gson GSON = new Gson();
+  private long writtenAtMs;
+  // execution id to the time the graph is due, 0 if it is due right away
+  private Map<String, Long> graphs = new HashMap<>();
+
+  public ResumeManifest() {
+  }
+
+  public ResumeManifest(Map<String, Long> graphs) {
+    this.writtenAtMs = System.currentTimeMillis();
+    this.graphs = graphs;
+  }
+
+  /**
+   * Write the manifest by replacing the file so a partially written manifest is
+   * never read.
+   * 
+   * @param file
+   * @throws IOException
+   */
+  public void write(File file) throws IOException {
+    File tmp = new File(file.getPath() + ".tmp");
+    Files.write(tmp.toPath(), GSON.toJson(this).getBytes(StandardCharsets.UTF_8));
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Read and delete the manifest, a manifest is only ever resumed from once.
+   * 
+   * @param file
+   * @return manifest or null if there is none
+   * @throws IOException
+   */
+  public static ResumeManifest consume(File file) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    ResumeManifest manifest = GSON.fromJson(
+        new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8),
+        ResumeManifest.class);
+    Files.delete(file.toPath());
+    return manifest;
+  }
+
+  public long getWrittenAtMs() {
+    return writtenAtMs;
+  }
+
+  public Map<String, Long> getGraphs() {
+    return graphs;
+  }
+
+}
@@ -0,0 +1,391 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph.storage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration2.Configuration;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.pinterest.slate.graph.AbstractGraphExecutionQueue;
+import com.pinterest.slate.graph.ExecutionPriority;
+import com.pinterest.slate.graph.ExecutionQueueRecord;
+
+/**
+ * Scheduling layer on top of another execution queue.
+ *
+ * Graphs taken from the underlying queue are held locally and handed out with
+ * weighted fair queueing, first across {@link ExecutionPriority} classes and
+ * then across the requesters within a class. Every take advances the virtual
+ * time of the chosen class and requester by the inverse of its weight, so a
+ * requester with many queued graphs only gets its share of the executor
+ * instead of delaying everyone queued behind it. Class and requester weights
+ * are configured with weight.&lt;priority&gt; and requesterweight.&lt;requester&gt;.
+ * 
+ * The requester and priority of a graph are carried in its queue record. Graphs
+ * whose record carries none, e.g. graphs bootstrapped after a restart, are
+ * scheduled as interactive graphs of the requester in their execution id.
+ * Records are acknowledged to the underlying queue only once they are handed
+ * out, so graphs held here are delivered again if the node dies.
+ */
+public class FairExecutionQueue extends AbstractGraphExecutionQueue {
+
+  // graphs moved from the underlying queue per take
+  private static final int MAX_DRAIN = 1000;
+  private static final int DEFAULT_ATTRIBUTES_TTL_SECONDS = 3600;
+  private final AbstractGraphExecutionQueue queue;
+  private Map<String, Integer> requesterWeights = new HashMap<>();
+  // attributes of graphs re-queued by this node, expire for graphs that moved
+  // to or completed on other nodes
+  private Cache<String, Attributes> attributes;
+  private Map<ExecutionPriority, ClassQueue> classes = new EnumMap<>(ExecutionPriority.class);
+  private Map<String, QueuedGraph> queued = new HashMap<>();
+  private double virtualClock;
+
+  public FairExecutionQueue(AbstractGraphExecutionQueue queue) {
+    this.queue = queue;
+    for (ExecutionPriority priority : ExecutionPriority.values()) {
+      classes.put(priority, new ClassQueue(priority.getDefaultWeight()));
+    }
+  }
+
+  @Override
+  public void init(Configuration config) throws IOException {
+    queue.init(config);
+    for (ExecutionPriority priority : ExecutionPriority.values()) {
+      classes.get(priority).weight = config.getInt("weight." + priority.name().toLowerCase(),
+          priority.getDefaultWeight());
+    }
+    Iterator<String> keys = config.getKeys("requesterweight");
+    while (keys.hasNext()) {
+      String key = keys.next();
+      requesterWeights.put(key.substring("requesterweight.".length()), config.getInt(key));
+    }
+    attributes = CacheBuilder.newBuilder()
+        .expireAfterAccess(
+            config.getInt("attributesttlseconds", DEFAULT_ATTRIBUTES_TTL_SECONDS),
+            TimeUnit.SECONDS)
+        .build();
+  }
+
+  @Override
+  public String take() {
+    drain();
+    ExecutionQueueRecord record = next();
+    if (record != null) {
+      return handOut(record);
+    }
+    // nothing queued locally, wait on the underlying queue without holding the
+    // lock
+    record = queue.takeRecord();
+    if (record == null) {
+      return null;
+    }
+    schedule(record);
+    drain();
+    return handOut(next());
+  }
+
+  @Override
+  public String poll() {
+    drain();
+    return handOut(next());
+  }
+
+  private String handOut(ExecutionQueueRecord record) {
+    if (record == null) {
+      return null;
+    }
+    queue.acknowledge(record);
+    return record.getExecutionId();
+  }
+
+  private void drain() {
+    for (int i = 0; i < MAX_DRAIN; i++) {
+      ExecutionQueueRecord record = queue.pollRecord();
+      if (record == null) {
+        return;
+      }
+      schedule(record);
+    }
+  }
+
+  @Override
+  public void add(String executionId) throws IOException {
+    Attributes graphAttributes = attributes.getIfPresent(executionId);
+    if (graphAttributes != null) {
+      queue.add(executionId, graphAttributes.requester, graphAttributes.priority);
+    } else {
+      queue.add(executionId);
+    }
+  }
+
+  @Override
+  public void add(String executionId,
+                  String requester,
+                  ExecutionPriority priority) throws IOException {
+    attributes.put(executionId, new Attributes(requester, priority));
+    queue.add(executionId, requester, priority);
+  }
+
+  @Override
+  public void delete(String executionId) throws IOException {
+    attributes.invalidate(executionId);
+    ExecutionQueueRecord removed = remove(executionId);
+    if (removed != null) {
+      queue.acknowledge(removed);
+    }
+    queue.delete(executionId);
+  }
+
+  @Override
+  public void bootstrap(List<String> graphs) {
+    queue.bootstrap(graphs);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    synchronized (this) {
+      if (!queued.isEmpty()) {
+        return false;
+      }
+    }
+    return queue.isEmpty();
+  }
+
+  private void schedule(ExecutionQueueRecord record) {
+    String executionId = record.getExecutionId();
+    Attributes graphAttributes;
+    if (record.getRequester() != null && record.getPriority() != null) {
+      graphAttributes = new Attributes(record.getRequester(), record.getPriority());
+      attributes.put(executionId, graphAttributes);
+    } else {
+      graphAttributes = attributes.getIfPresent(executionId);
+      if (graphAttributes == null) {
+        graphAttributes = new Attributes(
+            record.getRequester() != null ? record.getRequester() : requesterOf(executionId),
+            record.getPriority() != null ? record.getPriority() : ExecutionPriority.INTERACTIVE);
+      }
+    }
+    if (!enqueue(record, graphAttributes)) {
+      // duplicate of a record that is already waiting to be taken
+      queue.acknowledge(record);
+    }
+  }
+
+  // execution ids are generated as <requester>_<submission time>
+  private static String requesterOf(String executionId) {
+    int idx = executionId.lastIndexOf('_');
+    return idx > 0 ? executionId.substring(0, idx) : executionId;
+  }
+
+  private synchronized boolean enqueue(ExecutionQueueRecord record, Attributes graphAttributes) {
+    if (queued.containsKey(record.getExecutionId())) {
+      return false;
+    }
+    QueuedGraph graph = new QueuedGraph(record, graphAttributes, System.currentTimeMillis());
+    queued.put(record.getExecutionId(), graph);
+    ClassQueue classQueue = classes.get(graphAttributes.priority);
+    RequesterQueue requesterQueue = classQueue.requesters.get(graphAttributes.requester);
+    if (requesterQueue == null) {
+      requesterQueue = new RequesterQueue(
+          requesterWeights.getOrDefault(graphAttributes.requester, 1));
+      classQueue.requesters.put(graphAttributes.requester, requesterQueue);
+    }
+    if (requesterQueue.graphs.isEmpty()) {
+      // requesters and classes that were idle don't get credit for the time they
+      // weren't queueing
+      requesterQueue.virtualTime = Math.max(requesterQueue.virtualTime, classQueue.virtualClock);
+    }
+    if (classQueue.size == 0) {
+      classQueue.virtualTime = Math.max(classQueue.virtualTime, virtualClock);
+    }
+    requesterQueue.graphs.add(graph);
+    classQueue.size++;
+    return true;
+  }
+
+  private synchronized ExecutionQueueRecord next() {
+    ClassQueue classQueue = null;
+    for (ClassQueue candidate : classes.values()) {
+      if (candidate.size > 0
+          && (classQueue == null || candidate.virtualTime < classQueue.virtualTime)) {
+        classQueue = candidate;
+      }
+    }
+    if (classQueue == null) {
+      return null;
+    }
+    RequesterQueue requesterQueue = null;
+    for (RequesterQueue candidate : classQueue.requesters.values()) {
+      if (!candidate.graphs.isEmpty()
+          && (requesterQueue == null || candidate.virtualTime < requesterQueue.virtualTime)) {
+        requesterQueue = candidate;
+      }
+    }
+    virtualClock = classQueue.virtualTime;
+    classQueue.virtualTime += 1.0 / classQueue.weight;
+    classQueue.virtualClock = requesterQueue.virtualTime;
+    requesterQueue.virtualTime += 1.0 / requesterQueue.weight;
+
+    QueuedGraph graph = requesterQueue.graphs.poll();
+    classQueue.size--;
+    queued.remove(graph.record.getExecutionId());
+    long waitMs = System.currentTimeMillis() - graph.enqueueTimeMs;
+    classQueue.taken++;
+    classQueue.totalWaitMs += waitMs;
+    classQueue.maxWaitMs = Math.max(classQueue.maxWaitMs, waitMs);
+    cleanup(classQueue);
+    return graph.record;
+  }
+
+  private synchronized ExecutionQueueRecord remove(String executionId) {
+    QueuedGraph graph = queued.remove(executionId);
+    if (graph == null) {
+      return null;
+    }
+    ClassQueue classQueue = classes.get(graph.attributes.priority);
+    RequesterQueue requesterQueue = classQueue.requesters.get(graph.attributes.requester);
+    if (requesterQueue != null && requesterQueue.graphs.remove(graph)) {
+      classQueue.size--;
+    }
+    cleanup(classQueue);
+    return graph.record;
+  }
+
+  // drop requesters that are idle and have no credit left to track
+  private void cleanup(ClassQueue classQueue) {
+    classQueue.requesters.values().removeIf(
+        r -> r.graphs.isEmpty() && r.virtualTime <= classQueue.virtualClock);
+  }
+
+  /**
+   * @return queue depth and wait time stats per priority class
+   */
+  public synchronized Map<String, Map<String, Long>> getStats() {
+    Map<String, Map<String, Long>> stats = new LinkedHashMap<>();
+    long now = System.currentTimeMillis();
+    for (Map.Entry<ExecutionPriority, ClassQueue> entry : classes.entrySet()) {
+      ClassQueue classQueue = entry.getValue();
+      long oldestWaitMs = 0;
+      int requesters = 0;
+      for (RequesterQueue requesterQueue : classQueue.requesters.values()) {
+        QueuedGraph head = requesterQueue.graphs.peek();
+        if (head != null) {
+          requesters++;
+          oldestWaitMs = Math.max(oldestWaitMs, now - head.enqueueTimeMs);
+        }
+      }
+      Map<String, Long> map = new HashMap<>();
+      map.put("depth", (long) classQueue.size);
+      map.put("requesters", (long) requesters);
+      map.put("weight", (long) classQueue.weight);
+      map.put("taken", classQueue.taken);
+      map.put("avgWaitMs", classQueue.taken > 0 ? classQueue.totalWaitMs / classQueue.taken : 0);
+      map.put("maxWaitMs", classQueue.maxWaitMs);
+      map.put("oldestWaitMs", oldestWaitMs);
+      stats.put(entry.getKey().name(), map);
+    }
+    return stats;
+  }
+
+  /**
+   * Depth of the queue per requester, across priority classes.
+   *
+   * @return
+   */
+  public synchronized Map<String, Integer> getRequesterDepths() {
+    Map<String, Integer> depths = new HashMap<>();
+    for (ClassQueue classQueue : classes.values()) {
+      for (Map.Entry<String, RequesterQueue> entry : classQueue.requesters.entrySet()) {
+        depths.merge(entry.getKey(), entry.getValue().graphs.size(), Integer::sum);
+      }
+    }
+    depths.values().removeIf(depth -> depth == 0);
+    return depths;
+  }
+
+  public AbstractGraphExecutionQueue getQueue() {
+    return queue;
+  }
+
+  private static final class Attributes {
+
+    private final String requester;
+    private final ExecutionPriority priority;
+
+    private Attributes(String requester, ExecutionPriority priority) {
+      this.requester = requester;
+      this.priority = priority;
+    }
+
+  }
+
+  private static final class ClassQueue {
+
+    private int weight;
+    private double virtualTime;
+    // virtual time of the requester last taken from this class
+    private double virtualClock;
+    private int size;
+    private long taken;
+    private long totalWaitMs;
+    private long maxWaitMs;
+    private Map<String, RequesterQueue> requesters = new LinkedHashMap<>();
+
+    private ClassQueue(int weight) {
+      this.weight = weight;
+    }
+
+  }
+
+  private static final class RequesterQueue {
+
+    private final int weight;
+    private double virtualTime;
+    private Deque<QueuedGraph> graphs = new ArrayDeque<>();
+
+    private RequesterQueue(int weight) {
+      this.weight = weight;
+    }
+
+  }
+
+  private static final class QueuedGraph {
+
+    private final ExecutionQueueRecord record;
+    private final Attributes attributes;
+    private final long enqueueTimeMs;
+
+    private QueuedGraph(ExecutionQueueRecord record, Attributes attributes, long enqueueTimeMs) {
+      this.record = record;
+      this.attributes = attributes;
+      this.enqueueTimeMs = enqueueTimeMs;
+    }
+
+  }
+
+}
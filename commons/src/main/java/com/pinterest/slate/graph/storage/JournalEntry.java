@@ -0,0 +1,369 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph.storage;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.google.gson.JsonObject;
+import com.pinterest.slate.graph.ExecutionGraph;
+import com.pinterest.slate.graph.PlanVertex;
+import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.ProcessLogMessage;
+import com.pinterest.slate.process.Status;
+import com.pinterest.slate.process.Task;
+import com.pinterest.slate.resources.Resource;
+
+/**
+ * State transitions of an {@link ExecutionGraph} since the previous journal
+ * entry. Only vertices, processes and tasks that changed are recorded and task
+ * logs are recorded as appends, replaying the entries in sequence order on top
+ * of the snapshot they were written after restores the graph.
+ */
+public class JournalEntry {
+
+  private long sequence;
+  // fencing token of the lease the entry was written under, 0 if not leased
+  private long fencingToken;
+  private Status status;
+  private Long endTime;
+  private Set<String> currentPlanSet;
+  private Map<String, VertexEntry> vertices = new HashMap<>();
+
+  public void apply(ExecutionGraph graph) {
+    graph.setStatus(status);
+    graph.setEndTime(endTime != null ? new Date(endTime) : null);
+    graph.setCurrentPlanSet(new ConcurrentSkipListSet<>(currentPlanSet));
+    for (Entry<String, VertexEntry> entry : vertices.entrySet()) {
+      PlanVertex vertex = graph.getExecutionPlan().get(entry.getKey());
+      if (vertex != null) {
+        entry.getValue().apply(vertex);
+      }
+    }
+    graph.setJournalSequence(sequence);
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public long getFencingToken() {
+    return fencingToken;
+  }
+
+  public static class VertexEntry {
+
+    private Resource proposedResource;
+    private ProcessEntry process;
+
+    private void apply(PlanVertex vertex) {
+      if (proposedResource != null) {
+        vertex.setProposedResource(proposedResource);
+      }
+      if (process != null && vertex.getProcess() != null) {
+        process.apply(vertex.getProcess());
+      }
+    }
+
+  }
+
+  public static class ProcessEntry {
+
+    private String processId;
+    private String executionId;
+    private Status endStatus;
+    private long startTimeMs;
+    private long endTimeMs;
+    private Set<String> currenTaskSet;
+    private JsonObject processContext;
+    private Map<String, TaskEntry> tasks = new HashMap<>();
+
+    private void apply(LifecycleProcess process) {
+      process.setProcessId(processId);
+      process.setExecutionId(executionId);
+      process.setEndStatus(endStatus);
+      process.setStartTimeMs(startTimeMs);
+      process.setEndTimeMs(endTimeMs);
+      Set<String> taskSet = ConcurrentHashMap.newKeySet();
+      taskSet.addAll(currenTaskSet);
+      process.setCurrenTaskSet(taskSet);
+      if (processContext != null) {
+        process.setProcessContext(processContext);
+      }
+      for (Entry<String, TaskEntry> entry : tasks.entrySet()) {
+        Task task = process.getAllTasks().get(entry.getKey());
+        if (task != null) {
+          entry.getValue().apply(task);
+        }
+      }
+    }
+
+  }
+
+  public static class TaskEntry {
+
+    private Status status;
+    private long startTimeMs;
+    private long endTimeMs;
+    private long nextPollTimeMs;
+    private long pollIntervalMs;
+    private int stdOutOffset;
+    private List<ProcessLogMessage> stdOut;
+    private int stdErrOffset;
+    private List<ProcessLogMessage> stdErr;
+
+    private void apply(Task task) {
+      task.setStatus(status);
+      task.setStartTimeMs(startTimeMs);
+      task.setEndTimeMs(endTimeMs);
+      task.setNextPollTimeMs(nextPollTimeMs);
+      task.setPollIntervalMs(pollIntervalMs);
+      task.setStdOut(append(task.getStdOut(), stdOutOffset, stdOut));
+      task.setStdErr(append(task.getStdErr(), stdErrOffset, stdErr));
+    }
+
+    // appends are positional so replaying an entry twice doesn't duplicate logs
+    private static List<ProcessLogMessage> append(List<ProcessLogMessage> log,
+                                                  int offset,
+                                                  List<ProcessLogMessage> appended) {
+      if (appended == null || appended.isEmpty()) {
+        return log;
+      }
+      List<ProcessLogMessage> result = new ArrayList<>(log.subList(0, Math.min(offset, log.size())));
+      result.addAll(appended);
+      return result;
+    }
+
+  }
+
+  /**
+   * Execution state of a graph as of the last journal entry or snapshot, used
+   * to compute the next entry. Only vertices whose state version changed since
+   * the last entry are compared.
+   */
+  static class WrittenState {
+
+    private long sequence;
+    private long fencingToken;
+    private int entries;
+    private Status status;
+    private Long endTime;
+    private Set<String> currentPlanSet;
+    private Map<String, String> proposedResources = new HashMap<>();
+    private Map<String, Long> resourceVersions = new HashMap<>();
+    private Map<String, ProcessState> processes = new HashMap<>();
+
+    WrittenState(ExecutionGraph graph) {
+      this.sequence = graph.getJournalSequence();
+      this.fencingToken = graph.getFencingToken();
+      record(graph);
+      for (Entry<String, PlanVertex> entry : graph.getExecutionPlan().entrySet()) {
+        PlanVertex vertex = entry.getValue();
+        resourceVersions.put(entry.getKey(), vertex.getResourceVersion());
+        proposedResources.put(entry.getKey(),
+            JournaledStateStore.GSON.toJson(vertex.getProposedResource()));
+        if (vertex.getProcess() != null) {
+          processes.put(entry.getKey(), new ProcessState(vertex.getProcess()));
+        }
+      }
+    }
+
+    /**
+     * Record the changes since the previous entry.
+     *
+     * @param graph
+     * @return the next journal entry or null if nothing has changed
+     */
+    JournalEntry next(ExecutionGraph graph) {
+      JournalEntry journalEntry = new JournalEntry();
+      for (Entry<String, PlanVertex> entry : graph.getExecutionPlan().entrySet()) {
+        String id = entry.getKey();
+        PlanVertex vertex = entry.getValue();
+        VertexEntry vertexEntry = new VertexEntry();
+        Long resourceVersion = vertex.getResourceVersion();
+        if (!resourceVersion.equals(resourceVersions.put(id, resourceVersion))) {
+          String proposedResource = JournaledStateStore.GSON.toJson(vertex.getProposedResource());
+          if (!proposedResource.equals(proposedResources.get(id))) {
+            proposedResources.put(id, proposedResource);
+            vertexEntry.proposedResource = vertex.getProposedResource();
+          }
+        }
+        ProcessState processState = processes.get(id);
+        if (processState != null && vertex.getProcess() != null
+            && processState.version != vertex.getProcess().getStateVersion()) {
+          vertexEntry.process = processState.next(vertex.getProcess());
+        }
+        if (vertexEntry.proposedResource != null || vertexEntry.process != null) {
+          journalEntry.vertices.put(id, vertexEntry);
+        }
+      }
+      Long endTime = graph.getEndTime() != null ? graph.getEndTime().getTime() : null;
+      if (journalEntry.vertices.isEmpty() && status == graph.getStatus()
+          && Objects.equals(this.endTime, endTime)
+          && currentPlanSet.equals(graph.getCurrentPlanSet())) {
+        return null;
+      }
+      record(graph);
+      journalEntry.sequence = ++sequence;
+      journalEntry.fencingToken = fencingToken;
+      journalEntry.status = graph.getStatus();
+      journalEntry.endTime = endTime;
+      journalEntry.currentPlanSet = graph.getCurrentPlanSet();
+      entries++;
+      return journalEntry;
+    }
+
+    private void record(ExecutionGraph graph) {
+      status = graph.getStatus();
+      endTime = graph.getEndTime() != null ? graph.getEndTime().getTime() : null;
+      currentPlanSet = new HashSet<>(graph.getCurrentPlanSet());
+    }
+
+    int getEntries() {
+      return entries;
+    }
+
+    long getFencingToken() {
+      return fencingToken;
+    }
+
+  }
+
+  private static class ProcessState {
+
+    private long version;
+    private String processId;
+    private Status endStatus;
+    private long startTimeMs;
+    private long endTimeMs;
+    private Set<String> currenTaskSet;
+    private JsonObject processContext;
+    private Map<String, TaskState> tasks = new HashMap<>();
+
+    private ProcessState(LifecycleProcess process) {
+      version = process.getStateVersion();
+      record(process);
+      processContext = process.getProcessContext() != null ? process.getProcessContext().deepCopy()
+          : null;
+      for (Entry<String, Task> entry : process.getAllTasks().entrySet()) {
+        tasks.put(entry.getKey(), new TaskState(entry.getValue()));
+      }
+    }
+
+    private void record(LifecycleProcess process) {
+      processId = process.getProcessId();
+      endStatus = process.getEndStatus();
+      startTimeMs = process.getStartTimeMs();
+      endTimeMs = process.getEndTimeMs();
+      currenTaskSet = new HashSet<>(process.getCurrenTaskSet());
+    }
+
+    private ProcessEntry next(LifecycleProcess process) {
+      version = process.getStateVersion();
+      ProcessEntry processEntry = new ProcessEntry();
+      for (Entry<String, Task> entry : process.getAllTasks().entrySet()) {
+        TaskState taskState = tasks.get(entry.getKey());
+        if (taskState == null) {
+          continue;
+        }
+        TaskEntry taskEntry = taskState.next(entry.getValue());
+        if (taskEntry != null) {
+          processEntry.tasks.put(entry.getKey(), taskEntry);
+        }
+      }
+      JsonObject context = process.getProcessContext();
+      boolean contextChanged = context != null && !context.equals(processContext);
+      if (contextChanged) {
+        processContext = context.deepCopy();
+        processEntry.processContext = context;
+      }
+      if (!contextChanged && processEntry.tasks.isEmpty() && endStatus == process.getEndStatus()
+          && startTimeMs == process.getStartTimeMs() && endTimeMs == process.getEndTimeMs()
+          && Objects.equals(processId, process.getProcessId())
+          && currenTaskSet.equals(process.getCurrenTaskSet())) {
+        return null;
+      }
+      record(process);
+      processEntry.processId = process.getProcessId();
+      processEntry.executionId = process.getExecutionId();
+      processEntry.endStatus = process.getEndStatus();
+      processEntry.startTimeMs = process.getStartTimeMs();
+      processEntry.endTimeMs = process.getEndTimeMs();
+      processEntry.currenTaskSet = process.getCurrenTaskSet();
+      return processEntry;
+    }
+
+  }
+
+  private static class TaskState {
+
+    private Status status;
+    private long startTimeMs;
+    private long endTimeMs;
+    private long nextPollTimeMs;
+    private long pollIntervalMs;
+    private int stdOutSize;
+    private int stdErrSize;
+
+    private TaskState(Task task) {
+      record(task);
+    }
+
+    private void record(Task task) {
+      status = task.getStatus();
+      startTimeMs = task.getStartTimeMs();
+      endTimeMs = task.getEndTimeMs();
+      nextPollTimeMs = task.getNextPollTimeMs();
+      pollIntervalMs = task.getPollIntervalMs();
+      stdOutSize = task.getStdOut().size();
+      stdErrSize = task.getStdErr().size();
+    }
+
+    private TaskEntry next(Task task) {
+      if (status == task.getStatus() && startTimeMs == task.getStartTimeMs()
+          && endTimeMs == task.getEndTimeMs() && nextPollTimeMs == task.getNextPollTimeMs()
+          && pollIntervalMs == task.getPollIntervalMs() && stdOutSize == task.getStdOut().size()
+          && stdErrSize == task.getStdErr().size()) {
+        return null;
+      }
+      TaskEntry taskEntry = new TaskEntry();
+      taskEntry.status = task.getStatus();
+      taskEntry.startTimeMs = task.getStartTimeMs();
+      taskEntry.endTimeMs = task.getEndTimeMs();
+      taskEntry.nextPollTimeMs = task.getNextPollTimeMs();
+      taskEntry.pollIntervalMs = task.getPollIntervalMs();
+      taskEntry.stdOutOffset = Math.min(stdOutSize, task.getStdOut().size());
+      taskEntry.stdOut = new ArrayList<>(
+          task.getStdOut().subList(taskEntry.stdOutOffset, task.getStdOut().size()));
+      taskEntry.stdErrOffset = Math.min(stdErrSize, task.getStdErr().size());
+      taskEntry.stdErr = new ArrayList<>(
+          task.getStdErr().subList(taskEntry.stdErrOffset, task.getStdErr().size()));
+      record(task);
+      return taskEntry;
+    }
+
+  }
+
+}
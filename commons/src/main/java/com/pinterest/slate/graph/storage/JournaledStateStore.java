@@ -0,0 +1,146 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph.storage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.Gson;
+import com.pinterest.slate.graph.AbstractStateStore;
+import com.pinterest.slate.graph.ExecutionGraph;
+import com.pinterest.slate.process.Status;
+
+/**
+ * State store that persists execution graphs as a snapshot followed by a
+ * journal of {@link JournalEntry} state transitions.
+ *
+ * The first save of a graph by this store writes a snapshot, subsequent saves
+ * only append the changes to the journal. Once the journal has snapshotInterval
+ * entries or the graph reaches a terminal status the graph is compacted into a
+ * new snapshot and the journal is deleted. Loading a graph reads the snapshot
+ * and replays the journal entries written after it. A snapshotInterval of 0
+ * writes a snapshot on every save.
+ *
+ * The state a journal entry is computed against is only kept for the fencing
+ * token of the lease it was written under, a graph saved under a different
+ * token, e.g. after it was taken over by another node, or not saved by this
+ * store for an hour is compacted first so entries are never computed against
+ * a base written by someone else. Entries carry the token they were written
+ * under and entries of an older token than one already replayed are ignored.
+ */
+public abstract class JournaledStateStore extends AbstractStateStore {
+
+  static final Gson GSON = new Gson();
+  private int snapshotInterval = 0;
+  private Map<String, JournalEntry.WrittenState> writtenStates = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS).<String, JournalEntry.WrittenState>build().asMap();
+
+  @Override
+  public void saveExecutionGraph(ExecutionGraph graph) throws IOException {
+    String executionId = graph.getExecutionId();
+    if (snapshotInterval <= 0) {
+      writeSnapshot(executionId, GSON.toJson(graph));
+      return;
+    }
+    JournalEntry.WrittenState state = writtenStates.get(executionId);
+    if (state == null || state.getFencingToken() != graph.getFencingToken()
+        || state.getEntries() >= snapshotInterval || Status.isComplete(graph.getStatus())) {
+      compact(graph);
+      return;
+    }
+    JournalEntry entry = state.next(graph);
+    if (entry == null) {
+      return;
+    }
+    graph.setJournalSequence(entry.getSequence());
+    appendJournal(executionId, entry.getSequence(), GSON.toJson(entry));
+  }
+
+  private void compact(ExecutionGraph graph) throws IOException {
+    String executionId = graph.getExecutionId();
+    // the snapshot carries the sequence of the last journal entry it includes
+    // so a journal that wasn't deleted is not replayed twice
+    writeSnapshot(executionId, GSON.toJson(graph));
+    deleteJournal(executionId);
+    if (Status.isComplete(graph.getStatus())) {
+      writtenStates.remove(executionId);
+    } else {
+      writtenStates.put(executionId, new JournalEntry.WrittenState(graph));
+    }
+  }
+
+  @Override
+  public ExecutionGraph getExecutionGraph(String executionId) throws IOException {
+    String snapshot = readSnapshot(executionId);
+    if (snapshot == null) {
+      return null;
+    }
+    ExecutionGraph graph = GSON.fromJson(snapshot, ExecutionGraph.class);
+    if (snapshotInterval > 0) {
+      long fencingToken = 0;
+      for (String json : readJournal(executionId)) {
+        JournalEntry entry = GSON.fromJson(json, JournalEntry.class);
+        if (entry.getSequence() <= graph.getJournalSequence()
+            || entry.getFencingToken() < fencingToken) {
+          // already part of the snapshot or written by a stale owner
+          continue;
+        }
+        fencingToken = entry.getFencingToken();
+        entry.apply(graph);
+      }
+    }
+    return graph;
+  }
+
+  public int getSnapshotInterval() {
+    return snapshotInterval;
+  }
+
+  /**
+   * @param snapshotInterval number of journal entries after which a graph is
+   *                         compacted into a new snapshot, 0 disables the
+   *                         journal
+   */
+  public void setSnapshotInterval(int snapshotInterval) {
+    this.snapshotInterval = snapshotInterval;
+  }
+
+  /**
+   * @param executionId
+   * @return snapshot json or null if the graph doesn't exist
+   * @throws IOException
+   */
+  protected abstract String readSnapshot(String executionId) throws IOException;
+
+  protected abstract void writeSnapshot(String executionId, String json) throws IOException;
+
+  protected abstract void appendJournal(String executionId,
+                                        long sequence,
+                                        String json) throws IOException;
+
+  /**
+   * @param executionId
+   * @return journal entries in the order they were appended
+   * @throws IOException
+   */
+  protected abstract List<String> readJournal(String executionId) throws IOException;
+
+  protected abstract void deleteJournal(String executionId) throws IOException;
+
+}
@@ -23,10 +23,12 @@ import java.util.concurrent.ArrayBlockingQueue;
 import org.apache.commons.configuration2.Configuration;
 
 import com.pinterest.slate.graph.AbstractGraphExecutionQueue;
+import com.pinterest.slate.graph.ExecutionPriority;
+import com.pinterest.slate.graph.ExecutionQueueRecord;
 
 public class LocalExecutionQueue extends AbstractGraphExecutionQueue {
 
-  private Queue<String> queue = new ArrayBlockingQueue<>(100);
+  private Queue<ExecutionQueueRecord> queue = new ArrayBlockingQueue<>(100);
 
   @Override
   public void init(Configuration config) throws IOException {
@@ -39,12 +41,28 @@ public class LocalExecutionQueue extends AbstractGraphExecutionQueue {
 
   @Override
   public String take() {
-    return !queue.isEmpty() ? queue.remove() : null;
+    ExecutionQueueRecord record = takeRecord();
+    return record != null ? record.getExecutionId() : null;
+  }
+
+  @Override
+  public ExecutionQueueRecord takeRecord() {
+    return queue.poll();
+  }
+
+  @Override
+  public ExecutionQueueRecord pollRecord() {
+    return queue.poll();
   }
 
   @Override
   public void add(String executionId) {
-    queue.add(executionId);
+    add(executionId, null, null);
+  }
+
+  @Override
+  public void add(String executionId, String requester, ExecutionPriority priority) {
+    queue.add(new ExecutionQueueRecord(executionId, requester, priority));
   }
 
   @Override
@@ -53,7 +71,9 @@ public class LocalExecutionQueue extends AbstractGraphExecutionQueue {
 
   @Override
   public void bootstrap(List<String> graphs) {
-    queue.addAll(graphs);
+    for (String executionId : graphs) {
+      add(executionId);
+    }
   }
 
 }
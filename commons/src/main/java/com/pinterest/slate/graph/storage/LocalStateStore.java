@@ -17,6 +17,11 @@ package com.pinterest.slate.graph.storage;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -28,11 +33,9 @@ import org.apache.commons.configuration2.Configuration;
 
 import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
-import com.pinterest.slate.graph.AbstractStateStore;
-import com.pinterest.slate.graph.ExecutionGraph;
 import com.pinterest.slate.resources.Resource;
 
-public class LocalStateStore extends AbstractStateStore {
+public class LocalStateStore extends JournaledStateStore {
 
   private static final Gson GSON = new Gson();
   private String baseGraphStoragePath = "target/tmp/graphs";
@@ -44,24 +47,51 @@ public class LocalStateStore extends AbstractStateStore {
     new File(baseGraphStoragePath).mkdirs();
     baseResourceUpdateStoragePath = stateStoreConfig.getString("baseresourceupdatestoragepath");
     new File(baseResourceUpdateStoragePath).mkdirs();
+    setSnapshotInterval(stateStoreConfig.getInt("snapshotinterval", 0));
   }
 
   @Override
-  public void saveExecutionGraph(ExecutionGraph graph) throws IOException {
-    String json = GSON.toJson(graph);
-    Files.write(new File(getExecutionGraphStoragePath(graph.getExecutionId())).toPath(),
-        json.getBytes());
+  protected void writeSnapshot(String executionId, String json) throws IOException {
+    Files.write(new File(getExecutionGraphStoragePath(executionId)).toPath(), json.getBytes());
   }
 
   @Override
-  public ExecutionGraph getExecutionGraph(String excutionId) throws IOException {
-    File file = new File(getExecutionGraphStoragePath(excutionId));
+  protected String readSnapshot(String executionId) throws IOException {
+    File file = new File(getExecutionGraphStoragePath(executionId));
     if (!file.exists()) {
       return null;
     }
-    String json = new String(
-        Files.readAllBytes(file.toPath()));
-    return GSON.fromJson(json, ExecutionGraph.class);
+    return new String(Files.readAllBytes(file.toPath()));
+  }
+
+  @Override
+  protected void appendJournal(String executionId, long sequence, String json) throws IOException {
+    try (FileChannel channel = FileChannel.open(getJournalPath(executionId),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      channel.write(ByteBuffer.wrap((json + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+  }
+
+  @Override
+  protected List<String> readJournal(String executionId) throws IOException {
+    Path path = getJournalPath(executionId);
+    if (!Files.exists(path)) {
+      return ImmutableList.of();
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+      return Arrays.stream(StandardCharsets.UTF_8.decode(buffer).toString().split("\n"))
+          .filter(l -> !l.isEmpty()).collect(Collectors.toList());
+    }
+  }
+
+  @Override
+  protected void deleteJournal(String executionId) throws IOException {
+    Files.deleteIfExists(getJournalPath(executionId));
+  }
+
+  private Path getJournalPath(String executionId) {
+    return new File(getExecutionGraphStoragePath(executionId) + ".journal").toPath();
   }
 
   @Override
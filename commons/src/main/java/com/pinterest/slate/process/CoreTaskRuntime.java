@@ -15,16 +15,144 @@
  */
 package com.pinterest.slate.process;
 
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.apache.commons.configuration2.Configuration;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.pinterest.slate.resources.PlanException;
+import com.pinterest.slate.utils.HttpUtils;
 
 public class CoreTaskRuntime implements TaskRuntime {
 
+  private static final Logger logger = Logger.getLogger(CoreTaskRuntime.class.getCanonicalName());
+  private static final Type STATUS_UPDATES_TYPE = new TypeToken<List<StatusUpdate>>() {
+  }.getType();
+  // max status checks sent to a satellite in one request, 0 disables batching
+  private int maxStatusBatchSize = 100;
+  // bounds of the backoff between status checks of a running task
+  private long minPollIntervalMs = 1000;
+  private long maxPollIntervalMs = 300_000;
+
+  private static final String CALLBACK_MAC = "HmacSHA256";
+  // key callback tokens are derived from, null if status updates can't be
+  // pushed
+  private SecretKeySpec callbackKey;
+  private final TaskDispatcher taskDispatcher;
+  // satellites that rejected a batch, checked one task at a time until the
+  // entry expires
+  private Cache<String, Boolean> unbatchedUrls = CacheBuilder.newBuilder()
+      .expireAfterWrite(10, TimeUnit.MINUTES).build();
+
+  public CoreTaskRuntime() {
+    this(new TaskDispatcher());
+  }
+
+  public CoreTaskRuntime(TaskDispatcher taskDispatcher) {
+    this.taskDispatcher = taskDispatcher;
+  }
+
   @Override
   public void configure(Configuration configuration) throws Exception {
   }
 
+  @Override
+  public TaskDispatcher getTaskDispatcher() {
+    return taskDispatcher;
+  }
+
+  @Override
+  public long getMinPollIntervalMs() {
+    return minPollIntervalMs;
+  }
+
+  public void setMinPollIntervalMs(long minPollIntervalMs) {
+    this.minPollIntervalMs = minPollIntervalMs;
+  }
+
+  @Override
+  public long getMaxPollIntervalMs() {
+    return maxPollIntervalMs;
+  }
+
+  public void setMaxPollIntervalMs(long maxPollIntervalMs) {
+    this.maxPollIntervalMs = maxPollIntervalMs;
+  }
+
+  public int getMaxStatusBatchSize() {
+    return maxStatusBatchSize;
+  }
+
+  public void setMaxStatusBatchSize(int maxStatusBatchSize) {
+    this.maxStatusBatchSize = maxStatusBatchSize;
+  }
+
+  /**
+   * @param callbackSecret secret shared by the Slate core nodes that callback
+   *                       tokens are derived from, null to not accept pushed
+   *                       status updates
+   */
+  public void setCallbackSecret(String callbackSecret) {
+    this.callbackKey = callbackSecret != null
+        ? new SecretKeySpec(callbackSecret.getBytes(StandardCharsets.UTF_8), CALLBACK_MAC)
+        : null;
+  }
+
+  /**
+   * Callback tokens are derived from the task they were issued for so any node
+   * can verify them without storing them.
+   */
+  @Override
+  public String getCallbackToken(String processId, String taskInstanceId) {
+    if (callbackKey == null) {
+      return null;
+    }
+    try {
+      Mac mac = Mac.getInstance(CALLBACK_MAC);
+      mac.init(callbackKey);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(
+          mac.doFinal(key(processId, taskInstanceId).getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to derive callback token", e);
+    }
+  }
+
+  @Override
+  public boolean isValidCallbackToken(String processId, String taskInstanceId, String token) {
+    String expected = getCallbackToken(processId, taskInstanceId);
+    return expected != null && token != null
+        && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+            token.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public boolean acceptsPushedUpdates(String taskDefinitionId) {
+    TaskDefinition definition = TaskFactory.INSTANCE.getTask(taskDefinitionId);
+    return callbackKey != null && definition != null && definition.acceptsPushedUpdates();
+  }
+
   @Override
   public StatusUpdate startExecution(String taskDefinitionId,
                                      String taskInstanceId,
@@ -58,4 +186,147 @@ public class CoreTaskRuntime implements TaskRuntime {
     }
   }
 
+  @Override
+  public CompletableFuture<StatusUpdate> startExecutionAsync(String taskDefinitionId,
+                                                             String taskInstanceId,
+                                                             LifecycleProcess workflow,
+                                                             Executor executor) {
+    TaskDefinition task = TaskFactory.INSTANCE.getTask(taskDefinitionId);
+    if (!task.isAsync()) {
+      return TaskRuntime.super.startExecutionAsync(taskDefinitionId, taskInstanceId, workflow,
+          executor);
+    }
+    CompletableFuture<StatusUpdate> future;
+    try {
+      JsonObject processContext = workflow.getProcessContext();
+      future = task.startExecutionAsync(this, taskInstanceId, workflow, processContext,
+          taskContext(processContext, taskInstanceId));
+    } catch (Exception e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    return failOnError(future, "Task failed to start");
+  }
+
+  @Override
+  public CompletableFuture<StatusUpdate> checkStatusAsync(String taskTemplateId,
+                                                          String taskInstanceId,
+                                                          LifecycleProcess workflow,
+                                                          Executor executor) {
+    TaskDefinition runningTask = TaskFactory.INSTANCE.getTask(taskTemplateId);
+    if (!runningTask.isAsync()) {
+      return TaskRuntime.super.checkStatusAsync(taskTemplateId, taskInstanceId, workflow,
+          executor);
+    }
+    CompletableFuture<StatusUpdate> future;
+    try {
+      JsonObject processContext = workflow.getProcessContext();
+      future = runningTask.checkStatusAsync(this, taskInstanceId, workflow, processContext,
+          taskContext(processContext, taskInstanceId));
+    } catch (Exception e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    return failOnError(future, "Status check failed");
+  }
+
+  /**
+   * Coalesce the due status checks of RPC tasks into one request per satellite
+   * (split at {@link #getMaxStatusBatchSize()}). Checks that aren't answered by a
+   * batch are made individually as usual.
+   */
+  @Override
+  public Map<String, Map<String, StatusUpdate>> prefetchStatus(
+      Collection<LifecycleProcess> processes) {
+    Map<String, Map<String, StatusUpdate>> results = new ConcurrentHashMap<>();
+    int maxBatchSize = maxStatusBatchSize;
+    if (maxBatchSize <= 1) {
+      return results;
+    }
+    Map<String, List<TaskInvocation>> checks = new HashMap<>();
+    for (LifecycleProcess process : processes) {
+      for (Task task : process.getDueStatusChecks()) {
+        TaskDefinition definition = TaskFactory.INSTANCE.getTask(task.getTaskDefinitionId());
+        if (!(definition instanceof RPCTaskDefinition)) {
+          continue;
+        }
+        String url = ((RPCTaskDefinition) definition).getBatchStatusUrl();
+        if (url == null || unbatchedUrls.getIfPresent(url) != null) {
+          continue;
+        }
+        TaskInvocation invocation = TaskInvocation.create(task.getTaskDefinitionId(),
+            task.getInstanceId(), process, definition.getProcessContextProjection());
+        if (definition.acceptsPushedUpdates()) {
+          invocation.setCallbackToken(getCallbackToken(process.getProcessId(), task.getInstanceId()));
+        }
+        checks.computeIfAbsent(url, k -> new ArrayList<>()).add(invocation);
+      }
+    }
+    List<CompletableFuture<Void>> batches = new ArrayList<>();
+    for (Entry<String, List<TaskInvocation>> entry : checks.entrySet()) {
+      List<TaskInvocation> satelliteChecks = entry.getValue();
+      if (satelliteChecks.size() < 2) {
+        // nothing to coalesce
+        continue;
+      }
+      for (int i = 0; i < satelliteChecks.size(); i += maxBatchSize) {
+        batches.add(checkStatusBatch(entry.getKey(),
+            satelliteChecks.subList(i, Math.min(i + maxBatchSize, satelliteChecks.size())),
+            results));
+      }
+    }
+    CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+    return results;
+  }
+
+  private CompletableFuture<Void> checkStatusBatch(String url,
+                                                   List<TaskInvocation> batch,
+                                                   Map<String, Map<String, StatusUpdate>> results) {
+    CompletableFuture<List<StatusUpdate>> future = HttpUtils.makeHttpPostAsync(url, batch,
+        STATUS_UPDATES_TYPE, false, true);
+    return future.handle((updates, e) -> {
+      if (e != null) {
+        Throwable cause = HttpUtils.unwrap(e);
+        if (cause instanceof PlanException) {
+          // satellite doesn't serve batches
+          unbatchedUrls.put(url, true);
+        }
+        logger.log(Level.WARNING, "Batch status check failed:" + url, cause);
+        return null;
+      }
+      if (updates == null || updates.size() != batch.size()) {
+        logger.warning("Batch status check returned " + (updates != null ? updates.size() : 0)
+            + " updates for " + batch.size() + " checks:" + url);
+        return null;
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        if (updates.get(i) != null) {
+          TaskInvocation check = batch.get(i);
+          results.computeIfAbsent(check.getProcessId(), k -> new ConcurrentHashMap<>())
+              .put(check.getTaskId(), updates.get(i));
+        }
+      }
+      return null;
+    });
+  }
+
+  private static JsonObject taskContext(JsonObject processContext, String taskInstanceId) {
+    return processContext.has(taskInstanceId)
+        ? processContext.get(taskInstanceId).getAsJsonObject()
+        : null;
+  }
+
+  // failures are reported the same way as the blocking calls
+  private static CompletableFuture<StatusUpdate> failOnError(CompletableFuture<StatusUpdate> future,
+                                                             String message) {
+    return future.exceptionally(e -> {
+      Throwable cause = HttpUtils.unwrap(e);
+      logger.log(Level.SEVERE, message, cause);
+      return StatusUpdate.create(Status.FAILED, message,
+          cause instanceof Exception ? (Exception) cause : new Exception(cause));
+    });
+  }
+
+  private static String key(String processId, String taskInstanceId) {
+    return processId + "/" + taskInstanceId;
+  }
+
 }
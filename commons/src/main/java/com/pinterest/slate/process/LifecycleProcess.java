@@ -18,12 +18,14 @@ package com.pinterest.slate.process;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
@@ -49,6 +51,8 @@ public final class LifecycleProcess {
   private Status endStatus = Status.NOT_STARTED;
   private long startTimeMs;
   private long endTimeMs;
+  // version of the last change to the state of this process, not serialized
+  private transient long stateVersion = StateVersion.next();
 
   public LifecycleProcess() {
     allTasks.put(Task.SUCCEED_PROCESS_TASK, new Task(Task.SUCCEED_PROCESS_TASK,
@@ -67,6 +71,7 @@ public final class LifecycleProcess {
       throw new Exception("Process hasn't been initialized correctly");
     }
     currenTaskSet.add(startTaskId);
+    stateVersion = StateVersion.next();
   }
 
   @Override
@@ -92,6 +97,7 @@ public final class LifecycleProcess {
 
   public void setProcessContext(JsonObject processContext) {
     this.processContext = processContext;
+    stateVersion = StateVersion.next();
   }
 
   public void addTaskNode(Task task) {
@@ -154,34 +160,78 @@ public final class LifecycleProcess {
   }
 
   public void continueExecution(TaskRuntime taskRuntime) throws Exception {
+    continueExecution(taskRuntime, Collections.emptyMap());
+  }
+
+  /**
+   * @param taskRuntime
+   * @param statusUpdates status updates of running tasks already known in this
+   *                      tick by task instance id, e.g. pushed by the tasks or
+   *                      fetched in a batch, these tasks aren't checked again
+   * @throws Exception
+   */
+  public void continueExecution(TaskRuntime taskRuntime,
+                                Map<String, StatusUpdate> statusUpdates) throws Exception {
     if (endStatus == Status.NOT_STARTED) {
-      endStatus = Status.RUNNING;
+      setEndStatus(Status.RUNNING);
     }
-    List<String> enqueueTasks = new ArrayList<>();
-    for (Iterator<String> iterator = currenTaskSet.iterator(); iterator.hasNext();) {
-      String taskNodeId = iterator.next();
+    // tasks are visited in a fixed order so the results of calls made
+    // concurrently are always applied in the same order
+    List<String> taskNodeIds = new ArrayList<>(currenTaskSet);
+    Collections.sort(taskNodeIds);
+    Map<String, TaskDispatcher.TaskCall> calls = new LinkedHashMap<>();
+    for (String taskNodeId : taskNodeIds) {
       Task taskNode = allTasks.get(taskNodeId);
       String taskDefinitionId = taskNode.getTaskDefinitionId();
       switch (taskNode.getStatus()) {
+      case NOT_STARTED:
+        // submit task for execution
+        calls.put(taskNodeId, executor -> taskRuntime.startExecutionAsync(taskDefinitionId,
+            taskNode.getInstanceId(), this, executor));
+        break;
+      case RUNNING:
+        StatusUpdate known = statusUpdates.get(taskNodeId);
+        if (known != null) {
+          calls.put(taskNodeId, executor -> CompletableFuture.completedFuture(known));
+          break;
+        }
+        if (!isStatusCheckDue(taskNode)) {
+          break;
+        }
+        // if the task is running fetch the latest status of the task to see if the
+        // status has changed
+        calls.put(taskNodeId, executor -> taskRuntime.checkStatusAsync(taskDefinitionId,
+            taskNode.getInstanceId(), this, executor));
+        break;
+      default:
+        break;
+      }
+    }
+    TaskDispatcher dispatcher = taskRuntime.getTaskDispatcher();
+    Map<String, StatusUpdate> updates = dispatcher.invokeAll(calls,
+        maxConcurrentTasks > 0 ? maxConcurrentTasks : dispatcher.getDefaultMaxConcurrentTasks());
+
+    List<String> enqueueTasks = new ArrayList<>();
+    for (String taskNodeId : taskNodeIds) {
+      Task taskNode = allTasks.get(taskNodeId);
+      switch (taskNode.getStatus()) {
       case CANCELLED:
         taskNode.setEndTimeMs(System.currentTimeMillis());
         taskNode.appendStdErr("Task has been cancelled");
-        enqueueTasks.addAll(enqueueNextTaskNodes(taskNode, iterator));
+        enqueueTasks.addAll(enqueueNextTaskNodes(taskNode));
         break;
       case FAILED:
         taskNode.setEndTimeMs(System.currentTimeMillis());
         taskNode.appendStdErr("Task failed");
-        enqueueTasks.addAll(enqueueNextTaskNodes(taskNode, iterator));
+        enqueueTasks.addAll(enqueueNextTaskNodes(taskNode));
         break;
       case SUCCEEDED:
         taskNode.setEndTimeMs(System.currentTimeMillis());
         taskNode.appendStdOut("Task completed");
-        enqueueTasks.addAll(enqueueNextTaskNodes(taskNode, iterator));
+        enqueueTasks.addAll(enqueueNextTaskNodes(taskNode));
         break;
       case NOT_STARTED:
-        // submit task for execution
-        StatusUpdate update = taskRuntime.startExecution(taskDefinitionId, taskNode.getInstanceId(),
-            this);
+        StatusUpdate update = updates.get(taskNodeId);
         taskNode.setStatus(Status.RUNNING);
         taskNode.setStartTimeMs(System.currentTimeMillis());
         if (update != null) {
@@ -198,12 +248,19 @@ public final class LifecycleProcess {
             taskNode.appendStdOut("Task started");
           }
         }
+        // the first status check is due right away unless the task asked otherwise
+        taskNode.setPollIntervalMs(0);
+        taskNode.setNextPollTimeMs(0);
+        if (update != null && update.getRetryAfterMs() > 0) {
+          schedulePoll(taskRuntime, taskNode, update, true);
+        }
         break;
       case RUNNING:
-        // if the task is running fetch the latest status of the task to see if the
-        // status has changed
-        StatusUpdate statusUpdate = taskRuntime.checkStatus(taskDefinitionId,
-            taskNode.getInstanceId(), this);
+        if (!updates.containsKey(taskNodeId)) {
+          // wasn't due for a status check
+          break;
+        }
+        StatusUpdate statusUpdate = updates.get(taskNodeId);
         if (statusUpdate != null) {
           Status newStatus = statusUpdate.getStatus();
           if (newStatus != taskNode.getStatus()) {
@@ -218,31 +275,119 @@ public final class LifecycleProcess {
           }
           if (statusUpdate.getProcessContextUpdate() != null) {
             statusUpdate.getProcessContextUpdate().apply(processContext);
+            stateVersion = StateVersion.next();
           }
           // // if there are no new items in the json
           // if (statusUpdate.getContextUpdates() != null
           // & !statusUpdate.getContextUpdates().entrySet().isEmpty()) {
           // deepMerge(statusUpdate.getContextUpdates(), planContext);
           // }
+          schedulePoll(taskRuntime, taskNode, statusUpdate, newStatus != Status.RUNNING
+              || statusUpdate.getStdOut() != null || statusUpdate.getStdErr() != null);
+        } else {
+          schedulePoll(taskRuntime, taskNode, null, false);
         }
         break;
       default:
         break;
       }
     }
-    currenTaskSet.addAll(enqueueTasks);
+    if (!enqueueTasks.isEmpty()) {
+      currenTaskSet.addAll(enqueueTasks);
+      stateVersion = StateVersion.next();
+    }
   }
 
-  private List<String> enqueueNextTaskNodes(Task taskNode,
-                                            Iterator<String> iterator) throws InstantiationException,
-                                                                       IllegalAccessException {
+  /**
+   * @return tasks of this process that are running
+   */
+  public List<Task> getRunningTasks() {
+    List<Task> running = new ArrayList<>();
+    for (String taskNodeId : currenTaskSet) {
+      Task taskNode = allTasks.get(taskNodeId);
+      if (taskNode != null && taskNode.getStatus() == Status.RUNNING) {
+        running.add(taskNode);
+      }
+    }
+    return running;
+  }
+
+  /**
+   * @return running tasks that are due for a status check on the next
+   *         {@link #continueExecution(TaskRuntime)}
+   */
+  public List<Task> getDueStatusChecks() {
+    List<Task> due = new ArrayList<>();
+    for (Task taskNode : getRunningTasks()) {
+      if (isStatusCheckDue(taskNode)) {
+        due.add(taskNode);
+      }
+    }
+    return due;
+  }
+
+  // not due for a status check until the next poll time
+  private static boolean isStatusCheckDue(Task taskNode) {
+    return System.currentTimeMillis() >= taskNode.getNextPollTimeMs();
+  }
+
+  /**
+   * Schedule the next status check of a task. The interval is reset when the
+   * task made progress and doubled otherwise, a retryAfterMs hint in the status
+   * update takes precedence. Jitter keeps tasks started together from being
+   * checked together.
+   * 
+   * @param taskRuntime bounds the interval
+   * @param taskNode
+   * @param update     latest status update, may be null
+   * @param progressed
+   */
+  private static void schedulePoll(TaskRuntime taskRuntime,
+                                   Task taskNode,
+                                   StatusUpdate update,
+                                   boolean progressed) {
+    long interval;
+    if (update != null && update.getRetryAfterMs() > 0) {
+      interval = update.getRetryAfterMs();
+    } else if (progressed || taskNode.getPollIntervalMs() <= 0) {
+      interval = taskRuntime.getMinPollIntervalMs();
+    } else {
+      interval = Math.min(taskNode.getPollIntervalMs() * 2, taskRuntime.getMaxPollIntervalMs());
+    }
+    taskNode.setPollIntervalMs(interval);
+    long jitter = ThreadLocalRandom.current().nextLong(interval / 5 + 1);
+    taskNode.setNextPollTimeMs(System.currentTimeMillis() + interval + jitter);
+  }
+
+  /**
+   * @return earliest time a task of this process needs to be visited, 0 if a
+   *         task can be advanced right away
+   */
+  public long nextPollTimeMs() {
+    if (endStatus == Status.NOT_STARTED) {
+      return 0;
+    }
+    long next = Long.MAX_VALUE;
+    for (String taskNodeId : currenTaskSet) {
+      Task taskNode = allTasks.get(taskNodeId);
+      if (taskNode.getStatus() != Status.RUNNING) {
+        return 0;
+      }
+      next = Math.min(next, taskNode.getNextPollTimeMs());
+    }
+    return next;
+  }
+
+  private List<String> enqueueNextTaskNodes(Task taskNode) throws InstantiationException,
+                                                            IllegalAccessException {
     List<String> nextTasks = taskNode.getNextPointers().get(taskNode.getStatus());
     if (nextTasks == null) {
       throw new IllegalAccessException("Unhandled task status for:" + taskNode.getTaskDefinitionId()
           + " status:" + taskNode.getStatus());
     }
 
-    iterator.remove();
+    currenTaskSet.remove(taskNode.getInstanceId());
+    stateVersion = StateVersion.next();
     return nextTasks;
   }
 
@@ -252,6 +397,7 @@ public final class LifecycleProcess {
 
   public void setEndStatus(Status endStatus) {
     this.endStatus = endStatus;
+    stateVersion = StateVersion.next();
   }
 
   public int getMaxConcurrentTasks() {
@@ -272,10 +418,12 @@ public final class LifecycleProcess {
 
   public void setCurrenTaskSet(Set<String> currenTaskSet) {
     this.currenTaskSet = currenTaskSet;
+    stateVersion = StateVersion.next();
   }
 
   public void setAllTasks(Map<String, Task> allTasks) {
     this.allTasks = allTasks;
+    stateVersion = StateVersion.next();
   }
 
   public String getStartTaskId() {
@@ -292,6 +440,18 @@ public final class LifecycleProcess {
 
   public void setAllNodes(Map<String, Task> allNodes) {
     this.allTasks = allNodes;
+    stateVersion = StateVersion.next();
+  }
+
+  /**
+   * @return version of the last change to this process or any of its tasks
+   */
+  public long getStateVersion() {
+    long version = stateVersion;
+    for (Task task : allTasks.values()) {
+      version = Math.max(version, task.getStateVersion());
+    }
+    return version;
   }
 
   public String getProcessId() {
@@ -300,6 +460,7 @@ public final class LifecycleProcess {
 
   public void setProcessId(String processId) {
     this.processId = processId;
+    stateVersion = StateVersion.next();
   }
 
   public ProcessType getProcessType() {
@@ -316,6 +477,7 @@ public final class LifecycleProcess {
 
   public void setStartTimeMs(long startTimeMs) {
     this.startTimeMs = startTimeMs;
+    stateVersion = StateVersion.next();
   }
 
   public long getEndTimeMs() {
@@ -324,6 +486,7 @@ public final class LifecycleProcess {
 
   public void setEndTimeMs(long endTimeMs) {
     this.endTimeMs = endTimeMs;
+    stateVersion = StateVersion.next();
   }
 
   /**
@@ -343,6 +506,7 @@ public final class LifecycleProcess {
 
   public void setExecutionId(String executionId) {
     this.executionId = executionId;
+    stateVersion = StateVersion.next();
   }
 
   @Override
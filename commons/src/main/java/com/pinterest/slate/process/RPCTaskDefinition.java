@@ -15,6 +15,9 @@
  */
 package com.pinterest.slate.process;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +30,10 @@ public class RPCTaskDefinition extends TaskDefinition {
 
   private static final Logger logger = Logger.getLogger(RPCTaskDefinition.class.getCanonicalName());
   private String url;
+  private String batchStatusUrl;
+  private String invocationUrl;
+  private Set<String> processContextProjection;
+  private boolean acceptsPushedUpdates;
 
   public RPCTaskDefinition(String url, String taskDefinitionId) {
     this.url = url;
@@ -40,8 +47,8 @@ public class RPCTaskDefinition extends TaskDefinition {
                                      JsonObject processContext,
                                      JsonObject taskContext) throws Exception {
     try {
-      StatusUpdate makeHttpPost = HttpUtils.makeHttpPost(url + "/" + taskId + "/execution", process,
-          StatusUpdate.class, true);
+      StatusUpdate makeHttpPost = HttpUtils.makeHttpPost(callUrl(taskId, "execution"),
+          body(runtime, taskId, process), StatusUpdate.class, true, isSlim());
       return makeHttpPost;
     } catch (ServiceUnavailableException e) {
       logger.log(Level.SEVERE, "Failed to start task execution for taskdef(" + taskDefinitionId + ")", e);
@@ -56,24 +63,135 @@ public class RPCTaskDefinition extends TaskDefinition {
                                   JsonObject processContext,
                                   JsonObject taskContext) throws Exception {
     try {
-      return HttpUtils.makeHttpPost(url + "/" + taskId + "/status", process, StatusUpdate.class,
-          true);
+      return HttpUtils.makeHttpPost(callUrl(taskId, "status"), body(runtime, taskId, process),
+          StatusUpdate.class, true, isSlim());
     } catch (ServiceUnavailableException e) {
       logger.log(Level.SEVERE, "Failed to check task status for taskdef(" + taskDefinitionId + ")", e);
       return StatusUpdate.create(Status.RUNNING);
     }
   }
 
+  @Override
+  public boolean isAsync() {
+    return true;
+  }
+
+  @Override
+  public CompletableFuture<StatusUpdate> startExecutionAsync(TaskRuntime runtime,
+                                                             String taskId,
+                                                             LifecycleProcess process,
+                                                             JsonObject processContext,
+                                                             JsonObject taskContext) {
+    CompletableFuture<StatusUpdate> future = HttpUtils.makeHttpPostAsync(
+        callUrl(taskId, "execution"), body(runtime, taskId, process), StatusUpdate.class, true,
+        isSlim());
+    return retryIfUnavailable(future, "Failed to start task execution");
+  }
+
+  @Override
+  public CompletableFuture<StatusUpdate> checkStatusAsync(TaskRuntime runtime,
+                                                          String taskId,
+                                                          LifecycleProcess process,
+                                                          JsonObject processContext,
+                                                          JsonObject taskContext) {
+    CompletableFuture<StatusUpdate> future = HttpUtils.makeHttpPostAsync(callUrl(taskId, "status"),
+        body(runtime, taskId, process), StatusUpdate.class, true, isSlim());
+    return retryIfUnavailable(future, "Failed to check task status");
+  }
+
+  // same as the blocking calls, an unavailable satellite leaves the task
+  // running so the call is made again on the next status check
+  private CompletableFuture<StatusUpdate> retryIfUnavailable(CompletableFuture<StatusUpdate> future,
+                                                             String message) {
+    return future.handle((update, e) -> {
+      if (e == null) {
+        return update;
+      }
+      Throwable cause = HttpUtils.unwrap(e);
+      if (cause instanceof ServiceUnavailableException) {
+        logger.log(Level.SEVERE, message + " for taskdef(" + taskDefinitionId + ")", cause);
+        return StatusUpdate.create(Status.RUNNING);
+      }
+      throw new CompletionException(cause);
+    });
+  }
+
   @Override
   public void validate(String taskId,
                        LifecycleProcess process,
                        JsonObject processContext,
                        JsonObject taskContext) throws Exception {
-    HttpUtils.makeHttpPost(url + "/" + taskId + "/validation", process, Void.class);
+    HttpUtils.makeHttpPost(callUrl(taskId, "validation"), body(null, taskId, process), Void.class,
+        false, isSlim());
+  }
+
+  // satellites that don't accept invocations are sent the whole process
+  private boolean isSlim() {
+    return invocationUrl != null;
+  }
+
+  private String callUrl(String taskId, String call) {
+    return isSlim() ? invocationUrl + "/" + call : url + "/" + taskId + "/" + call;
+  }
+
+  // tasks that push their status updates are sent the callback token with
+  // every call
+  private Object body(TaskRuntime runtime, String taskId, LifecycleProcess process) {
+    if (!isSlim()) {
+      return process;
+    }
+    TaskInvocation invocation = TaskInvocation.create(taskDefinitionId, taskId, process,
+        processContextProjection);
+    if (acceptsPushedUpdates && runtime != null) {
+      invocation.setCallbackToken(runtime.getCallbackToken(process.getProcessId(), taskId));
+    }
+    return invocation;
   }
 
   public String getUrl() {
     return url;
   }
 
+  /**
+   * @return url of the batch status endpoint of the satellite serving this
+   *         task, null if status checks can't be batched
+   */
+  public String getBatchStatusUrl() {
+    return batchStatusUrl;
+  }
+
+  public void setBatchStatusUrl(String batchStatusUrl) {
+    this.batchStatusUrl = batchStatusUrl;
+  }
+
+  /**
+   * @return base url of the {@link TaskInvocation} endpoints of the satellite,
+   *         null if it only accepts the whole process
+   */
+  public String getInvocationUrl() {
+    return invocationUrl;
+  }
+
+  public void setInvocationUrl(String invocationUrl) {
+    this.invocationUrl = invocationUrl;
+  }
+
+  @Override
+  public Set<String> getProcessContextProjection() {
+    return processContextProjection;
+  }
+
+  public void setProcessContextProjection(Set<String> processContextProjection) {
+    this.processContextProjection = processContextProjection;
+  }
+
+  @Override
+  public boolean acceptsPushedUpdates() {
+    return acceptsPushedUpdates;
+  }
+
+  public void setAcceptsPushedUpdates(boolean acceptsPushedUpdates) {
+    this.acceptsPushedUpdates = acceptsPushedUpdates;
+  }
+
 }
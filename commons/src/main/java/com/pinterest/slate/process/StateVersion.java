@@ -0,0 +1,36 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.process;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions stamped on execution state by its mutators. Versions come from a
+ * single counter so the latest version of anything in a graph, tasks,
+ * processes and vertices included, increases whenever any of it changes.
+ */
+public final class StateVersion {
+
+  private static final AtomicLong CLOCK = new AtomicLong();
+
+  private StateVersion() {
+  }
+
+  public static long next() {
+    return CLOCK.incrementAndGet();
+  }
+
+}
@@ -23,6 +23,8 @@ public class StatusUpdate {
   private String stdOut;
   private String stdErr;
   private JsonPatch processContextUpdate;
+  // hint from the task on when it should be checked again, 0 if there is none
+  private long retryAfterMs;
 
   public Status getStatus() {
     return status;
@@ -56,6 +58,14 @@ public class StatusUpdate {
     this.processContextUpdate = processContextUpdate;
   }
 
+  public long getRetryAfterMs() {
+    return retryAfterMs;
+  }
+
+  public void setRetryAfterMs(long retryAfterMs) {
+    this.retryAfterMs = retryAfterMs;
+  }
+
   public static StatusUpdate create(Status status) {
     StatusUpdate statusUpdate = new StatusUpdate();
     statusUpdate.setStatus(status);
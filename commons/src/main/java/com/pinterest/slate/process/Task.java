@@ -33,6 +33,13 @@ public class Task {
   private Status status = Status.NOT_STARTED;
   private List<ProcessLogMessage> stdOut = new ArrayList<>();
   private List<ProcessLogMessage> stdErr = new ArrayList<>();
+  // when a running task is next due for a status check and the backoff used to
+  // schedule it
+  private long nextPollTimeMs;
+  private long pollIntervalMs;
+  // version of the last change to the execution state of this task, not
+  // serialized
+  private transient long stateVersion = StateVersion.next();
   public static final String FAIL_PROCESS_TASK = "failProcess";
   public static final String SUCCEED_PROCESS_TASK = "succeedProcess";
 
@@ -74,6 +81,7 @@ public class Task {
 
   public void setStartTimeMs(long startTimeMs) {
     this.startTimeMs = startTimeMs;
+    stateVersion = StateVersion.next();
   }
 
   public long getEndTimeMs() {
@@ -82,6 +90,7 @@ public class Task {
 
   public void setEndTimeMs(long endTimeMs) {
     this.endTimeMs = endTimeMs;
+    stateVersion = StateVersion.next();
   }
 
   public void setInstanceId(String instanceId) {
@@ -94,10 +103,12 @@ public class Task {
 
   public void setStdOut(List<ProcessLogMessage> stdOut) {
     this.stdOut = stdOut;
+    stateVersion = StateVersion.next();
   }
 
   public void setStdErr(List<ProcessLogMessage> stdErr) {
     this.stdErr = stdErr;
+    stateVersion = StateVersion.next();
   }
 
   public String getInstanceId() {
@@ -122,19 +133,49 @@ public class Task {
 
   public void setStatus(Status status) {
     this.status = status;
+    stateVersion = StateVersion.next();
+  }
+
+  public long getNextPollTimeMs() {
+    return nextPollTimeMs;
+  }
+
+  public void setNextPollTimeMs(long nextPollTimeMs) {
+    this.nextPollTimeMs = nextPollTimeMs;
+    stateVersion = StateVersion.next();
+  }
+
+  public long getPollIntervalMs() {
+    return pollIntervalMs;
+  }
+
+  public void setPollIntervalMs(long pollIntervalMs) {
+    this.pollIntervalMs = pollIntervalMs;
+    stateVersion = StateVersion.next();
   }
 
   public void appendStdOut(String msg) {
     stdOut.add(new ProcessLogMessage(System.currentTimeMillis(), msg));
+    stateVersion = StateVersion.next();
   }
 
   public void appendStdErr(String msg) {
     stdErr.add(new ProcessLogMessage(System.currentTimeMillis(), msg));
+    stateVersion = StateVersion.next();
   }
 
   public void appendStdErr(String msg, Exception e) {
     stdErr
         .add(new ProcessLogMessage(System.currentTimeMillis(), msg + ". Cause:" + e.getMessage()));
+    stateVersion = StateVersion.next();
+  }
+
+  /**
+   * @return version of the last change to the status, times, poll schedule or
+   *         logs of this task
+   */
+  public long getStateVersion() {
+    return stateVersion;
   }
 
   public List<ProcessLogMessage> getStdErr() {
@@ -15,6 +15,9 @@
  */
 package com.pinterest.slate.process;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.pinterest.slate.human.TaskSystem;
@@ -55,6 +58,69 @@ public abstract class TaskDefinition {
                                            JsonObject processContext,
                                            JsonObject taskContext) throws Exception;
 
+  /**
+   * @return true if {@link #startExecutionAsync} and {@link #checkStatusAsync}
+   *         don't block the calling thread, otherwise the runtime calls the
+   *         blocking methods from its own threads
+   */
+  public boolean isAsync() {
+    return false;
+  }
+
+  /**
+   * Non-blocking variant of {@link #startExecution}, the default makes the
+   * blocking call on the calling thread.
+   */
+  public CompletableFuture<StatusUpdate> startExecutionAsync(TaskRuntime runtime,
+                                                             String taskId,
+                                                             LifecycleProcess process,
+                                                             JsonObject processContext,
+                                                             JsonObject taskContext) {
+    try {
+      return CompletableFuture
+          .completedFuture(startExecution(runtime, taskId, process, processContext, taskContext));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #checkStatus}, the default makes the
+   * blocking call on the calling thread.
+   */
+  public CompletableFuture<StatusUpdate> checkStatusAsync(TaskRuntime runtime,
+                                                          String taskId,
+                                                          LifecycleProcess process,
+                                                          JsonObject processContext,
+                                                          JsonObject taskContext) {
+    try {
+      return CompletableFuture
+          .completedFuture(checkStatus(runtime, taskId, process, processContext, taskContext));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Keys of the process context a task served by a satellite reads, only these
+   * and the task context are sent with its calls. Definitions read the whole
+   * context unless they opt in to slim calls by overriding this.
+   * 
+   * @return keys of the process context, null for the whole context
+   */
+  public Set<String> getProcessContextProjection() {
+    return null;
+  }
+
+  /**
+   * @return true if status updates of this task may be pushed to Slate core
+   *         with the callback token of the task instead of waiting for the
+   *         next status check
+   */
+  public boolean acceptsPushedUpdates() {
+    return false;
+  }
+
   public abstract void validate(String taskId,
                                 LifecycleProcess process,
                                 JsonObject processContext,
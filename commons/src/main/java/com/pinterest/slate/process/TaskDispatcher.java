@@ -0,0 +1,119 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.process;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import com.pinterest.slate.utils.DaemonThreadFactory;
+import com.pinterest.slate.utils.HttpUtils;
+
+/**
+ * Makes the task start and status calls of a {@link LifecycleProcess}
+ * concurrently, each process is capped at its maxConcurrentTasks or the default
+ * when it doesn't set one.
+ *
+ * Calls are futures so tasks with an async definition (e.g. RPC tasks) only
+ * occupy a slot while their request is outstanding, not a thread, blocking
+ * calls are made on the dispatcher threads.
+ */
+public class TaskDispatcher {
+
+  private static final Executor INLINE = Runnable::run;
+  private ExecutorService executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+  private final int defaultMaxConcurrentTasks;
+
+  public TaskDispatcher() {
+    this(1);
+  }
+
+  /**
+   * @param defaultMaxConcurrentTasks cap of processes that don't set their
+   *                                  maxConcurrentTasks
+   */
+  public TaskDispatcher(int defaultMaxConcurrentTasks) {
+    this.defaultMaxConcurrentTasks = defaultMaxConcurrentTasks;
+  }
+
+  /**
+   * Invoke the calls with at most maxConcurrentTasks outstanding at a time,
+   * when only one call can be outstanding blocking calls are made inline on
+   * the calling thread.
+   * 
+   * @param calls              keyed by task id
+   * @param maxConcurrentTasks
+   * @return result of each call keyed by task id, results may be null
+   * @throws Exception the first exception thrown by a call once all the calls
+   *                   have finished
+   */
+  public Map<String, StatusUpdate> invokeAll(Map<String, TaskCall> calls,
+                                             int maxConcurrentTasks) throws Exception {
+    int window = Math.max(1, Math.min(maxConcurrentTasks, calls.size()));
+    Executor callExecutor = window > 1 ? executor : INLINE;
+    Semaphore outstanding = new Semaphore(window);
+    Map<String, CompletableFuture<StatusUpdate>> futures = new LinkedHashMap<>();
+    for (Entry<String, TaskCall> call : calls.entrySet()) {
+      outstanding.acquire();
+      CompletableFuture<StatusUpdate> future;
+      try {
+        future = call.getValue().call(callExecutor);
+      } catch (Exception e) {
+        future = CompletableFuture.failedFuture(e);
+      }
+      future.whenComplete((result, e) -> outstanding.release());
+      futures.put(call.getKey(), future);
+    }
+    Map<String, StatusUpdate> results = new HashMap<>();
+    Exception failure = null;
+    for (Entry<String, CompletableFuture<StatusUpdate>> entry : futures.entrySet()) {
+      try {
+        results.put(entry.getKey(), entry.getValue().join());
+      } catch (CompletionException e) {
+        if (failure == null) {
+          Throwable cause = HttpUtils.unwrap(e);
+          failure = cause instanceof Exception ? (Exception) cause : e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  public int getDefaultMaxConcurrentTasks() {
+    return defaultMaxConcurrentTasks;
+  }
+
+  /**
+   * A task call started with the executor for any blocking work it has to do.
+   */
+  @FunctionalInterface
+  public interface TaskCall {
+
+    CompletableFuture<StatusUpdate> call(Executor executor) throws Exception;
+
+  }
+
+}
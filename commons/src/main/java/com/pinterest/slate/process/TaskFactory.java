@@ -17,6 +17,7 @@ package com.pinterest.slate.process;
 
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -42,6 +43,9 @@ public class TaskFactory {
   private static final String API_TASKS = "/api/v1/tasks";
   protected TaskSystem ts;
   private SlateConfig config;
+  // satellites whose projections couldn't be loaded, their definitions are
+  // sent whole processes and upgraded once a later refresh loads them
+  private Set<String> unprobedSatellites = ConcurrentHashMap.newKeySet();
 
   protected TaskFactory() {
   }
@@ -84,12 +88,36 @@ public class TaskFactory {
       try {
         Set<String> set = HttpUtils.makeHttpGet(taskServerUrl + API_TASKS + "/definitions",
             taskMapType);
+        boolean unprobed = unprobedSatellites.contains(taskServerUrl);
+        if (!unprobed && taskRegistry.keySet().containsAll(set)) {
+          continue;
+        }
+        Map<String, Set<String>> projections = loadProcessContextProjections(taskServerUrl);
+        Set<String> pushed = Collections.emptySet();
+        if (projections == null) {
+          if (unprobedSatellites.add(taskServerUrl)) {
+            logger.info("Failed to load process context projections, sending whole processes"
+                + " until they are loaded:" + taskServerUrl);
+          }
+          projections = Collections.emptyMap();
+        } else {
+          unprobedSatellites.remove(taskServerUrl);
+          pushed = loadPushedDefinitions(taskServerUrl);
+        }
         for (String entry : set) {
-          if (taskRegistry.containsKey(entry)) {
+          TaskDefinition existing = taskRegistry.get(entry);
+          if (existing != null && !(unprobed && projections.containsKey(entry)
+              && isWholeProcessDefinition(existing, taskServerUrl))) {
             // ignore existing definitions
             continue;
           }
           RPCTaskDefinition value = new RPCTaskDefinition(taskServerUrl + API_TASKS + "/" + entry, entry);
+          if (projections.containsKey(entry)) {
+            value.setInvocationUrl(taskServerUrl + API_TASKS + "/invocations");
+            value.setProcessContextProjection(projections.get(entry));
+            value.setBatchStatusUrl(taskServerUrl + API_TASKS + "/status");
+            value.setAcceptsPushedUpdates(pushed.contains(entry));
+          }
           taskRegistry.put(entry, value);
           logger.info("Loading remote task definition:" + entry);
         }
@@ -100,6 +128,49 @@ public class TaskFactory {
     }
   }
 
+  // definition of the satellite loaded before its projections were
+  private static boolean isWholeProcessDefinition(TaskDefinition definition,
+                                                  String taskServerUrl) {
+    return definition instanceof RPCTaskDefinition
+        && ((RPCTaskDefinition) definition).getInvocationUrl() == null
+        && ((RPCTaskDefinition) definition).getUrl().startsWith(taskServerUrl + API_TASKS + "/");
+  }
+
+  /**
+   * @param taskServerUrl
+   * @return process context projection of each task definition of the
+   *         satellite, null if they couldn't be loaded, e.g. because the
+   *         satellite doesn't accept {@link TaskInvocation}s or is restarting
+   */
+  private Map<String, Set<String>> loadProcessContextProjections(String taskServerUrl) {
+    try {
+      Map<String, Set<String>> projections = HttpUtils.makeHttpGet(
+          taskServerUrl + API_TASKS + "/projections", new TypeToken<Map<String, Set<String>>>() {
+          }.getType());
+      return projections != null ? projections : Collections.emptyMap();
+    } catch (Exception e) {
+      logger.log(Level.FINE, "Failed to load process context projections:" + taskServerUrl, e);
+      return null;
+    }
+  }
+
+  /**
+   * @param taskServerUrl
+   * @return task definitions of the satellite that push their status updates,
+   *         empty if the satellite doesn't report them
+   */
+  private Set<String> loadPushedDefinitions(String taskServerUrl) {
+    try {
+      Set<String> pushed = HttpUtils.makeHttpGet(taskServerUrl + API_TASKS + "/pushed",
+          new TypeToken<Set<String>>() {
+          }.getType());
+      return pushed != null ? pushed : Collections.emptySet();
+    } catch (Exception e) {
+      logger.info("Satellite doesn't push status updates:" + taskServerUrl);
+      return Collections.emptySet();
+    }
+  }
+
   public static TaskFactory getInstance() {
     return INSTANCE;
   }
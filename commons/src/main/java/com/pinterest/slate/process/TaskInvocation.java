@@ -0,0 +1,148 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.process;
+
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Request body of a task call made to a satellite. Instead of the whole
+ * {@link LifecycleProcess}, whose task logs grow for as long as the process
+ * runs, it carries the ids of the call, the task context and the keys of the
+ * process context the task definition asked for.
+ */
+public class TaskInvocation {
+
+  // key of the callback token in the task context of the process the task
+  // definition is called with
+  public static final String CALLBACK_TOKEN_KEY = "_callbackToken";
+  // header status updates are pushed with the callback token in
+  public static final String CALLBACK_TOKEN_HEADER = "x-slate-callback-token";
+  private String taskDefinitionId;
+  private String taskId;
+  private String processId;
+  private String executionId;
+  private JsonObject taskContext;
+  private JsonObject processContext;
+  private String callbackToken;
+
+  public TaskInvocation() {
+  }
+
+  /**
+   * @param taskDefinitionId
+   * @param taskId
+   * @param process
+   * @param projection       keys of the process context to include, null for
+   *                         the whole context
+   * @return
+   */
+  public static TaskInvocation create(String taskDefinitionId,
+                                      String taskId,
+                                      LifecycleProcess process,
+                                      Set<String> projection) {
+    TaskInvocation invocation = new TaskInvocation();
+    invocation.taskDefinitionId = taskDefinitionId;
+    invocation.taskId = taskId;
+    invocation.processId = process.getProcessId();
+    invocation.executionId = process.getExecutionId();
+    JsonObject context = process.getProcessContext();
+    if (context == null) {
+      return invocation;
+    }
+    JsonElement taskContext = context.get(taskId);
+    if (taskContext != null && taskContext.isJsonObject()) {
+      invocation.taskContext = taskContext.getAsJsonObject();
+    }
+    if (projection == null) {
+      invocation.processContext = context;
+    } else if (!projection.isEmpty()) {
+      invocation.processContext = new JsonObject();
+      for (String key : projection) {
+        if (context.has(key)) {
+          invocation.processContext.add(key, context.get(key));
+        }
+      }
+    }
+    return invocation;
+  }
+
+  /**
+   * @return process the task definition is called with, its context contains
+   *         the projected keys and the task context, which carries the callback
+   *         token under {@link #CALLBACK_TOKEN_KEY} if the call has one
+   */
+  public LifecycleProcess toProcess() {
+    LifecycleProcess process = new LifecycleProcess(processId);
+    process.setExecutionId(executionId);
+    JsonObject context = new JsonObject();
+    if (processContext != null) {
+      for (Entry<String, JsonElement> entry : processContext.entrySet()) {
+        context.add(entry.getKey(), entry.getValue());
+      }
+    }
+    JsonObject callContext = taskContext;
+    if (callbackToken != null) {
+      callContext = taskContext != null ? taskContext.deepCopy() : new JsonObject();
+      callContext.addProperty(CALLBACK_TOKEN_KEY, callbackToken);
+    }
+    if (callContext != null) {
+      context.add(taskId, callContext);
+    }
+    process.setProcessContext(context);
+    return process;
+  }
+
+  public String getTaskDefinitionId() {
+    return taskDefinitionId;
+  }
+
+  public String getTaskId() {
+    return taskId;
+  }
+
+  public String getProcessId() {
+    return processId;
+  }
+
+  public String getExecutionId() {
+    return executionId;
+  }
+
+  public JsonObject getTaskContext() {
+    return taskContext;
+  }
+
+  public JsonObject getProcessContext() {
+    return processContext;
+  }
+
+  /**
+   * @return token the task pushes its status updates with, null if the task
+   *         doesn't push updates
+   */
+  public String getCallbackToken() {
+    return callbackToken;
+  }
+
+  public void setCallbackToken(String callbackToken) {
+    this.callbackToken = callbackToken;
+  }
+
+}
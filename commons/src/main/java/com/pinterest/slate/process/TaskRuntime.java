@@ -15,12 +15,23 @@
  */
 package com.pinterest.slate.process;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 import org.apache.commons.configuration2.Configuration;
 
 public interface TaskRuntime {
 
   void configure(Configuration configuration) throws Exception;
 
+  /**
+   * @return dispatcher the task calls of a process are made with
+   */
+  TaskDispatcher getTaskDispatcher();
+
   StatusUpdate startExecution(String taskDefinitionId,
                                         String taskInstanceId,
                                         LifecycleProcess workflow);
@@ -28,5 +39,98 @@ public interface TaskRuntime {
   StatusUpdate checkStatus(String taskTemplateId,
                            String instanceId,
                            LifecycleProcess workflow);
-  
+
+  /**
+   * Start the task without holding the calling thread for the call, the default
+   * makes the blocking call on the executor.
+   * 
+   * @param taskDefinitionId
+   * @param taskInstanceId
+   * @param workflow
+   * @param executor runs blocking calls
+   * @return
+   */
+  default CompletableFuture<StatusUpdate> startExecutionAsync(String taskDefinitionId,
+                                                              String taskInstanceId,
+                                                              LifecycleProcess workflow,
+                                                              Executor executor) {
+    return CompletableFuture.supplyAsync(
+        () -> startExecution(taskDefinitionId, taskInstanceId, workflow), executor);
+  }
+
+  /**
+   * Check the status of the task without holding the calling thread for the
+   * call, the default makes the blocking call on the executor.
+   * 
+   * @param taskTemplateId
+   * @param instanceId
+   * @param workflow
+   * @param executor runs blocking calls
+   * @return
+   */
+  default CompletableFuture<StatusUpdate> checkStatusAsync(String taskTemplateId,
+                                                           String instanceId,
+                                                           LifecycleProcess workflow,
+                                                           Executor executor) {
+    return CompletableFuture.supplyAsync(() -> checkStatus(taskTemplateId, instanceId, workflow),
+        executor);
+  }
+
+  /**
+   * Make the status checks the processes are due for ahead of visiting them,
+   * e.g. to batch the checks of tasks served by the same satellite.
+   * 
+   * @param processes
+   * @return status updates by process id and task instance id, to be passed to
+   *         {@link LifecycleProcess#continueExecution(TaskRuntime, Map)} in the
+   *         same tick; checks that weren't made are missing
+   */
+  default Map<String, Map<String, StatusUpdate>> prefetchStatus(
+      Collection<LifecycleProcess> processes) {
+    return Collections.emptyMap();
+  }
+
+  /**
+   * @param processId
+   * @param taskInstanceId
+   * @return token the task pushes its status updates with, null if updates
+   *         can't be pushed
+   */
+  default String getCallbackToken(String processId, String taskInstanceId) {
+    return null;
+  }
+
+  /**
+   * @param processId
+   * @param taskInstanceId
+   * @param token
+   * @return true if the token was issued for the task
+   */
+  default boolean isValidCallbackToken(String processId, String taskInstanceId, String token) {
+    return false;
+  }
+
+  /**
+   * @param taskDefinitionId
+   * @return true if status updates pushed by tasks of the definition are
+   *         applied
+   */
+  default boolean acceptsPushedUpdates(String taskDefinitionId) {
+    return false;
+  }
+
+  /**
+   * @return lower bound of the backoff between status checks of a running task
+   */
+  default long getMinPollIntervalMs() {
+    return 1000;
+  }
+
+  /**
+   * @return upper bound of the backoff between status checks of a running task
+   */
+  default long getMaxPollIntervalMs() {
+    return 300_000;
+  }
+
 }
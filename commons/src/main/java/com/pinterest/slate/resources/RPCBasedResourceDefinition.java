@@ -20,6 +20,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +36,7 @@ public class RPCBasedResourceDefinition implements ResourceDefinition {
   private static final Logger logger = Logger
       .getLogger(RPCBasedResourceDefinition.class.getCanonicalName());
   private String baseUrl;
+  private String satelliteUrl;
   private String chatLink;
   private String author;
   private JsonObject configSchema;
@@ -78,6 +81,39 @@ public class RPCBasedResourceDefinition implements ResourceDefinition {
     }
   }
 
+  @Override
+  public CompletableFuture<Plan> planChangeAsync(ResourceChange change) {
+    CompletableFuture<Plan> future = HttpUtils.makeHttpPostAsync(baseUrl, change,
+        new TypeToken<Plan>() {
+        }.getType());
+    return wrapIOException(future, "Failed to plan resource(" + simpleName + ")");
+  }
+
+  @Override
+  public CompletableFuture<JsonObject> readExternalCurrentStateAsync(Resource resource) {
+    CompletableFuture<JsonObject> future = HttpUtils.makeHttpPostAsync(
+        baseUrl + "/currentstate", resource, new TypeToken<JsonObject>() {
+        }.getType());
+    return wrapIOException(future,
+        "Failed to get external current state resource(" + simpleName + ")");
+  }
+
+  // IOExceptions are reported as PlanExceptions same as the blocking calls
+  private static <T> CompletableFuture<T> wrapIOException(CompletableFuture<T> future,
+                                                          String message) {
+    return future.handle((result, e) -> {
+      if (e == null) {
+        return result;
+      }
+      Throwable cause = HttpUtils.unwrap(e);
+      if (cause instanceof IOException) {
+        logger.log(Level.SEVERE, message, cause);
+        throw new CompletionException(new PlanException(cause));
+      }
+      throw new CompletionException(cause);
+    });
+  }
+
   @Override
   public Iterator<List<Resource>> getAllBackfillResources(AbstractResourceDB resourceDB) throws Exception {
     return new Iterator<List<Resource>>() {
@@ -151,6 +187,14 @@ public class RPCBasedResourceDefinition implements ResourceDefinition {
     this.baseUrl = baseUrl;
   }
 
+  public String getSatelliteUrl() {
+    return satelliteUrl;
+  }
+
+  public void setSatelliteUrl(String satelliteUrl) {
+    this.satelliteUrl = satelliteUrl;
+  }
+
   public void setInternalSchema(JsonObject internalSchema) {
     this.internalSchema = internalSchema;
   }
@@ -44,6 +44,7 @@ import com.pinterest.slate.graph.storage.SetAttributeCSVConverter;
 @NamedQueries({
     @NamedQuery(name = "searchResourcesLike", query = "select r.id, r.resourceDefinitionClass from Resource r where r.id like :idPrefix"),
     @NamedQuery(name = "resourceTimestamp", query = "select r.id, r.lastUpdateTimestamp from Resource r where r.id in :ids"),
+    @NamedQuery(name = "resourcesById", query = "select r from Resource r where r.id in :ids"),
     @NamedQuery(name = "resourceStats", query = "select r.resourceDefinitionClass, count(r.id) from Resource r where r.resourceDefinitionClass in :defs group by r.resourceDefinitionClass"),
     @NamedQuery(name = "searchResource", query = "select r.id, r.resourceDefinitionClass from Resource r where (:rdc is NULL or r.resourceDefinitionClass = :rdc) and (:idContents is NULL or r.id like :idContents) and (:project is NULL or r.project = :project) and (:owner is NULL or r.owner = :owner)"),
     @NamedQuery(name = "searchResourceCount", query = "select count(r.id) from Resource r where (:rdc is NULL or r.resourceDefinitionClass = :rdc) and (:idContents is NULL or r.id like :idContents) and (:project is NULL or r.project = :project) and (:owner is NULL or r.owner = :owner)"),
@@ -21,6 +21,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -165,6 +166,21 @@ public interface ResourceDefinition {
     return null;
   }
 
+  /**
+   * Non-blocking variant of {@link #planChange(ResourceChange)}, the default
+   * plans on the calling thread.
+   * 
+   * @param change
+   * @return future completed with the plan or the {@link PlanException}
+   */
+  public default CompletableFuture<Plan> planChangeAsync(ResourceChange change) {
+    try {
+      return CompletableFuture.completedFuture(planChange(change));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   /**
    * Return metrics for this Resource, these metrics are used to render chart in
    * UI.<br/>
@@ -239,6 +255,18 @@ public interface ResourceDefinition {
     return resource.getDesiredState();
   }
 
+  /**
+   * Non-blocking variant of {@link #readExternalCurrentState(Resource)}, the
+   * default reads the state on the calling thread.
+   */
+  public default CompletableFuture<JsonObject> readExternalCurrentStateAsync(Resource resource) {
+    try {
+      return CompletableFuture.completedFuture(readExternalCurrentState(resource));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   public Set<String> getTags();
 
   public String getSimpleName();
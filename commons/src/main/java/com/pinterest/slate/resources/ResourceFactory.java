@@ -43,6 +43,7 @@ import com.pinterest.slate.SlateConfig;
 import com.pinterest.slate.graph.AbstractResourceDB;
 import com.pinterest.slate.utils.DaemonThreadFactory;
 import com.pinterest.slate.utils.HttpUtils;
+import com.pinterest.slate.validation.ConfigSchemaValidator;
 
 public class ResourceFactory {
 
@@ -88,6 +89,7 @@ public class ResourceFactory {
         RPCBasedResourceDefinition newInstance = entry.getValue();
         String baseUrl = url + API_RESOURCES + "/" + resourceClass;
         newInstance.setBaseUrl(baseUrl);
+        newInstance.setSatelliteUrl(url);
         resourceDefinitionLocalityMap.put(baseUrl, entry.getKey());
         try {
           String canonicalName = resourceClass;
@@ -127,7 +129,12 @@ public class ResourceFactory {
             internalProps.remove(name);
           }
           newInstance.setInternalSchema(internalSchema);
-          resourceMap.put(canonicalName, newInstance);
+          ResourceDefinition previous = resourceMap.put(canonicalName, newInstance);
+          // invalidated once the new definition is visible so a validation in
+          // between can't cache the schema of the previous one
+          if (previous == null || !internalSchema.equals(previous.getInternalSchema())) {
+            ConfigSchemaValidator.invalidateSchema(canonicalName);
+          }
         } catch (Exception e) {
           logger.log(Level.SEVERE,
               "Failed to initialize ResourceDefinition for:" + newInstance.getSimpleName(), e);
@@ -0,0 +1,157 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Streaming json encoding and decoding shared by {@link HttpUtils} and the
+ * jersey message body handler, bodies are decoded straight from the stream
+ * instead of being read into a String first and decoding stops once a body
+ * exceeds {@link #MAX_BODY_BYTES}.
+ */
+public final class GsonStreams {
+
+  public static final long MAX_BODY_BYTES = System.getenv("HTTP_MAX_BODY_BYTES") != null
+      ? Long.parseLong(System.getenv("HTTP_MAX_BODY_BYTES"))
+      : 64L * 1024 * 1024;
+
+  private GsonStreams() {
+  }
+
+  /**
+   * @param gson
+   * @param in      isn't closed
+   * @param charset
+   * @param type
+   * @return decoded value, null if the stream is empty
+   * @throws BodyTooLargeException if the stream has more than
+   *                               {@link #MAX_BODY_BYTES}
+   * @throws IOException           if the stream fails or isn't valid json
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T read(Gson gson,
+                           InputStream in,
+                           Charset charset,
+                           Type type) throws IOException {
+    JsonReader reader = new JsonReader(new BufferedReader(
+        new InputStreamReader(new BoundedInputStream(in, MAX_BODY_BYTES), charset)));
+    // same leniency as Gson.fromJson, the adapter is used directly since
+    // fromJson reports stream failures as syntax errors
+    reader.setLenient(true);
+    try {
+      reader.peek();
+    } catch (EOFException e) {
+      return null;
+    }
+    return (T) gson.getAdapter(TypeToken.get(type)).read(reader);
+  }
+
+  /**
+   * Encode the value as UTF-8 json.
+   * 
+   * @param gson
+   * @param value
+   * @param type
+   * @param out   flushed but not closed
+   * @throws IOException
+   */
+  @SuppressWarnings("unchecked")
+  public static void write(Gson gson, Object value, Type type, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    JsonWriter jsonWriter = gson.newJsonWriter(writer);
+    jsonWriter.setLenient(true);
+    if (value == null) {
+      jsonWriter.nullValue();
+    } else {
+      ((TypeAdapter<Object>) gson.getAdapter(TypeToken.get(type)))
+          .write(jsonWriter, value);
+    }
+    jsonWriter.flush();
+  }
+
+  public static class BodyTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public BodyTooLargeException(long bytes) {
+      super("Body of " + (bytes > 0 ? bytes + " bytes" : "unknown size")
+          + " exceeds the limit of " + MAX_BODY_BYTES + " bytes");
+    }
+
+  }
+
+  private static final class BoundedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long read;
+
+    private BoundedInputStream(InputStream in, long maxBytes) {
+      super(in);
+      this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) {
+        count(n);
+      }
+      return n;
+    }
+
+    private void count(int n) throws BodyTooLargeException {
+      read += n;
+      if (read > maxBytes) {
+        throw new BodyTooLargeException(-1);
+      }
+    }
+
+    @Override
+    public void close() {
+      // the caller owns the underlying stream
+    }
+
+  }
+
+}
@@ -15,39 +15,85 @@
  */
 package com.pinterest.slate.utils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
-import java.security.KeyManagementException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.SSLContext;
 import javax.ws.rs.ServiceUnavailableException;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.ParseException;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.HttpHostConnectException;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContexts;
-import org.apache.http.util.EntityUtils;
 
 import com.google.gson.Gson;
 import com.pinterest.slate.resources.PlanException;
+import com.pinterest.slate.utils.GsonStreams.BodyTooLargeException;
 
 public class HttpUtils {
 
@@ -60,6 +106,45 @@ public class HttpUtils {
   private static final Logger logger = Logger.getLogger(HttpUtils.class.getCanonicalName());
   private static final Gson GSON = new Gson();
   public static final Pattern REQP = Pattern.compile("mesh\\:\\/\\/(?<host>[a-z\\-\\.]+)\\/.*");
+  private static final int MAX_CONNECTIONS = intEnv("HTTP_MAX_CONNECTIONS", 200);
+  private static final int MAX_CONNECTIONS_PER_ROUTE = intEnv("HTTP_MAX_CONNECTIONS_PER_ROUTE",
+      20);
+  private static final long MAX_KEEP_ALIVE_MS = 30_000;
+  // compressed request bodies are only sent to servers known to accept them
+  public static final int GZIP_MIN_BYTES = intEnv("HTTP_GZIP_MIN_BYTES", 8192);
+  private static final String GZIP = "gzip";
+  private static final int MAX_ERROR_BYTES = 64 * 1024;
+  // bodies are decoded as they arrive, GsonStreams stops reading once a body
+  // exceeds the limit
+  private static final BodyHandler<InputStream> STREAMED_BODY = info -> BodySubscribers
+      .ofInputStream();
+  private static final long KEYSTORE_CHECK_INTERVAL_MS = 10_000;
+  private static final ReloadingSSLSocketFactory SSL_SOCKET_FACTORY = new ReloadingSSLSocketFactory();
+  private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER = buildConnectionManager();
+  private static final CloseableHttpClient CLIENT = HttpClients.custom()
+      .setConnectionManager(CONNECTION_MANAGER)
+      .setKeepAliveStrategy((response, context) -> {
+        long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE
+            .getKeepAliveDuration(response, context);
+        return keepAliveMs > 0 ? Math.min(keepAliveMs, MAX_KEEP_ALIVE_MS) : MAX_KEEP_ALIVE_MS;
+      }).evictExpiredConnections()
+      .evictIdleConnections(MAX_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS)
+      .setDefaultRequestConfig(RequestConfig.custom().setConnectTimeout(1000)
+          .setConnectionRequestTimeout(1000).setAuthenticationEnabled(true).build())
+      .build();
+  // the async client has no pool limits of its own, requests that hang are
+  // failed instead of holding on to their connection
+  private static final Duration ASYNC_REQUEST_TIMEOUT = Duration
+      .ofMillis(intEnv("HTTP_ASYNC_REQUEST_TIMEOUT_MS", 60_000));
+  private static final HttpClient ASYNC_CLIENT = asyncClientBuilder().build();
+  private static final AtomicLong ASYNC_IN_FLIGHT = new AtomicLong();
+  private static final AtomicLong ASYNC_REQUESTS = new AtomicLong();
+  private static final AtomicLong ASYNC_TIMEOUTS = new AtomicLong();
+  private static volatile AsyncSSLClient asyncSSLClient;
+  // mesh requests need a Host header which the async client doesn't allow to
+  // be set, they are made with the blocking client on these threads instead
+  private static final ExecutorService MESH_EXECUTOR = Executors
+      .newCachedThreadPool(DaemonThreadFactory.INSTANCE);
 
   private HttpUtils() {
   }
@@ -72,23 +157,19 @@ public class HttpUtils {
     HttpRequestBase getResource = new HttpGet(meshedUrl);
     makeMeshRequest(url, getResource);
     try (CloseableHttpResponse req = HttpUtils.makeRequest(getResource)) {
-      String responseEntity = EntityUtils.toString(req.getEntity());
-      if (req.getStatusLine().getStatusCode() != 200) {
-        logger.info("Status:" + meshedUrl + " " + url + " " + req.getStatusLine().getStatusCode()
-            + " [" + req.getEntity() != null ? responseEntity : "noentity" + "] url:" + url);
+      if (req.getStatusLine().getStatusCode() == 200) {
+        return readJson(req.getEntity(), t);
       }
+      String responseEntity = readError(req.getEntity());
+      logger.info("Status:" + meshedUrl + " " + url + " " + req.getStatusLine().getStatusCode()
+          + " [" + (responseEntity != null ? responseEntity : "noentity") + "] url:" + url);
       if (req.getStatusLine().getStatusCode() == 503) {
         throw new ServiceUnavailableException();
       }
-      if (req.getStatusLine().getStatusCode() == 200) {
-        return GSON.fromJson(responseEntity, t);
-      } else {
-        throw new IOException("Bad response " + req.getStatusLine());
-      }
+      throw new IOException("Bad response " + req.getStatusLine());
     } catch (HttpHostConnectException e) {
       throw new ServiceUnavailableException();
-    } catch (KeyManagementException | NoSuchAlgorithmException | KeyStoreException
-        | IOException e) {
+    } catch (IOException e) {
       throw new IOException(e);
     }
   }
@@ -123,22 +204,67 @@ public class HttpUtils {
                                    Object val,
                                    Type t,
                                    boolean ignore204) throws IOException, PlanException {
+    return makeHttpPost(url, val, t, ignore204, false);
+  }
+
+  /**
+   * @param url
+   * @param val
+   * @param t
+   * @param ignore204
+   * @param compress  gzip the request body if it's at least
+   *                  {@link #GZIP_MIN_BYTES}, the server must accept gzip
+   *                  encoded requests
+   * @return
+   * @throws IOException
+   * @throws PlanException
+   */
+  public static <E> E makeHttpPost(String url,
+                                   Object val,
+                                   Type t,
+                                   boolean ignore204,
+                                   boolean compress) throws IOException, PlanException {
+    return makeHttpPost(url, val, t, ignore204, compress, Collections.emptyMap());
+  }
+
+  /**
+   * @param url
+   * @param val
+   * @param t
+   * @param headers added to the request
+   * @return
+   * @throws IOException
+   * @throws PlanException
+   */
+  public static <E> E makeHttpPost(String url,
+                                   Object val,
+                                   Type t,
+                                   Map<String, String> headers) throws IOException,
+                                                                PlanException {
+    return makeHttpPost(url, val, t, false, false, headers);
+  }
+
+  private static <E> E makeHttpPost(String url,
+                                    Object val,
+                                    Type t,
+                                    boolean ignore204,
+                                    boolean compress,
+                                    Map<String, String> headers) throws IOException,
+                                                                 PlanException {
     String meshedUrl = makeMeshUrl(url);
     HttpPost postResource = new HttpPost(meshedUrl);
-    if (val != null) {
-      String json = GSON.toJson(val);
-      postResource.setEntity(new StringEntity(json));
-      logger.fine(url + json);
-    }
+    setJsonEntity(postResource, url, val, compress);
     makeMeshRequest(url, postResource);
     postResource.addHeader("Origin", meshedUrl);
     postResource.addHeader("Content-Type", "application/json");
+    for (Map.Entry<String, String> header : headers.entrySet()) {
+      postResource.addHeader(header.getKey(), header.getValue());
+    }
     try (CloseableHttpResponse req = HttpUtils.makeRequest(postResource)) {
-      String entity = null;
-      try {
-        entity = EntityUtils.toString(req.getEntity());
-      } catch (Exception e) {
+      if (req.getStatusLine().getStatusCode() == 200 && t != Void.class) {
+        return readJson(req.getEntity(), t);
       }
+      String entity = readError(req.getEntity());
       if (req.getStatusLine().getStatusCode() != 200) {
         logger
             .fine("Status:" + req.getStatusLine().getStatusCode() + " [" + entity + "] url:" + url);
@@ -150,10 +276,7 @@ public class HttpUtils {
         return null;
       }
       if (req.getStatusLine().getStatusCode() == 200) {
-        if (t == Void.class) {
-          return null;
-        }
-        return GSON.fromJson(entity, t);
+        return null;
       } else if (ignore204 && req.getStatusLine().getStatusCode() == 204) {
         return null;
       } else {
@@ -163,8 +286,7 @@ public class HttpUtils {
       }
     } catch (HttpHostConnectException e) {
       throw new ServiceUnavailableException();
-    } catch (KeyManagementException | NoSuchAlgorithmException | KeyStoreException
-        | IOException e) {
+    } catch (IOException e) {
       throw new IOException(e);
     }
   }
@@ -173,23 +295,18 @@ public class HttpUtils {
                                                                   ParseException, PlanException {
     String meshedUrl = makeMeshUrl(url);
     HttpPut putResource = new HttpPut(meshedUrl);
-    if (val != null) {
-      String json = GSON.toJson(val);
-      putResource.setEntity(new StringEntity(json));
-    }
+    setJsonEntity(putResource, url, val, false);
     makeMeshRequest(url, putResource);
     putResource.addHeader("Content-Type", "application/json");
     putResource.addHeader("Origin", meshedUrl);
     try (CloseableHttpResponse req = HttpUtils.makeRequest(putResource)) {
-      String entity = null;
-      try {
-        entity = EntityUtils.toString(req.getEntity());
-      } catch (Exception e) {
+      if (req.getStatusLine().getStatusCode() == 200 && t != Void.class) {
+        return readJson(req.getEntity(), t);
       }
+      String entity = readError(req.getEntity());
       if (req.getStatusLine().getStatusCode() != 200) {
         logger.fine(req.getStatusLine().getStatusCode() + " ["
-            + (req.getEntity() != null ? EntityUtils.toString(req.getEntity()) : "noentity")
-            + "] url:" + url);
+            + (entity != null ? entity : "noentity") + "] url:" + url);
       }
       if (req.getStatusLine().getStatusCode() == 503) {
         throw new ServiceUnavailableException();
@@ -198,10 +315,7 @@ public class HttpUtils {
         return null;
       }
       if (req.getStatusLine().getStatusCode() == 200) {
-        if (t == Void.class) {
-          return null;
-        }
-        return GSON.fromJson(entity, t);
+        return null;
       } else {
         logger.severe("Code:" + req.getStatusLine().getStatusCode() + " " + entity != null ? entity
             : "No error recieved");
@@ -211,17 +325,395 @@ public class HttpUtils {
       }
     } catch (HttpHostConnectException e) {
       throw new ServiceUnavailableException();
-    } catch (KeyManagementException | NoSuchAlgorithmException | KeyStoreException
-        | IOException e) {
+    } catch (IOException e) {
       throw new IOException(e);
     }
   }
 
-  public static CloseableHttpResponse makeRequest(HttpRequestBase request) throws KeyManagementException,
-                                                                           NoSuchAlgorithmException,
-                                                                           KeyStoreException,
-                                                                           IOException {
-    return buildClient(request.getURI().toURL().toString(), 1000, 1000, null).execute(request);
+  /**
+   * Non-blocking variant of {@link #makeHttpGet(String, Type)}, the future
+   * completes exceptionally with the exception the blocking call would throw.
+   * 
+   * @param url
+   * @param t
+   * @return
+   */
+  public static <E> CompletableFuture<E> makeHttpGetAsync(String url, Type t) {
+    if (url.startsWith(MESH_PREFIX)) {
+      return callAsync(() -> makeHttpGet(url, t));
+    }
+    try {
+      HttpRequest request = asyncRequest(url).header("Accept-Encoding", GZIP).GET().build();
+      return sendAsync(url, request).thenApply(response -> {
+        int status = response.statusCode();
+        if (status == 200) {
+          return readJson(response, t);
+        }
+        logger.info("Status:" + url + " " + status + " [" + readError(response) + "]");
+        if (status == 503) {
+          throw new ServiceUnavailableException();
+        }
+        throw new CompletionException(new IOException("Bad response " + status));
+      });
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  public static <E> CompletableFuture<E> makeHttpPostAsync(String url, Object val, Type t) {
+    return makeHttpPostAsync(url, val, t, false);
+  }
+
+  /**
+   * Non-blocking variant of {@link #makeHttpPost(String, Object, Type, boolean)},
+   * the request body is serialized before this method returns so val can be
+   * modified once it does.
+   * 
+   * @param url
+   * @param val
+   * @param t
+   * @param ignore204
+   * @return
+   */
+  public static <E> CompletableFuture<E> makeHttpPostAsync(String url,
+                                                           Object val,
+                                                           Type t,
+                                                           boolean ignore204) {
+    return makeHttpPostAsync(url, val, t, ignore204, false);
+  }
+
+  /**
+   * Non-blocking variant of
+   * {@link #makeHttpPost(String, Object, Type, boolean, boolean)}.
+   */
+  public static <E> CompletableFuture<E> makeHttpPostAsync(String url,
+                                                           Object val,
+                                                           Type t,
+                                                           boolean ignore204,
+                                                           boolean compress) {
+    if (url.startsWith(MESH_PREFIX)) {
+      return callAsync(() -> makeHttpPost(url, val, t, ignore204, compress));
+    }
+    try {
+      HttpRequest.Builder request = jsonRequest(url);
+      request.POST(jsonBody(request, url, val, compress));
+      return sendAsync(url, request.build())
+          .thenApply(response -> parseResponse(url, response, t, ignore204));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Non-blocking variant of {@link #makeHttpPut(String, Object, Type)}.
+   * 
+   * @param url
+   * @param val
+   * @param t
+   * @return
+   */
+  public static <E> CompletableFuture<E> makeHttpPutAsync(String url, Object val, Type t) {
+    if (url.startsWith(MESH_PREFIX)) {
+      return callAsync(() -> makeHttpPut(url, val, t));
+    }
+    try {
+      HttpRequest.Builder request = jsonRequest(url);
+      request.PUT(jsonBody(request, url, val, false));
+      return sendAsync(url, request.build())
+          .thenApply(response -> parseResponse(url, response, t, false));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * @param e exception a future completed with
+   * @return the exception thrown by the call the future was completed by
+   */
+  public static Throwable unwrap(Throwable e) {
+    while ((e instanceof CompletionException || e instanceof ExecutionException)
+        && e.getCause() != null) {
+      e = e.getCause();
+    }
+    return e;
+  }
+
+  private static HttpRequest.Builder asyncRequest(String url) {
+    return HttpRequest.newBuilder(URI.create(url)).timeout(ASYNC_REQUEST_TIMEOUT);
+  }
+
+  private static HttpRequest.Builder jsonRequest(String url) {
+    return asyncRequest(url).header("Origin", url).header("Content-Type", "application/json")
+        .header("Accept-Encoding", GZIP);
+  }
+
+  private static byte[] gzip(byte[] body) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(body);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Encode the value straight into the request body, the body is buffered to
+   * send its length since not every satellite accepts chunked requests.
+   */
+  private static byte[] toJson(String url, Object val) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GsonStreams.write(GSON, val, val.getClass(), bytes);
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine(url + bytes.toString(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void setJsonEntity(HttpEntityEnclosingRequestBase request,
+                                    String url,
+                                    Object val,
+                                    boolean compress) throws IOException {
+    if (val == null) {
+      return;
+    }
+    byte[] body = toJson(url, val);
+    if (compress && body.length >= GZIP_MIN_BYTES) {
+      body = gzip(body);
+      request.addHeader("Content-Encoding", GZIP);
+    }
+    request.setEntity(new ByteArrayEntity(body));
+  }
+
+  private static BodyPublisher jsonBody(HttpRequest.Builder request,
+                                        String url,
+                                        Object val,
+                                        boolean compress) throws IOException {
+    if (val == null) {
+      return BodyPublishers.noBody();
+    }
+    byte[] body = toJson(url, val);
+    if (compress && body.length >= GZIP_MIN_BYTES) {
+      body = gzip(body);
+      request.header("Content-Encoding", GZIP);
+    }
+    return BodyPublishers.ofByteArray(body);
+  }
+
+  private static <E> E readJson(HttpEntity entity, Type t) throws IOException {
+    if (entity == null) {
+      return null;
+    }
+    if (entity.getContentLength() > GsonStreams.MAX_BODY_BYTES) {
+      throw new BodyTooLargeException(entity.getContentLength());
+    }
+    InputStream in = entity.getContent();
+    E value = GsonStreams.read(GSON, in, charsetOf(entity), t);
+    // consume the rest of the body so the connection is returned to the pool,
+    // on failure the response is closed without reading the rest instead
+    in.close();
+    return value;
+  }
+
+  // error bodies are only logged and reported, a prefix of the body is enough
+  private static String readError(HttpEntity entity) {
+    if (entity == null) {
+      return null;
+    }
+    try (InputStream in = entity.getContent()) {
+      return new String(in.readNBytes(MAX_ERROR_BYTES), charsetOf(entity));
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private static Charset charsetOf(HttpEntity entity) {
+    ContentType contentType = ContentType.get(entity);
+    return contentType != null && contentType.getCharset() != null ? contentType.getCharset()
+        : StandardCharsets.UTF_8;
+  }
+
+  private static InputStream contentOf(HttpResponse<InputStream> response) throws IOException {
+    InputStream in = response.body();
+    long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    try {
+      if (contentLength > GsonStreams.MAX_BODY_BYTES) {
+        // closing the body discards it unread
+        throw new BodyTooLargeException(contentLength);
+      }
+      if (response.headers().firstValue("Content-Encoding").filter(GZIP::equalsIgnoreCase)
+          .isPresent()) {
+        in = new GZIPInputStream(in);
+      }
+      return in;
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  private static <E> E readJson(HttpResponse<InputStream> response, Type t) {
+    try (InputStream in = contentOf(response)) {
+      return GsonStreams.read(GSON, in, StandardCharsets.UTF_8, t);
+    } catch (IOException e) {
+      throw new CompletionException(e);
+    }
+  }
+
+  private static String readError(HttpResponse<InputStream> response) {
+    try (InputStream in = contentOf(response)) {
+      return new String(in.readNBytes(MAX_ERROR_BYTES), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static <E> E parseResponse(String url,
+                                     HttpResponse<InputStream> response,
+                                     Type t,
+                                     boolean ignore204) {
+    int status = response.statusCode();
+    if (status == 200 && t != Void.class) {
+      return readJson(response, t);
+    }
+    String entity = readError(response);
+    if (status != 200) {
+      logger.fine("Status:" + status + " [" + entity + "] url:" + url);
+    }
+    if (status == 503) {
+      throw new ServiceUnavailableException();
+    }
+    if (status == 204 && (t == Void.class || ignore204)) {
+      return null;
+    }
+    if (status == 200) {
+      return null;
+    }
+    throw new CompletionException(
+        new PlanException("Code:" + status + " " + (entity != null ? entity : "No error recieved")));
+  }
+
+  private static CompletableFuture<HttpResponse<InputStream>> sendAsync(String url,
+                                                                        HttpRequest request) throws IOException {
+    HttpClient client = asyncClient(url);
+    ASYNC_REQUESTS.incrementAndGet();
+    ASYNC_IN_FLIGHT.incrementAndGet();
+    return client.sendAsync(request, STREAMED_BODY)
+        .handle((response, e) -> {
+          ASYNC_IN_FLIGHT.decrementAndGet();
+          if (e == null) {
+            return response;
+          }
+          Throwable cause = unwrap(e);
+          if (cause instanceof HttpTimeoutException) {
+            ASYNC_TIMEOUTS.incrementAndGet();
+          }
+          if (cause instanceof ConnectException) {
+            throw new ServiceUnavailableException();
+          }
+          throw new CompletionException(
+              cause instanceof IOException ? cause : new IOException(cause));
+        });
+  }
+
+  private static <E> CompletableFuture<E> callAsync(Callable<E> call) {
+    CompletableFuture<E> future = new CompletableFuture<>();
+    MESH_EXECUTOR.execute(() -> {
+      try {
+        future.complete(call.call());
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  private static HttpClient.Builder asyncClientBuilder() {
+    return HttpClient.newBuilder().version(Version.HTTP_1_1).followRedirects(Redirect.NEVER)
+        .connectTimeout(Duration.ofMillis(1000));
+  }
+
+  private static HttpClient asyncClient(String url) throws IOException {
+    if (!url.startsWith("https://")) {
+      return ASYNC_CLIENT;
+    }
+    SSLContext sslContext = getSSLContext();
+    AsyncSSLClient client = asyncSSLClient;
+    if (client == null || client.sslContext != sslContext) {
+      // the keystore was reloaded, connections of the previous client are
+      // closed once they are idle
+      client = new AsyncSSLClient(sslContext,
+          asyncClientBuilder().sslContext(sslContext).build());
+      asyncSSLClient = client;
+    }
+    return client.client;
+  }
+
+  /**
+   * Execute the request with the shared pooled client, the response must be
+   * closed to return its connection to the pool.
+   */
+  public static CloseableHttpResponse makeRequest(HttpRequestBase request) throws IOException {
+    return CLIENT.execute(request);
+  }
+
+  private static PoolingHttpClientConnectionManager buildConnectionManager() {
+    Registry<ConnectionSocketFactory> registry = RegistryBuilder
+        .<ConnectionSocketFactory>create()
+        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+        .register("https", SSL_SOCKET_FACTORY).build();
+    PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(registry);
+    manager.setMaxTotal(MAX_CONNECTIONS);
+    manager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+    // connections idle in the pool may have been closed by the server
+    manager.setValidateAfterInactivity(2000);
+    return manager;
+  }
+
+  /**
+   * @return connection pool stats of the shared client and request stats of the
+   *         async client
+   */
+  public static Map<String, Long> getPoolStats() {
+    Map<String, Long> map = toMap(CONNECTION_MANAGER.getTotalStats());
+    map.put("routes", (long) CONNECTION_MANAGER.getRoutes().size());
+    map.put("sslContextLoads", SSL_SOCKET_FACTORY.loads);
+    map.put("asyncInFlight", ASYNC_IN_FLIGHT.get());
+    map.put("asyncRequests", ASYNC_REQUESTS.get());
+    map.put("asyncTimeouts", ASYNC_TIMEOUTS.get());
+    map.put("asyncRequestTimeoutMs", ASYNC_REQUEST_TIMEOUT.toMillis());
+    return map;
+  }
+
+  /**
+   * @param url
+   * @return connection pool stats of the shared client for the host of the url
+   */
+  public static Map<String, Long> getPoolStats(String url) {
+    URI uri = URI.create(url);
+    return toMap(CONNECTION_MANAGER
+        .getStats(new HttpRoute(new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme()))));
+  }
+
+  private static Map<String, Long> toMap(PoolStats stats) {
+    Map<String, Long> map = new HashMap<>();
+    map.put("leased", (long) stats.getLeased());
+    map.put("available", (long) stats.getAvailable());
+    map.put("pending", (long) stats.getPending());
+    map.put("max", (long) stats.getMax());
+    return map;
+  }
+
+  /**
+   * @return SSL context with the key material of the keystore, reloaded when
+   *         the keystore file changes
+   * @throws IOException
+   */
+  public static SSLContext getSSLContext() throws IOException {
+    return SSL_SOCKET_FACTORY.current().sslContext;
+  }
+
+  private static int intEnv(String name, int defaultValue) {
+    String value = System.getenv(name);
+    return value != null ? Integer.parseInt(value) : defaultValue;
   }
 
   public static KeyStore readStore() throws Exception {
@@ -238,26 +730,121 @@ public class HttpUtils {
   public static CloseableHttpClient buildClient(String baseURL,
                                                 int connectTimeout,
                                                 int requestTimeout,
-                                                CredentialsProvider provider) throws NoSuchAlgorithmException,
-                                                                              KeyStoreException,
-                                                                              KeyManagementException,
-                                                                              IOException {
+                                                CredentialsProvider provider) throws IOException {
     HttpClientBuilder clientBuilder = HttpClients.custom();
     if (provider != null) {
       clientBuilder.setDefaultCredentialsProvider(provider);
     }
     if (baseURL.startsWith("https://")) {
-      SSLContext sslContext;
+      clientBuilder.setSSLContext(getSSLContext());
+    }
+    RequestConfig config = RequestConfig.custom().setConnectTimeout(connectTimeout)
+        .setConnectionRequestTimeout(requestTimeout).setAuthenticationEnabled(true).build();
+    return clientBuilder.setDefaultRequestConfig(config).build();
+  }
+
+  /**
+   * Socket factory for https connections that reloads the key material when
+   * the keystore file changes. Pooled connections keep the context they were
+   * opened with, new connections use the reloaded one.
+   */
+  private static final class ReloadingSSLSocketFactory implements LayeredConnectionSocketFactory {
+
+    private volatile LoadedContext loaded;
+    private volatile long checkedMs;
+    private volatile long loads;
+
+    private LoadedContext current() throws IOException {
+      LoadedContext context = loaded;
+      long now = System.currentTimeMillis();
+      if (context != null && now - checkedMs < KEYSTORE_CHECK_INTERVAL_MS) {
+        return context;
+      }
+      synchronized (this) {
+        context = loaded;
+        if (context != null && now - checkedMs < KEYSTORE_CHECK_INTERVAL_MS) {
+          return context;
+        }
+        long modifiedMs = new File(KS_PATH).lastModified();
+        if (context == null || context.keystoreModifiedMs != modifiedMs) {
+          try {
+            context = load(modifiedMs);
+            loaded = context;
+          } catch (IOException e) {
+            if (context == null) {
+              throw e;
+            }
+            // keep using the previous key material while the keystore is being
+            // replaced
+            logger.warning("Failed to reload keystore:" + KS_PATH + " " + e.getMessage());
+          }
+        }
+        checkedMs = now;
+        return context;
+      }
+    }
+
+    private LoadedContext load(long keystoreModifiedMs) throws IOException {
       try {
-        sslContext = SSLContexts.custom().loadKeyMaterial(readStore(), PASSWORD).build();
-        clientBuilder.setSSLContext(sslContext);
+        SSLContext sslContext = SSLContexts.custom().loadKeyMaterial(readStore(), PASSWORD).build();
+        loads++;
+        logger.info("Loaded keystore:" + KS_PATH);
+        return new LoadedContext(sslContext, keystoreModifiedMs);
       } catch (Exception e) {
         throw new IOException(e);
       }
     }
-    RequestConfig config = RequestConfig.custom().setConnectTimeout(connectTimeout)
-        .setConnectionRequestTimeout(requestTimeout).setAuthenticationEnabled(true).build();
-    return clientBuilder.setDefaultRequestConfig(config).build();
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+      return current().socketFactory.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout,
+                                Socket sock,
+                                HttpHost host,
+                                InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress,
+                                HttpContext context) throws IOException {
+      return current().socketFactory.connectSocket(connectTimeout, sock, host, remoteAddress,
+          localAddress, context);
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket,
+                                      String target,
+                                      int port,
+                                      HttpContext context) throws IOException {
+      return current().socketFactory.createLayeredSocket(socket, target, port, context);
+    }
+
+  }
+
+  private static final class LoadedContext {
+
+    private final SSLContext sslContext;
+    private final SSLConnectionSocketFactory socketFactory;
+    private final long keystoreModifiedMs;
+
+    private LoadedContext(SSLContext sslContext, long keystoreModifiedMs) {
+      this.sslContext = sslContext;
+      this.socketFactory = new SSLConnectionSocketFactory(sslContext);
+      this.keystoreModifiedMs = keystoreModifiedMs;
+    }
+
+  }
+
+  private static final class AsyncSSLClient {
+
+    private final SSLContext sslContext;
+    private final HttpClient client;
+
+    private AsyncSSLClient(SSLContext sslContext, HttpClient client) {
+      this.sslContext = sslContext;
+      this.client = client;
+    }
+
   }
 
 }
@@ -15,18 +15,32 @@
  */
 package com.pinterest.slate.validation;
 
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.Validator;
 import org.everit.json.schema.loader.SchemaLoader;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import com.pinterest.slate.resources.Resource;
 import com.pinterest.slate.resources.ResourceDefinition;
 import com.pinterest.slate.resources.ResourceFactory;
 
 public class ConfigSchemaValidator implements ResourceValidator {
 
+  // compiled schemas keyed by resource definition class, an entry is only used
+  // for the definition it was compiled for or one with an equal schema so a
+  // validation racing with a reloaded definition can't keep a stale schema
+  private static final Map<String, CompiledSchema> SCHEMA_CACHE = new ConcurrentHashMap<>();
+  private static final Validator VALIDATOR = Validator.builder().failEarly().build();
+
   @Override
   public void validate(Resource resource) throws ValidationException {
     ResourceDefinition resourceDefinition = ResourceFactory.INSTANCE
@@ -35,17 +49,96 @@ public class ConfigSchemaValidator implements ResourceValidator {
       throw new ValidationException(
           "No such resource definition:" + resource.getResourceDefinitionClass());
     }
-    JsonObject configSchema = resourceDefinition.getInternalSchema();
-    JSONObject schemaJson = new JSONObject(configSchema.toString());
-    Schema schema = SchemaLoader.load(schemaJson);
-    Validator validator = Validator.builder().failEarly().build();
-    String desiredStateJSON = resource.getDesiredState().toString();
+    Schema schema = getSchema(resource.getResourceDefinitionClass(), resourceDefinition);
     try {
-      validator.performValidation(schema, new JSONObject(desiredStateJSON));
+      VALIDATOR.performValidation(schema, toJSONObject(resource.getDesiredState()));
     } catch (Exception e) {
       throw new ValidationException("Schema validation failed for: " + resource.getId() + " class:"
           + resource.getResourceDefinitionClass() + " msg:" + e.getMessage(), e);
     }
   }
 
-}
\ No newline at end of file
+  static Schema getSchema(String resourceDefinitionClass, ResourceDefinition resourceDefinition) {
+    CompiledSchema compiled = SCHEMA_CACHE.get(resourceDefinitionClass);
+    if (compiled != null && compiled.resourceDefinition == resourceDefinition) {
+      return compiled.schema;
+    }
+    JsonObject internalSchema = resourceDefinition.getInternalSchema();
+    if (compiled != null && compiled.internalSchema.equals(internalSchema)) {
+      // definitions are reloaded from satellites with unchanged schemas
+      compiled = new CompiledSchema(resourceDefinition, internalSchema, compiled.schema);
+    } else {
+      compiled = new CompiledSchema(resourceDefinition, internalSchema,
+          SchemaLoader.load(toJSONObject(internalSchema)));
+    }
+    SCHEMA_CACHE.put(resourceDefinitionClass, compiled);
+    return compiled.schema;
+  }
+
+  /**
+   * Drop the compiled schema for this resource definition class so it's
+   * recompiled on the next validation.
+   * 
+   * @param resourceDefinitionClass
+   */
+  public static void invalidateSchema(String resourceDefinitionClass) {
+    SCHEMA_CACHE.remove(resourceDefinitionClass);
+  }
+
+  /**
+   * Convert a Gson tree to org.json directly instead of serializing it to a
+   * String and parsing it back.
+   * 
+   * @param object
+   * @return converted object
+   */
+  static JSONObject toJSONObject(JsonObject object) {
+    JSONObject result = new JSONObject();
+    if (object == null) {
+      return result;
+    }
+    for (Entry<String, JsonElement> entry : object.entrySet()) {
+      result.put(entry.getKey(), toJSONValue(entry.getValue()));
+    }
+    return result;
+  }
+
+  private static Object toJSONValue(JsonElement element) {
+    if (element == null || element.isJsonNull()) {
+      return JSONObject.NULL;
+    } else if (element.isJsonObject()) {
+      return toJSONObject(element.getAsJsonObject());
+    } else if (element.isJsonArray()) {
+      JSONArray array = new JSONArray();
+      for (JsonElement e : (JsonArray) element) {
+        array.put(toJSONValue(e));
+      }
+      return array;
+    }
+    JsonPrimitive primitive = element.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean();
+    } else if (primitive.isNumber()) {
+      // same Integer/Long/BigDecimal mapping the org.json parser produces
+      return JSONObject.stringToValue(primitive.getAsString());
+    }
+    return primitive.getAsString();
+  }
+
+  private static final class CompiledSchema {
+
+    private final ResourceDefinition resourceDefinition;
+    private final JsonObject internalSchema;
+    private final Schema schema;
+
+    private CompiledSchema(ResourceDefinition resourceDefinition,
+                           JsonObject internalSchema,
+                           Schema schema) {
+      this.resourceDefinition = resourceDefinition;
+      this.internalSchema = internalSchema;
+      this.schema = schema;
+    }
+
+  }
+
+}
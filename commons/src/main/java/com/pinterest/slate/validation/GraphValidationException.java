@@ -0,0 +1,59 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.validation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+/**
+ * Raised when one or more resources of a delta graph fail validation, carries
+ * every failure keyed by resource id so they can be reported together.
+ */
+public class GraphValidationException extends ValidationException {
+
+  private static final long serialVersionUID = 1L;
+  private SortedMap<String, List<String>> errors;
+
+  public GraphValidationException(SortedMap<String, List<String>> errors) {
+    super(buildMessage(errors));
+    this.errors = errors;
+  }
+
+  public SortedMap<String, List<String>> getErrors() {
+    return errors;
+  }
+
+  /**
+   * The first failure is reported verbatim so single resource failures read the
+   * same as before, the rest are appended prefixed with their resource id.
+   */
+  private static String buildMessage(Map<String, List<String>> errors) {
+    StringBuilder builder = new StringBuilder();
+    for (Entry<String, List<String>> entry : errors.entrySet()) {
+      for (String error : entry.getValue()) {
+        if (builder.length() == 0) {
+          builder.append(error);
+        } else {
+          builder.append("\n").append(entry.getKey()).append(": ").append(error);
+        }
+      }
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.pinterest.slate.resources.Resource;
+
+public class TestEdgeSet {
+
+  @Test
+  public void testMultiFieldEdgesBetweenSamePair() {
+    Resource src = resource("src");
+    src.setOutputResources(edges(ImmutableMap.of("logs", ImmutableSet.of("dst"), "metrics",
+        ImmutableSet.of("dst", "other"))));
+    Resource dst = resource("dst");
+    dst.setInputResources(edges(ImmutableMap.of("source", ImmutableSet.of("src"), "backfill",
+        ImmutableSet.of("src"))));
+    Map<String, Resource> resources = new HashMap<>();
+    resources.put("src", src);
+    resources.put("dst", dst);
+    EdgeSet edgeSet = new EdgeSet(resources);
+
+    assertEquals(ImmutableSet.of("logs", "metrics"), edgeSet.getOutputFields("src", "dst"));
+    assertEquals(ImmutableSet.of("metrics"), edgeSet.getOutputFields("src", "other"));
+    assertEquals(ImmutableSet.of("source", "backfill"), edgeSet.getInputFields("dst", "src"));
+    assertTrue(edgeSet.hasOutput("src", "dst"));
+    assertTrue(edgeSet.hasInput("dst", "src"));
+    assertTrue(edgeSet.hasEdge("src", "logs", "dst", "source"));
+    assertTrue(edgeSet.hasEdge("src", "metrics", "dst", "backfill"));
+    assertFalse(edgeSet.hasEdge("src", "logs", "dst", "missing"));
+    assertFalse(edgeSet.hasInput("src", "dst"));
+
+    // re-adding a resource replaces all of its edges
+    src.setOutputResources(edges(ImmutableMap.of("metrics", ImmutableSet.of("dst"))));
+    edgeSet.add(src);
+    assertEquals(ImmutableSet.of("metrics"), edgeSet.getOutputFields("src", "dst"));
+    assertFalse(edgeSet.hasOutput("src", "other"));
+  }
+
+  private static Resource resource(String id) {
+    Resource resource = new Resource();
+    resource.setId(id);
+    return resource;
+  }
+
+  private static Map<String, Set<String>> edges(Map<String, Set<String>> edges) {
+    Map<String, Set<String>> map = new HashMap<>();
+    edges.forEach((k, v) -> map.put(k, new HashSet<>(v)));
+    return map;
+  }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.junit.Test;
+
+import com.pinterest.slate.graph.ExecutionPriority;
+import com.pinterest.slate.graph.ExecutionQueueRecord;
+
+public class TestFairExecutionQueue {
+
+  @Test
+  public void testRequestersShareTheQueue() throws Exception {
+    FairExecutionQueue queue = new FairExecutionQueue(new LocalExecutionQueue());
+    queue.init(new BaseConfiguration());
+    for (int i = 0; i < 20; i++) {
+      queue.add("backfiller_" + i, "backfiller", ExecutionPriority.BACKFILL);
+    }
+    for (int i = 0; i < 10; i++) {
+      queue.add("bulk_" + i, "bulk", ExecutionPriority.INTERACTIVE);
+    }
+    queue.add("user_1", "user", ExecutionPriority.INTERACTIVE);
+    queue.add("user_2", "user", ExecutionPriority.INTERACTIVE);
+
+    List<String> taken = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      taken.add(queue.take());
+    }
+    // requesters of a class alternate and the backfill class only gets its share
+    assertEquals(Arrays.asList("bulk_0", "backfiller_0", "user_1", "bulk_1", "user_2", "bulk_2"),
+        taken);
+
+    Map<String, Map<String, Long>> stats = queue.getStats();
+    assertEquals(19L, (long) stats.get("BACKFILL").get("depth"));
+    assertEquals(7L, (long) stats.get("INTERACTIVE").get("depth"));
+    assertEquals(5L, (long) stats.get("INTERACTIVE").get("taken"));
+
+    // a requeued graph isn't queued twice
+    queue.add("bulk_0");
+    queue.add("bulk_0");
+    for (int i = 0; i < 27; i++) {
+      queue.take();
+    }
+    assertNull(queue.take());
+  }
+
+  @Test
+  public void testAttributesAreCarriedInRecords() throws Exception {
+    List<String> acknowledged = new ArrayList<>();
+    LocalExecutionQueue local = new LocalExecutionQueue() {
+
+      @Override
+      public void acknowledge(ExecutionQueueRecord record) {
+        acknowledged.add(record.getExecutionId());
+      }
+    };
+    // queued by another node, this node has no attributes for the graphs
+    local.add("backfiller_1", "backfiller", ExecutionPriority.BACKFILL);
+    local.add("backfiller_2", "backfiller", ExecutionPriority.BACKFILL);
+    local.add("user_1", "user", ExecutionPriority.INTERACTIVE);
+    FairExecutionQueue queue = new FairExecutionQueue(local);
+    queue.init(new BaseConfiguration());
+
+    assertEquals("user_1", queue.take());
+    // records are only acknowledged once they are handed out
+    assertEquals(Arrays.asList("user_1"), acknowledged);
+    assertEquals(2L, (long) queue.getStats().get("BACKFILL").get("depth"));
+    assertEquals("backfiller_1", queue.take());
+    assertEquals(Arrays.asList("user_1", "backfiller_1"), acknowledged);
+  }
+
+}
@@ -16,11 +16,37 @@
 package com.pinterest.slate.utils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.regex.Matcher;
 
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+
 import org.junit.Test;
 
+import com.google.gson.reflect.TypeToken;
+import com.pinterest.slate.GsonMessageBodyHandler;
+import com.pinterest.slate.utils.GsonStreams.BodyTooLargeException;
+import com.sun.net.httpserver.HttpServer;
+
 public class TestHttpUtils {
 
   @Test
@@ -32,4 +58,175 @@ public class TestHttpUtils {
     assertEquals("myplatform.pinterest.com", hostname);
   }
 
+  @Test
+  public void testConnectionsAreReused() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/v1/values", exchange -> {
+      byte[] body = "[1,2,3]".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+    String url = "http://localhost:" + server.getAddress().getPort() + "/v1/values";
+    try {
+      for (int i = 0; i < 5; i++) {
+        List<Integer> values = HttpUtils.makeHttpGet(url, new TypeToken<List<Integer>>() {
+        }.getType());
+        assertEquals(3, values.size());
+      }
+      // stats of the route to this server only, other tests share the pool
+      Map<String, Long> stats = HttpUtils.getPoolStats(url);
+      assertEquals(0L, (long) stats.get("leased"));
+      // the connection was returned to the pool for reuse instead of being closed
+      assertEquals(1L, (long) stats.get("available"));
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @Test
+  public void testOversizedRequestBodyIsRejected() throws Exception {
+    // an array that never ends, reading stops once the limit is exceeded
+    InputStream body = new InputStream() {
+
+      private boolean started;
+
+      @Override
+      public int read() {
+        if (!started) {
+          started = true;
+          return '[';
+        }
+        return ' ';
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        Arrays.fill(b, off, off + len, (byte) ' ');
+        if (!started && len > 0) {
+          started = true;
+          b[off] = '[';
+        }
+        return len;
+      }
+    };
+    try {
+      new GsonMessageBodyHandler().readFrom((Class) List.class, List.class, new Annotation[0],
+          MediaType.APPLICATION_JSON_TYPE, null, body);
+      fail();
+    } catch (WebApplicationException e) {
+      assertEquals(Status.REQUEST_ENTITY_TOO_LARGE.getStatusCode(), e.getResponse().getStatus());
+    }
+  }
+
+  @Test
+  public void testOversizedResponseIsRejected() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/v1/values", exchange -> {
+      // announce a body above the limit, the client mustn't wait for it
+      exchange.sendResponseHeaders(200, GsonStreams.MAX_BODY_BYTES + 1);
+      try {
+        exchange.getResponseBody().write("[1]".getBytes(StandardCharsets.UTF_8));
+        exchange.close();
+      } catch (IOException e) {
+        // the body is shorter than announced
+      }
+    });
+    server.start();
+    String url = "http://localhost:" + server.getAddress().getPort() + "/v1/values";
+    try {
+      try {
+        HttpUtils.makeHttpGet(url, List.class);
+        fail();
+      } catch (IOException e) {
+        assertTrue(e.getCause() instanceof BodyTooLargeException);
+      }
+      try {
+        HttpUtils.makeHttpGetAsync(url, List.class).join();
+        fail();
+      } catch (CompletionException e) {
+        assertTrue(HttpUtils.unwrap(e) instanceof BodyTooLargeException);
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testAsyncRequests() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/v1/echo", exchange -> {
+      byte[] body = exchange.getRequestBody().readAllBytes();
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.createContext("/v1/unavailable", exchange -> {
+      exchange.sendResponseHeaders(503, -1);
+      exchange.close();
+    });
+    server.start();
+    String url = "http://localhost:" + server.getAddress().getPort() + "/v1/";
+    try {
+      List<CompletableFuture<List<Integer>>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        futures.add(HttpUtils.makeHttpPostAsync(url + "echo", List.of(i, i + 1),
+            new TypeToken<List<Integer>>() {
+            }.getType()));
+      }
+      for (int i = 0; i < 20; i++) {
+        assertEquals(List.of(i, i + 1), futures.get(i).join());
+      }
+      try {
+        HttpUtils.makeHttpPostAsync(url + "unavailable", null, Void.class).join();
+        fail();
+      } catch (CompletionException e) {
+        assertTrue(HttpUtils.unwrap(e) instanceof ServiceUnavailableException);
+      }
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testCompressedBodies() throws Exception {
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/v1/echo", exchange -> {
+      // only large bodies are compressed
+      if (!"gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+        exchange.sendResponseHeaders(400, -1);
+        exchange.close();
+        return;
+      }
+      byte[] body;
+      try (InputStream in = new GZIPInputStream(exchange.getRequestBody())) {
+        body = in.readAllBytes();
+      }
+      exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+      exchange.sendResponseHeaders(200, 0);
+      try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+        out.write(body);
+      }
+    });
+    server.start();
+    String url = "http://localhost:" + server.getAddress().getPort() + "/v1/echo";
+    try {
+      List<String> values = new ArrayList<>();
+      for (int i = 0; i < HttpUtils.GZIP_MIN_BYTES / 8; i++) {
+        values.add("value" + i);
+      }
+      List<String> echoed = HttpUtils.<List<String>>makeHttpPostAsync(url, values,
+          new TypeToken<List<String>>() {
+          }.getType(), false, true).join();
+      assertEquals(values, echoed);
+      echoed = HttpUtils.makeHttpPost(url, values, new TypeToken<List<String>>() {
+      }.getType(), false, true);
+      assertEquals(values, echoed);
+    } finally {
+      server.stop(0);
+    }
+  }
+
 }
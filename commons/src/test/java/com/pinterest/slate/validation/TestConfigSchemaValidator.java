@@ -0,0 +1,120 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.validation;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.pinterest.slate.resources.RPCBasedResourceDefinition;
+import com.pinterest.slate.resources.Resource;
+import com.pinterest.slate.resources.ResourceFactory;
+
+public class TestConfigSchemaValidator {
+
+  private static final Gson GSON = new Gson();
+  private static final String DEFINITION_CLASS = "com.test.SchemaDef";
+  private ResourceFactory previousFactory = ResourceFactory.INSTANCE;
+
+  @After
+  public void after() {
+    ResourceFactory.INSTANCE.updateReference(previousFactory);
+    ConfigSchemaValidator.invalidateSchema(DEFINITION_CLASS);
+  }
+
+  @Test
+  public void testToJSONObjectMatchesParsedJson() {
+    String json = """
+        {"int":1,"long":12345678901,"decimal":1.5,"exp":1e3,"negative":-7,
+        "bool":true,"string":"s","null":null,"empty":{},
+        "nested":{"arrays":[[1,2],[],[null,{"a":[3.25]}]],"inner":{"n":null}}}
+        """;
+    JSONObject converted = ConfigSchemaValidator.toJSONObject(GSON.fromJson(json,
+        JsonObject.class));
+    JSONObject parsed = new JSONObject(json);
+    assertTrue(converted.toString(), parsed.similar(converted));
+    assertTrue(ConfigSchemaValidator.toJSONObject(null).length() == 0);
+  }
+
+  @Test
+  public void testSchemaIsCachedPerDefinition() throws Exception {
+    RPCBasedResourceDefinition intDef = definition("integer");
+    register(intDef);
+    ConfigSchemaValidator validator = new ConfigSchemaValidator();
+    validator.validate(resource(1));
+    assertSame(ConfigSchemaValidator.getSchema(DEFINITION_CLASS, intDef),
+        ConfigSchemaValidator.getSchema(DEFINITION_CLASS, intDef));
+    assertInvalid(validator, resource("x"));
+
+    // a reloaded definition with the same schema reuses the compiled schema
+    RPCBasedResourceDefinition reloaded = definition("integer");
+    assertSame(ConfigSchemaValidator.getSchema(DEFINITION_CLASS, intDef),
+        ConfigSchemaValidator.getSchema(DEFINITION_CLASS, reloaded));
+
+    // a changed schema is used without invalidating the cache
+    RPCBasedResourceDefinition stringDef = definition("string");
+    register(stringDef);
+    assertNotSame(ConfigSchemaValidator.getSchema(DEFINITION_CLASS, intDef),
+        ConfigSchemaValidator.getSchema(DEFINITION_CLASS, stringDef));
+    validator.validate(resource("x"));
+    assertInvalid(validator, resource(1));
+
+    // an invalidated schema is compiled again
+    ConfigSchemaValidator.invalidateSchema(DEFINITION_CLASS);
+    validator.validate(resource("x"));
+  }
+
+  private static void assertInvalid(ConfigSchemaValidator validator, Resource resource) {
+    try {
+      validator.validate(resource);
+      fail("Resource must not match the schema");
+    } catch (ValidationException e) {
+    }
+  }
+
+  private static void register(RPCBasedResourceDefinition def) {
+    ResourceFactory.INSTANCE.updateReference(new ResourceFactory() {
+      {
+        resourceMap.put(DEFINITION_CLASS, def);
+      }
+    });
+  }
+
+  private static RPCBasedResourceDefinition definition(String type) {
+    RPCBasedResourceDefinition def = new RPCBasedResourceDefinition("http://satellite/r");
+    def.setInternalSchema(GSON.fromJson("{\"type\":\"object\",\"properties\":{\"a\":{\"type\":\""
+        + type + "\"}}}", JsonObject.class));
+    return def;
+  }
+
+  private static Resource resource(Object a) {
+    Resource resource = new Resource();
+    resource.setId("r1");
+    resource.setResourceDefinitionClass(DEFINITION_CLASS);
+    JsonObject desiredState = new JsonObject();
+    desiredState.add("a", GSON.toJsonTree(a));
+    resource.setDesiredState(desiredState);
+    return resource;
+  }
+
+}
@@ -20,6 +20,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.servlet.FilterRegistration;
@@ -29,6 +30,7 @@ import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
 import org.tuckey.web.filters.urlrewrite.UrlRewriteFilter;
 
+import com.codahale.metrics.Gauge;
 import com.pinterest.slate.api.GraphEngineApi;
 import com.pinterest.slate.api.HTSApi;
 import com.pinterest.slate.api.MetricsApi;
@@ -40,11 +42,15 @@ import com.pinterest.slate.graph.AbstractExecutionDAO;
 import com.pinterest.slate.graph.AbstractGraphAuditSink;
 import com.pinterest.slate.graph.AbstractGraphExecutionQueue;
 import com.pinterest.slate.graph.AbstractStateStore;
+import com.pinterest.slate.graph.CurrentStateCache;
 import com.pinterest.slate.graph.ExecutionGraph;
 import com.pinterest.slate.graph.ExecutionGraphDAO;
 import com.pinterest.slate.graph.GraphEngine;
 import com.pinterest.slate.graph.GraphExecutionRuntime;
 import com.pinterest.slate.graph.GraphExecutor;
+import com.pinterest.slate.graph.PlanCache;
+import com.pinterest.slate.graph.PlanningExecutor;
+import com.pinterest.slate.graph.storage.FairExecutionQueue;
 import com.pinterest.slate.graph.storage.ProposedResourceDAO;
 import com.pinterest.slate.graph.storage.RDBMSResourceDAO;
 import com.pinterest.slate.graph.storage.RDBMSResourceDB;
@@ -53,6 +59,8 @@ import com.pinterest.slate.human.HumanTask;
 import com.pinterest.slate.human.HumanTaskDAO;
 import com.pinterest.slate.human.HumanTaskSystem;
 import com.pinterest.slate.human.TaskSystem;
+import com.pinterest.slate.process.CoreTaskRuntime;
+import com.pinterest.slate.process.TaskDispatcher;
 import com.pinterest.slate.process.TaskFactory;
 import com.pinterest.slate.recipe.AbstractRecipeStore;
 import com.pinterest.slate.resources.ProposedResource;
@@ -67,6 +75,7 @@ import io.dropwizard.assets.AssetsBundle;
 import io.dropwizard.db.DataSourceFactory;
 import io.dropwizard.hibernate.HibernateBundle;
 import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import io.federecio.dropwizard.swagger.SwaggerBundle;
@@ -89,6 +98,7 @@ public class Slate extends Application<SlateConfig> {
   };
 
   private TaskSystem ts;
+  private GraphExecutor executor;
 
   @Override
   public void initialize(Bootstrap<SlateConfig> bootstrap) {
@@ -117,15 +127,43 @@ public class Slate extends Application<SlateConfig> {
 
     initV2(configuration, environment);
 
+    File resumeManifest = resumeManifest(configuration);
+    long drainTimeoutMs = TimeUnit.SECONDS.toMillis(configuration.getDrainTimeoutSeconds());
+    // drain graph execution on any shutdown, the executor is only drained once
+    environment.lifecycle().manage(new Managed() {
+
+      @Override
+      public void start() throws Exception {
+      }
+
+      @Override
+      public void stop() throws Exception {
+        executor.drain(drainTimeoutMs, resumeManifest);
+      }
+    });
+
     logger.info("Slate scheduled restart " + configuration.getRestartIntervalSeconds() + "s.");
     // add nightly restart to Slate
     Executors.newScheduledThreadPool(1, DaemonThreadFactory.INSTANCE).schedule(() -> {
       logger.info("Slate is doing regular scheduled restart "
           + configuration.getRestartIntervalSeconds() + "s, this is expected by design.");
+      try {
+        // finish in-flight ticks before exiting so the restart resumes from the
+        // manifest instead of the middle of a tick
+        executor.drain(drainTimeoutMs, resumeManifest);
+      } catch (Exception e) {
+        logger.log(Level.SEVERE, "Failed to drain graph executor before restart", e);
+      }
       System.exit(0);
     }, configuration.getRestartIntervalSeconds(), TimeUnit.SECONDS);
   }
 
+  private static File resumeManifest(SlateConfig configuration) {
+    return configuration.getResumeManifestPath() != null
+        ? new File(configuration.getResumeManifestPath())
+        : null;
+  }
+
   private void initV2(SlateConfig config, Environment environment) throws Exception {
     configureAuthorizationFilter(config, environment);
 
@@ -158,7 +196,19 @@ public class Slate extends Application<SlateConfig> {
     grt.setResourceDB(resourceDB);
     grt.setAuditSink(auditSink);
     grt.setExecutionQueue(queue);
-    GraphExecutor executor = new GraphExecutor(grt);
+    grt.setFlushIntervalMs(config.getGraphFlushIntervalMs());
+    grt.setLeaseDurationMs(config.getGraphLeaseDurationMs());
+    CoreTaskRuntime taskRuntime = new CoreTaskRuntime(
+        new TaskDispatcher(config.getDefaultMaxConcurrentTasks()));
+    taskRuntime.setMinPollIntervalMs(config.getTaskMinPollIntervalMs());
+    taskRuntime.setMaxPollIntervalMs(config.getTaskMaxPollIntervalMs());
+    taskRuntime.setCallbackSecret(config.getTaskCallbackSecret());
+    taskRuntime.setMaxStatusBatchSize(config.getTaskStatusBatchSize());
+    grt.setTaskRuntime(taskRuntime);
+    executor = new GraphExecutor(grt, config.getGraphExecutorWorkers(),
+        config.getGraphExecutorPollIntervalMs(), resumeManifest(config));
+    environment.metrics().register("slate.executor.startupToFirstTickMs",
+        (Gauge<Long>) executor::getStartupToFirstTickMs);
     Thread th = new Thread(executor);
     th.setName("GraphExecutor");
     th.setDaemon(true);
@@ -167,6 +217,33 @@ public class Slate extends Application<SlateConfig> {
     ResourceValidationFactory.getInstance().init(config.getValidationConfigPath());
 
     GraphEngine engine = new GraphEngine(ResourceFactory.INSTANCE, resourceDB, executor);
+    if (config.getPlanningParallelism() > 1) {
+      PlanningExecutor planningExecutor = new PlanningExecutor(config.getPlanningParallelism(),
+          config.getMaxConcurrentPlanRequestsPerSatellite());
+      engine.setPlanningExecutor(planningExecutor);
+      long drainTimeoutMs = TimeUnit.SECONDS.toMillis(config.getDrainTimeoutSeconds());
+      environment.lifecycle().manage(new Managed() {
+
+        @Override
+        public void start() throws Exception {
+        }
+
+        @Override
+        public void stop() throws Exception {
+          planningExecutor.shutdown(drainTimeoutMs);
+        }
+      });
+    }
+    CurrentStateCache currentStateCache = new CurrentStateCache(
+        config.getCurrentStateCacheTtlSeconds(),
+        config.getCurrentStateCacheTtlSecondsByDefinition());
+    engine.setCurrentStateCache(currentStateCache);
+    grt.setCurrentStateCache(currentStateCache);
+    engine.setBatchPriorityMinVertices(config.getBatchPriorityMinVertices());
+    if (config.getPlanCacheTtlSeconds() > 0) {
+      engine.setPlanCache(
+          new PlanCache(config.getPlanCacheMaxEntries(), config.getPlanCacheTtlSeconds()));
+    }
 
     AbstractRecipeStore recipeStore = initializeRecipeStore(config);
     if (recipeStore != null) {
@@ -175,8 +252,8 @@ public class Slate extends Application<SlateConfig> {
 
     environment.jersey().register(new ResourceApi(resourceDB, stateStore));
     environment.jersey().register(new GraphEngineApi(config, engine, grt));
-    environment.jersey().register(new TaskApi(config, ts));
-    environment.jersey().register(new SlateMgmtApi(config, grt));
+    environment.jersey().register(new TaskApi(config, ts, executor));
+    environment.jersey().register(new SlateMgmtApi(config, grt, engine));
     environment.jersey().register(new HTSApi(hts));
     environment.jersey().register(new MetricsApi(config));
   }
@@ -219,6 +296,9 @@ public class Slate extends Application<SlateConfig> {
     String executionQueueClass = config.getString("class");
     AbstractGraphExecutionQueue executionQueue = Class.forName(executionQueueClass)
         .asSubclass(AbstractGraphExecutionQueue.class).newInstance();
+    if (config.getBoolean("fairscheduling", false)) {
+      executionQueue = new FairExecutionQueue(executionQueue);
+    }
     executionQueue.init(config);
     return executionQueue;
   }
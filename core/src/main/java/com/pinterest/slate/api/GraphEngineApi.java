@@ -20,6 +20,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +29,7 @@ import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotAcceptableException;
 import javax.ws.rs.POST;
@@ -37,19 +39,23 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
 import org.apache.commons.lang3.time.DateUtils;
 
 import com.pinterest.slate.SlateConfig;
 import com.pinterest.slate.graph.ExecutionGraph;
+import com.pinterest.slate.graph.ExecutionPriority;
 import com.pinterest.slate.graph.GraphEngine;
 import com.pinterest.slate.graph.GraphExecutionRuntime;
+import com.pinterest.slate.graph.PlanSummary;
 import com.pinterest.slate.graph.PlanVertex;
 import com.pinterest.slate.process.Status;
 import com.pinterest.slate.resources.PlanException;
 import com.pinterest.slate.resources.Resource;
 import com.pinterest.slate.security.AuthorizationFilter;
+import com.pinterest.slate.validation.GraphValidationException;
 
 import io.dropwizard.hibernate.UnitOfWork;
 
@@ -58,6 +64,9 @@ import io.dropwizard.hibernate.UnitOfWork;
 @Consumes({ MediaType.APPLICATION_JSON })
 public class GraphEngineApi {
 
+  public static final String PLAN_ITERATIONS_HEADER = "X-Slate-Plan-Iterations";
+  public static final String PLAN_REPLANNED_VERTICES_HEADER = "X-Slate-Plan-Replanned-Vertices";
+  public static final String PLAN_HANDLE_HEADER = "X-Slate-Plan-Handle";
   private GraphEngine engine;
   private GraphExecutionRuntime runtime;
   private SlateConfig config;
@@ -82,14 +91,20 @@ public class GraphEngineApi {
 
   @Path("/plan")
   @POST
-  public Map<String, PlanVertex> planChange(@Context SecurityContext sc,
-                                            Map<String, Resource> deltaGraph) throws Exception {
+  public Response planChange(@Context SecurityContext sc,
+                             Map<String, Resource> deltaGraph) throws Exception {
     if (deltaGraph == null || deltaGraph.isEmpty()) {
       throw new NotAcceptableException("Empty graph updates cannot be accepted");
     }
     String requester = SlateMgmtApi.getUser(sc);
     try {
-      return engine.planGraphUpdate(requester, deltaGraph);
+      PlanSummary summary = new PlanSummary();
+      Map<String, PlanVertex> planGraph = engine.planGraphUpdate(requester, deltaGraph, summary);
+      return Response.ok(planGraph).header(PLAN_ITERATIONS_HEADER, summary.getIterations())
+          .header(PLAN_REPLANNED_VERTICES_HEADER, summary.getReplannedVertices())
+          .header(PLAN_HANDLE_HEADER, summary.getPlanHandle()).build();
+    } catch (GraphValidationException e) {
+      throw validationFailure(e);
     } catch (PlanException e) {
       throw new BadRequestException(e.getMessage());
     }
@@ -98,18 +113,41 @@ public class GraphEngineApi {
   @Path("/execute")
   @POST
   public ExecutionGraph executeChange(@Context SecurityContext sc,
+                                      @HeaderParam(PLAN_HANDLE_HEADER) String planHandle,
+                                      @QueryParam("priority") String priorityStr,
                                       Map<String, Resource> deltaGraph) throws Exception {
     if (deltaGraph == null || deltaGraph.isEmpty()) {
       throw new NotAcceptableException("Empty graph updates cannot be accepted");
     }
     String requester = SlateMgmtApi.getUser(sc);
+    ExecutionPriority priority = null;
+    if (priorityStr != null) {
+      try {
+        priority = ExecutionPriority.valueOf(priorityStr.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new BadRequestException("Invalid priority:" + priorityStr);
+      }
+    }
     try {
-      return engine.executeGraphUpate(requester, deltaGraph);
+      // only admins may raise the priority derived from the plan, anyone may
+      // lower it
+      return engine.executeGraphUpate(requester, deltaGraph, planHandle, priority,
+          sc.isUserInRole(AuthorizationFilter.ADMIN_ROLE_NAME));
+    } catch (GraphValidationException e) {
+      throw validationFailure(e);
     } catch (PlanException e) {
       throw new BadRequestException(e.getMessage());
     }
   }
 
+  private static BadRequestException validationFailure(GraphValidationException e) {
+    Map<String, Object> entity = new LinkedHashMap<>();
+    entity.put("message", e.getMessage());
+    entity.put("errors", e.getErrors());
+    return new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+        .type(MediaType.APPLICATION_JSON).entity(entity).build());
+  }
+
   @Path("/my/active")
   @UnitOfWork
   @GET
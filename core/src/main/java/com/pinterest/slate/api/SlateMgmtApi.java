@@ -30,13 +30,17 @@ import javax.ws.rs.core.SecurityContext;
 import org.apache.commons.lang3.time.DateUtils;
 
 import com.pinterest.slate.SlateConfig;
+import com.pinterest.slate.graph.CurrentStateCache;
 import com.pinterest.slate.graph.ExecutionGraph;
+import com.pinterest.slate.graph.GraphEngine;
 import com.pinterest.slate.graph.GraphExecutionRuntime;
 import com.pinterest.slate.graph.PlanVertex;
+import com.pinterest.slate.graph.storage.FairExecutionQueue;
 import com.pinterest.slate.process.LifecycleProcess;
 import com.pinterest.slate.process.Status;
 import com.pinterest.slate.resources.ResourceFactory;
 import com.pinterest.slate.security.AuthorizationFilter;
+import com.pinterest.slate.utils.HttpUtils;
 
 import io.dropwizard.hibernate.UnitOfWork;
 import jersey.repackaged.com.google.common.collect.Sets;
@@ -48,10 +52,12 @@ public class SlateMgmtApi {
 
   private SlateConfig config;
   private GraphExecutionRuntime runtime;
+  private GraphEngine engine;
 
-  public SlateMgmtApi(SlateConfig config, GraphExecutionRuntime runtime) {
+  public SlateMgmtApi(SlateConfig config, GraphExecutionRuntime runtime, GraphEngine engine) {
     this.config = config;
     this.runtime = runtime;
+    this.engine = engine;
   }
 
   @Path("/onboarding-button")
@@ -99,6 +105,45 @@ public class SlateMgmtApi {
     }
   }
 
+  @RolesAllowed({ AuthorizationFilter.ADMIN_ROLE_NAME })
+  @Path("/cache/currentstate")
+  @GET
+  public Map<String, Long> getCurrentStateCacheStats() {
+    CurrentStateCache cache = engine.getCurrentStateCache();
+    if (cache == null) {
+      throw new NotFoundException("Current state cache is not enabled");
+    }
+    return cache.getStats();
+  }
+
+  @RolesAllowed({ AuthorizationFilter.ADMIN_ROLE_NAME })
+  @Path("/http/pool")
+  @GET
+  public Map<String, Long> getHttpPoolStats() {
+    return HttpUtils.getPoolStats();
+  }
+
+  @RolesAllowed({ AuthorizationFilter.ADMIN_ROLE_NAME })
+  @Path("/queue/stats")
+  @GET
+  public Map<String, Map<String, Long>> getExecutionQueueStats() {
+    return getFairExecutionQueue().getStats();
+  }
+
+  @RolesAllowed({ AuthorizationFilter.ADMIN_ROLE_NAME })
+  @Path("/queue/requesters")
+  @GET
+  public Map<String, Integer> getExecutionQueueRequesterDepths() {
+    return getFairExecutionQueue().getRequesterDepths();
+  }
+
+  private FairExecutionQueue getFairExecutionQueue() {
+    if (!(runtime.getExecutionQueue() instanceof FairExecutionQueue)) {
+      throw new NotFoundException("Fair scheduling is not enabled");
+    }
+    return (FairExecutionQueue) runtime.getExecutionQueue();
+  }
+
   @RolesAllowed({ AuthorizationFilter.ADMIN_ROLE_NAME })
   @Path("/toptimetakenprocesses")
   @UnitOfWork
@@ -5,27 +5,34 @@ import java.util.List;
 import java.util.Set;
 import java.util.logging.Logger;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.pinterest.slate.SlateConfig;
+import com.pinterest.slate.graph.GraphExecutor;
 import com.pinterest.slate.human.HumanTask;
 import com.pinterest.slate.human.TaskSystem;
 import com.pinterest.slate.process.Status;
+import com.pinterest.slate.process.StatusUpdate;
+import com.pinterest.slate.process.TaskInvocation;
 
 import io.dropwizard.hibernate.UnitOfWork;
 
@@ -36,9 +43,55 @@ public class TaskApi {
 
   private static final Logger logger = Logger.getLogger(TaskApi.class.getCanonicalName());
   private TaskSystem ts;
+  private GraphExecutor executor;
 
-  public TaskApi(SlateConfig config, TaskSystem ts) {
+  public TaskApi(SlateConfig config, TaskSystem ts, GraphExecutor executor) {
     this.ts = ts;
+    this.executor = executor;
+  }
+
+  /**
+   * Status update pushed by a satellite when a task changes status, only
+   * accepted with the callback token issued for the task. The update is stored
+   * and applied when the owning graph is next visited, which happens right away
+   * if this node is executing the graph.
+   * 
+   * @param token
+   * @param executionId
+   * @param processId
+   * @param taskId
+   * @param update
+   */
+  @POST
+  @Path("/callbacks/{executionid}/{processid}/{taskid}")
+  public void taskStatusCallback(@HeaderParam(TaskInvocation.CALLBACK_TOKEN_HEADER) String token,
+                                 @PathParam("executionid") String executionId,
+                                 @PathParam("processid") String processId,
+                                 @PathParam("taskid") String taskId,
+                                 StatusUpdate update) {
+    if (!executor.getRuntime().supportsPushedStatusUpdates()) {
+      throw new WebApplicationException("Pushed status updates aren't supported",
+          Response.Status.NOT_IMPLEMENTED);
+    }
+    if (!executor.getRuntime().getTaskRuntime().isValidCallbackToken(processId, taskId, token)) {
+      throw new NotAuthorizedException("Invalid callback token for processId:" + processId
+          + " taskId:" + taskId);
+    }
+    if (update == null || update.getStatus() == null) {
+      throw new BadRequestException("Status update is missing the status");
+    }
+    if (!processId.startsWith(executionId + "_")) {
+      throw new BadRequestException(
+          "Process:" + processId + " doesn't belong to execution:" + executionId);
+    }
+    try {
+      executor.getRuntime().pushStatusUpdate(executionId, processId, taskId, update);
+    } catch (IOException e) {
+      throw new InternalServerErrorException();
+    }
+    executor.wakeUp(executionId);
+    logger.fine("Status update pushed for processId:" + processId + " taskId:" + taskId
+        + " status:" + update.getStatus());
   }
 
   @GET
@@ -2,28 +2,59 @@ package com.pinterest.slate.graph.storage;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.commons.configuration2.Configuration;
+import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 
 import com.google.common.collect.ImmutableList;
 import com.pinterest.slate.graph.AbstractGraphExecutionQueue;
+import com.pinterest.slate.graph.ExecutionPriority;
+import com.pinterest.slate.graph.ExecutionQueueRecord;
 
 public class KafkaExecutionQueue extends AbstractGraphExecutionQueue {
 
+  private static final Logger logger = Logger
+      .getLogger(KafkaExecutionQueue.class.getCanonicalName());
+  private static final int DEFAULT_MAX_POLL_RECORDS = 100;
+  private static final String REQUESTER_HEADER = "requester";
+  private static final String PRIORITY_HEADER = "priority";
   private KafkaConsumer<String, String> consumer;
+  // records of the last poll that haven't been taken yet, offsets are committed
+  // once records are acknowledged so records held by a node that dies are
+  // delivered again
+  private Queue<ConsumerRecord<String, String>> polled = new ArrayDeque<>();
+  // offsets of records taken but not acknowledged yet, per partition
+  private Map<TopicPartition, TreeSet<Long>> unacknowledged = new HashMap<>();
+  // offset after the last record taken from each partition
+  private Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+  private Map<TopicPartition, Long> committedOffsets = new HashMap<>();
   private KafkaProducer<String, String> producer;
   private String topic;
 
@@ -33,7 +64,10 @@ public class KafkaExecutionQueue extends AbstractGraphExecutionQueue {
     String bootstrapServer = String.join(",",
         Files.readAllLines(new File(config.getString("serverset")).toPath()));
     consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
-    consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
+    // graphs are owned through leases so several records can be taken at once
+    // and handed to different workers or nodes
+    consumerProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG,
+        config.getInt("maxpollrecords", DEFAULT_MAX_POLL_RECORDS));
     consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
         StringDeserializer.class.getName());
     consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
@@ -41,7 +75,22 @@ public class KafkaExecutionQueue extends AbstractGraphExecutionQueue {
     consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, config.getString("groupid"));
     consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
     consumer = new KafkaConsumer<>(consumerProps);
-    consumer.subscribe(ImmutableList.of(topic));
+    consumer.subscribe(ImmutableList.of(topic), new ConsumerRebalanceListener() {
+
+      @Override
+      public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        // records of revoked partitions are delivered to their new consumer
+        polled.removeIf(
+            r -> partitions.contains(new TopicPartition(r.topic(), r.partition())));
+        unacknowledged.keySet().removeAll(partitions);
+        nextOffsets.keySet().removeAll(partitions);
+        committedOffsets.keySet().removeAll(partitions);
+      }
+
+      @Override
+      public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+      }
+    });
 
     Properties producerProps = new Properties();
     producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServer);
@@ -53,22 +102,131 @@ public class KafkaExecutionQueue extends AbstractGraphExecutionQueue {
   }
 
   public String take() {
-    ConsumerRecords<String, String> poll = consumer.poll(Duration.ofSeconds(10));
-    for (ConsumerRecord<String, String> record : poll) {
-      consumer.commitSync();
-      return record.value();
+    return acknowledged(takeRecord());
+  }
+
+  @Override
+  public String poll() {
+    return acknowledged(pollRecord());
+  }
+
+  private String acknowledged(ExecutionQueueRecord record) {
+    if (record == null) {
+      return null;
+    }
+    acknowledge(record);
+    return record.getExecutionId();
+  }
+
+  @Override
+  public synchronized ExecutionQueueRecord takeRecord() {
+    if (polled.isEmpty()) {
+      ConsumerRecords<String, String> poll = consumer.poll(Duration.ofSeconds(10));
+      for (ConsumerRecord<String, String> record : poll) {
+        polled.add(record);
+      }
+    }
+    return handOff();
+  }
+
+  @Override
+  public synchronized ExecutionQueueRecord pollRecord() {
+    return handOff();
+  }
+
+  /**
+   * Take the next buffered record, tombstones are committed and skipped.
+   * 
+   * @return record or null if no record is buffered
+   */
+  private ExecutionQueueRecord handOff() {
+    ConsumerRecord<String, String> record;
+    while ((record = polled.poll()) != null) {
+      TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+      nextOffsets.put(partition, record.offset() + 1);
+      if (record.value() == null) {
+        commit(partition);
+        continue;
+      }
+      unacknowledged.computeIfAbsent(partition, p -> new TreeSet<>()).add(record.offset());
+      return new KafkaRecord(record.value(), header(record, REQUESTER_HEADER),
+          priority(header(record, PRIORITY_HEADER)), partition, record.offset());
     }
     return null;
   }
 
+  @Override
+  public synchronized void acknowledge(ExecutionQueueRecord record) {
+    KafkaRecord kafkaRecord = (KafkaRecord) record;
+    TreeSet<Long> offsets = unacknowledged.get(kafkaRecord.partition);
+    if (offsets == null || !offsets.remove(kafkaRecord.offset)) {
+      // the partition was revoked since the record was taken
+      return;
+    }
+    commit(kafkaRecord.partition);
+  }
+
+  /**
+   * Commit the partition up to its oldest unacknowledged record, records are
+   * taken out of order by scheduling layers so later acknowledged records may
+   * be delivered again after a failure.
+   */
+  private void commit(TopicPartition partition) {
+    TreeSet<Long> offsets = unacknowledged.get(partition);
+    long offset = offsets == null || offsets.isEmpty() ? nextOffsets.get(partition)
+        : offsets.first();
+    if (offset <= committedOffsets.getOrDefault(partition, -1L)) {
+      return;
+    }
+    try {
+      consumer.commitSync(Collections.singletonMap(partition, new OffsetAndMetadata(offset)));
+      committedOffsets.put(partition, offset);
+    } catch (CommitFailedException e) {
+      // the partition was reassigned and its records will be delivered to the
+      // new consumer as well, graph leases keep them from being advanced twice
+      logger.log(Level.WARNING, "Failed to commit offset:" + offset + " of " + partition, e);
+    }
+  }
+
+  private static String header(ConsumerRecord<String, String> record, String key) {
+    Header header = record.headers().lastHeader(key);
+    return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+  }
+
+  private static ExecutionPriority priority(String priority) {
+    if (priority == null) {
+      return null;
+    }
+    try {
+      return ExecutionPriority.valueOf(priority);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
   @Override
   public boolean isEmpty() {
     throw new UnsupportedOperationException();
   }
 
   public void add(String executionId) throws IOException {
+    add(executionId, null, null);
+  }
+
+  @Override
+  public void add(String executionId,
+                  String requester,
+                  ExecutionPriority priority) throws IOException {
+    ProducerRecord<String, String> record = new ProducerRecord<String, String>(topic,
+        executionId, executionId);
+    if (requester != null) {
+      record.headers().add(REQUESTER_HEADER, requester.getBytes(StandardCharsets.UTF_8));
+    }
+    if (priority != null) {
+      record.headers().add(PRIORITY_HEADER, priority.name().getBytes(StandardCharsets.UTF_8));
+    }
     try {
-      producer.send(new ProducerRecord<String, String>(topic, executionId, executionId)).get();
+      producer.send(record).get();
     } catch (Exception e) {
       throw new IOException(e);
     }
@@ -86,4 +244,21 @@ public class KafkaExecutionQueue extends AbstractGraphExecutionQueue {
   public void bootstrap(List<String> graphs) {
   }
 
+  private static final class KafkaRecord extends ExecutionQueueRecord {
+
+    private final TopicPartition partition;
+    private final long offset;
+
+    private KafkaRecord(String executionId,
+                        String requester,
+                        ExecutionPriority priority,
+                        TopicPartition partition,
+                        long offset) {
+      super(executionId, requester, priority);
+      this.partition = partition;
+      this.offset = offset;
+    }
+
+  }
+
 }
@@ -1,6 +1,7 @@
 package com.pinterest.slate.graph.storage;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,13 @@ public class RDBMSResourceDAO extends AbstractDAO<Resource> {
     return get(id);
   }
 
+  public List<Resource> getResourcesById(Collection<String> ids) {
+    @SuppressWarnings("unchecked")
+    List<Resource> resultList = namedQuery("resourcesById").setParameter("ids", ids)
+        .getResultList();
+    return resultList;
+  }
+
   public String saveResource(Resource resource) {
     resource.setLastUpdateTimestamp(System.currentTimeMillis());
     // add support for versioning
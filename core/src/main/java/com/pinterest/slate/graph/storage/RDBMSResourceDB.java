@@ -143,15 +143,11 @@ public class RDBMSResourceDB extends AbstractResourceDB {
   @Override
   public Map<String, Resource> getResourceByIdAsMap(Collection<String> ids) throws IOException {
     Map<String, Resource> map = new HashMap<>(ids.size());
-    for (String id : ids) {
-      try {
-        Resource r = getResourceById(id);
-        if (r != null) {
-          map.put(id, r);
-        }
-      } catch (Exception e) {
-        e.printStackTrace();
-      }
+    if (ids.isEmpty()) {
+      return map;
+    }
+    for (Resource r : dao.getResourcesById(ids)) {
+      map.put(r.getId(), r);
     }
     return map;
   }
@@ -2,6 +2,7 @@ package com.pinterest.slate.graph.storage;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -11,8 +12,6 @@ import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.io.IOUtils;
 
 import com.google.gson.Gson;
-import com.pinterest.slate.graph.AbstractStateStore;
-import com.pinterest.slate.graph.ExecutionGraph;
 import com.pinterest.slate.resources.Resource;
 
 import software.amazon.awssdk.auth.credentials.InstanceProfileCredentialsProvider;
@@ -20,14 +19,17 @@ import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
-public class S3StateStore extends AbstractStateStore {
+public class S3StateStore extends JournaledStateStore {
 
   private static final Gson GSON = new Gson();
   private S3Client s3;
@@ -42,23 +44,77 @@ public class S3StateStore extends AbstractStateStore {
     bucket = stateStoreConfig.getString("bucket");
     executionGraphStoragePrefix = stateStoreConfig.getString("executionGraphStoragePrefix");
     resourceUpdateStoragePrefix = stateStoreConfig.getString("resourceUpdateStoragePrefix");
+    setSnapshotInterval(stateStoreConfig.getInt("snapshotInterval", 0));
   }
 
   @Override
-  public void saveExecutionGraph(ExecutionGraph graph) throws IOException {
-    String json = GSON.toJson(graph);
+  protected void writeSnapshot(String executionId, String json) throws IOException {
     PutObjectRequest req = PutObjectRequest.builder().bucket(bucket)
-        .key(executionGraphStoragePrefix + "/" + graph.getExecutionId()).build();
+        .key(executionGraphStoragePrefix + "/" + executionId).build();
     s3.putObject(req, RequestBody.fromString(json));
   }
 
   @Override
-  public ExecutionGraph getExecutionGraph(String excutionId) throws IOException {
-    ResponseInputStream<GetObjectResponse> object = s3.getObject(GetObjectRequest.builder()
-        .bucket(bucket).key(executionGraphStoragePrefix + "/" + excutionId).build());
+  protected String readSnapshot(String executionId) throws IOException {
+    return readObject(executionGraphStoragePrefix + "/" + executionId);
+  }
+
+  @Override
+  protected void appendJournal(String executionId, long sequence, String json) throws IOException {
+    // objects can't be appended to, each journal entry is written as its own
+    // object and the zero padded sequence keeps them in order when listed
+    PutObjectRequest req = PutObjectRequest.builder().bucket(bucket)
+        .key(getJournalPrefix(executionId) + String.format("%019d", sequence)).build();
+    s3.putObject(req, RequestBody.fromString(json));
+  }
+
+  @Override
+  protected List<String> readJournal(String executionId) throws IOException {
+    List<String> entries = new ArrayList<>();
+    for (String key : listJournalKeys(executionId)) {
+      entries.add(readObject(key));
+    }
+    return entries;
+  }
+
+  @Override
+  protected void deleteJournal(String executionId) throws IOException {
+    List<ObjectIdentifier> keys = listJournalKeys(executionId).stream()
+        .map(k -> ObjectIdentifier.builder().key(k).build()).collect(Collectors.toList());
+    // delete requests are limited to 1000 keys
+    for (int i = 0; i < keys.size(); i += 1000) {
+      s3.deleteObjects(DeleteObjectsRequest.builder().bucket(bucket)
+          .delete(Delete.builder().objects(keys.subList(i, Math.min(i + 1000, keys.size())))
+              .build())
+          .build());
+    }
+  }
+
+  private List<String> listJournalKeys(String executionId) {
+    String prefix = getJournalPrefix(executionId);
+    List<String> keys = new ArrayList<>();
+    ListObjectsResponse listObjects;
+    do {
+      ListObjectsRequest.Builder req = ListObjectsRequest.builder().bucket(bucket).prefix(prefix);
+      if (!keys.isEmpty()) {
+        req.marker(keys.get(keys.size() - 1));
+      }
+      listObjects = s3.listObjects(req.build());
+      listObjects.contents().forEach(o -> keys.add(o.key()));
+    } while (listObjects.isTruncated());
+    return keys;
+  }
+
+  private String readObject(String key) throws IOException {
+    ResponseInputStream<GetObjectResponse> object = s3
+        .getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     IOUtils.copy(object, out);
-    return GSON.fromJson(new String(out.toByteArray()), ExecutionGraph.class);
+    return new String(out.toByteArray());
+  }
+
+  private String getJournalPrefix(String executionId) {
+    return executionGraphStoragePrefix + "/" + executionId + ".journal/";
   }
 
   @Override
@@ -66,6 +66,7 @@ export interface IPlanInfo {
     time: number;
     plan: unknown;
     deltaGraph: Record<string, INodeData>;
+    planHandle?: string | null;
     executionGraph?: unknown;
     isExecution?: boolean;
     error?: unknown;
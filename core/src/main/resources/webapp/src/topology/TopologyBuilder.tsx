@@ -540,6 +540,7 @@ const TopologyBuilder: React.FC<ITopologyBuilderProps> = () => {
 
     const submitPlan = () => {
         const graph = computeGraphForPlan(wsNodes, wsEdges);
+        let planHandle: string | null = null;
         showLoadingOverlay(true);
         fetch('/api/v2/graphs/plan', {
             method: 'POST',
@@ -550,6 +551,7 @@ const TopologyBuilder: React.FC<ITopologyBuilderProps> = () => {
         })
             .then((response) => {
                 if (response.status == 200) {
+                    planHandle = response.headers.get('X-Slate-Plan-Handle');
                     return response.json();
                 } else {
                     throw response;
@@ -561,6 +563,7 @@ const TopologyBuilder: React.FC<ITopologyBuilderProps> = () => {
                         time: Date.now(),
                         plan: plan,
                         deltaGraph: graph,
+                        planHandle: planHandle,
                     });
                     setPlanDialog(true);
                     setIsPlanRunAfterGraphUpdate(true);
@@ -590,11 +593,16 @@ const TopologyBuilder: React.FC<ITopologyBuilderProps> = () => {
     const executePlan = () => {
         let graph = computeGraphForPlan(wsNodes, wsEdges);
         showLoadingOverlay(true);
+        const headers = new Headers({
+            'Content-Type': 'application/json',
+        });
+        if (planInfo?.planHandle) {
+            // server falls back to planning again if the graph changed since
+            headers.append('X-Slate-Plan-Handle', planInfo.planHandle);
+        }
         fetch('/api/v2/graphs/execute', {
             method: 'POST',
-            headers: new Headers({
-                'Content-Type': 'application/json',
-            }),
+            headers: headers,
             body: JSON.stringify(graph),
         })
             .then((response) => {
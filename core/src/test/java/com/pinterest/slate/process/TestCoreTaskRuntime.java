@@ -0,0 +1,143 @@
+package com.pinterest.slate.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.pinterest.slate.process.taskdefinitions.FailProcessTask;
+import com.pinterest.slate.process.taskdefinitions.SucceedProcessTask;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestCoreTaskRuntime {
+
+  private static final Gson GSON = new Gson();
+  private HttpServer server;
+  private String baseUrl;
+  private List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+  private AtomicInteger rejectedBatches = new AtomicInteger();
+  private AtomicInteger taskChecks = new AtomicInteger();
+
+  @Before
+  public void before() throws Exception {
+    TaskFactory.INSTANCE.registerTask(new SucceedProcessTask());
+    TaskFactory.INSTANCE.registerTask(new FailProcessTask());
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/batch", exchange -> {
+      JsonArray checks = GSON.fromJson(
+          new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8),
+          JsonArray.class);
+      batchSizes.add(checks.size());
+      List<StatusUpdate> updates = new ArrayList<>();
+      for (int i = 0; i < checks.size(); i++) {
+        updates.add(StatusUpdate.create(Status.SUCCEEDED));
+      }
+      respond(exchange, 200, GSON.toJson(updates));
+    });
+    server.createContext("/rejecting/batch", exchange -> {
+      rejectedBatches.incrementAndGet();
+      respond(exchange, 404, "");
+    });
+    server.createContext("/tasks/", exchange -> {
+      taskChecks.incrementAndGet();
+      respond(exchange, 200, GSON.toJson(StatusUpdate.create(Status.SUCCEEDED)));
+    });
+    server.start();
+    baseUrl = "http://localhost:" + server.getAddress().getPort();
+  }
+
+  @After
+  public void after() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testStatusChecksAreSplitIntoBatches() throws Exception {
+    RPCTaskDefinition definition = new RPCTaskDefinition(baseUrl + "/tasks", "rpcbatched");
+    definition.setBatchStatusUrl(baseUrl + "/batch");
+    TaskFactory.INSTANCE.registerTask(definition);
+    CoreTaskRuntime runtime = new CoreTaskRuntime();
+    runtime.setMaxStatusBatchSize(2);
+    List<LifecycleProcess> processes = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      processes.add(runningProcess("batched_" + i, "rpcbatched"));
+    }
+
+    Map<String, Map<String, StatusUpdate>> updates = runtime.prefetchStatus(processes);
+    List<Integer> sizes = new ArrayList<>(batchSizes);
+    Collections.sort(sizes);
+    assertEquals(Arrays.asList(1, 2, 2), sizes);
+    assertEquals(5, updates.size());
+    for (LifecycleProcess process : processes) {
+      assertEquals(Status.SUCCEEDED, updates.get(process.getProcessId()).get("t").getStatus());
+    }
+    assertEquals(0, taskChecks.get());
+  }
+
+  @Test
+  public void testRejectedBatchFallsBackToTaskChecks() throws Exception {
+    RPCTaskDefinition definition = new RPCTaskDefinition(baseUrl + "/tasks", "rpcunbatched");
+    definition.setBatchStatusUrl(baseUrl + "/rejecting/batch");
+    TaskFactory.INSTANCE.registerTask(definition);
+    CoreTaskRuntime runtime = new CoreTaskRuntime();
+    List<LifecycleProcess> processes = Arrays.asList(
+        runningProcess("unbatched_0", "rpcunbatched"),
+        runningProcess("unbatched_1", "rpcunbatched"));
+
+    assertTrue(runtime.prefetchStatus(processes).isEmpty());
+    assertEquals(1, rejectedBatches.get());
+    // checks that weren't answered by the batch are made one task at a time
+    for (LifecycleProcess process : processes) {
+      process.continueExecution(runtime, Collections.emptyMap());
+      assertEquals(Status.SUCCEEDED, process.getAllTasks().get("t").getStatus());
+    }
+    assertEquals(2, taskChecks.get());
+    // the satellite isn't sent batches again until the entry expires
+    processes = Arrays.asList(runningProcess("unbatched_2", "rpcunbatched"),
+        runningProcess("unbatched_3", "rpcunbatched"));
+    assertTrue(runtime.prefetchStatus(processes).isEmpty());
+    assertEquals(1, rejectedBatches.get());
+  }
+
+  private static LifecycleProcess runningProcess(String processId,
+                                                 String taskDefinitionId) throws Exception {
+    LifecycleProcess process = new LifecycleProcess(processId);
+    process.addTaskNode(new Task("t", taskDefinitionId,
+        ImmutableList.of(Task.SUCCEED_PROCESS_TASK), ImmutableList.of(Task.FAIL_PROCESS_TASK),
+        ImmutableList.of(Task.FAIL_PROCESS_TASK)));
+    process.setStartTaskId("t");
+    process.setProcessContext(new JsonObject());
+    process.init();
+    process.getAllTasks().get("t").setStatus(Status.RUNNING);
+    return process;
+  }
+
+  private static void respond(HttpExchange exchange,
+                              int status,
+                              String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+    if (bytes.length > 0) {
+      exchange.getResponseBody().write(bytes);
+    }
+    exchange.close();
+  }
+
+}
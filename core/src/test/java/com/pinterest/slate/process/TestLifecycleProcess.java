@@ -1,10 +1,15 @@
 package com.pinterest.slate.process;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.gson.JsonObject;
 import com.pinterest.slate.process.taskdefinitions.FailProcessTask;
 import com.pinterest.slate.process.taskdefinitions.SucceedProcessTask;
@@ -12,11 +17,14 @@ import com.pinterest.slate.process.taskdefinitions.SucceedProcessTask;
 public class TestLifecycleProcess {
 
   private TaskRuntime runtime = new CoreTaskRuntime();
+  private TestRunningTaskDef runningTaskDef = new TestRunningTaskDef();
 
   public TestLifecycleProcess() {
     TaskFactory.INSTANCE.registerTask(new TestSuccessTaskDef());
     TaskFactory.INSTANCE.registerTask(new TestFailureTaskDef());
     TaskFactory.INSTANCE.registerTask(new TestCancelledTaskDef());
+    TaskFactory.INSTANCE.registerTask(new TestBarrierTaskDef());
+    TaskFactory.INSTANCE.registerTask(runningTaskDef);
     TaskFactory.INSTANCE.registerTask(new SucceedProcessTask());
     TaskFactory.INSTANCE.registerTask(new FailProcessTask());
   }
@@ -79,6 +87,185 @@ public class TestLifecycleProcess {
     assertEquals(0, process.getCurrenTaskSet().size());
   }
 
+  @Test
+  public void testPushedStatusUpdateSkipsBackoff() throws Exception {
+    LifecycleProcess process = new LifecycleProcess("exec_resource");
+    process.addTaskNode(new Task("one", "s", ImmutableList.of(Task.SUCCEED_PROCESS_TASK),
+        ImmutableList.of(Task.FAIL_PROCESS_TASK), ImmutableList.of(Task.FAIL_PROCESS_TASK)));
+    process.setStartTaskId("one");
+    process.setProcessContext(new JsonObject());
+    process.init();
+    process.continueExecution(runtime);
+    Task task = process.getAllTasks().get("one");
+    assertEquals(Status.RUNNING, task.getStatus());
+    // not due, the task must not be checked
+    task.setNextPollTimeMs(Long.MAX_VALUE);
+    process.continueExecution(runtime);
+    assertEquals(Status.RUNNING, task.getStatus());
+    process.continueExecution(runtime, ImmutableMap.of("one", StatusUpdate.create(Status.FAILED)));
+    assertEquals(Status.FAILED, task.getStatus());
+  }
+
+  @Test
+  public void testStateVersionTracksChanges() throws Exception {
+    LifecycleProcess process = new LifecycleProcess("exec_version");
+    process.addTaskNode(new Task("one", "s", ImmutableList.of(Task.SUCCEED_PROCESS_TASK),
+        ImmutableList.of(Task.FAIL_PROCESS_TASK), ImmutableList.of(Task.FAIL_PROCESS_TASK)));
+    process.setStartTaskId("one");
+    process.setProcessContext(new JsonObject());
+    process.init();
+    process.continueExecution(runtime);
+    Task task = process.getAllTasks().get("one");
+    assertEquals(Status.RUNNING, task.getStatus());
+    // a tick that doesn't check any task leaves the state unchanged
+    task.setNextPollTimeMs(Long.MAX_VALUE);
+    long version = process.getStateVersion();
+    process.continueExecution(runtime);
+    assertEquals(version, process.getStateVersion());
+    task.setNextPollTimeMs(0);
+    process.continueExecution(runtime);
+    assertEquals(Status.SUCCEEDED, task.getStatus());
+    assertTrue(process.getStateVersion() > version);
+  }
+
+  @Test
+  public void testPollBackoffIsCappedAndHonoursRetryAfter() throws Exception {
+    CoreTaskRuntime runtime = new CoreTaskRuntime();
+    runtime.setMinPollIntervalMs(100);
+    runtime.setMaxPollIntervalMs(350);
+    LifecycleProcess process = new LifecycleProcess("exec_backoff");
+    process.addTaskNode(new Task("one", "r", ImmutableList.of(Task.SUCCEED_PROCESS_TASK),
+        ImmutableList.of(Task.FAIL_PROCESS_TASK), ImmutableList.of(Task.FAIL_PROCESS_TASK)));
+    process.setStartTaskId("one");
+    process.setProcessContext(new JsonObject());
+    process.init();
+    process.continueExecution(runtime);
+    Task task = process.getAllTasks().get("one");
+    assertEquals(Status.RUNNING, task.getStatus());
+    // the first status check is due right away
+    assertEquals(0, task.getNextPollTimeMs());
+
+    // the interval doubles while the task doesn't make progress, up to the max
+    runningTaskDef.retryAfterMs = 0;
+    for (long expected : new long[] { 100, 200, 350, 350 }) {
+      assertNextPoll(runtime, process, task, expected);
+    }
+    // a hint from the task takes precedence over the bounds
+    runningTaskDef.retryAfterMs = 5_000;
+    assertNextPoll(runtime, process, task, 5_000);
+    runningTaskDef.retryAfterMs = 0;
+    assertNextPoll(runtime, process, task, 350);
+  }
+
+  private static void assertNextPoll(TaskRuntime runtime,
+                                     LifecycleProcess process,
+                                     Task task,
+                                     long expectedIntervalMs) throws Exception {
+    task.setNextPollTimeMs(0);
+    long before = System.currentTimeMillis();
+    process.continueExecution(runtime);
+    assertEquals(expectedIntervalMs, task.getPollIntervalMs());
+    // jitter adds up to a fifth of the interval
+    assertTrue(task.getNextPollTimeMs() >= before + expectedIntervalMs);
+    assertTrue(task.getNextPollTimeMs() <= System.currentTimeMillis() + expectedIntervalMs
+        + expectedIntervalMs / 5);
+  }
+
+  @Test
+  public void testConcurrentTaskStart() throws Exception {
+    LifecycleProcess process = new LifecycleProcess("exec_fanout");
+    process.addTaskNode(new Task("left", "b", ImmutableList.of(Task.SUCCEED_PROCESS_TASK),
+        ImmutableList.of(Task.FAIL_PROCESS_TASK), ImmutableList.of(Task.FAIL_PROCESS_TASK)));
+    process.addTaskNode(new Task("right", "b", ImmutableList.of(Task.SUCCEED_PROCESS_TASK),
+        ImmutableList.of(Task.FAIL_PROCESS_TASK), ImmutableList.of(Task.FAIL_PROCESS_TASK)));
+    process.addTaskNode(new Task("one", "s", ImmutableList.of("left", "right"),
+        ImmutableList.of(Task.FAIL_PROCESS_TASK), ImmutableList.of(Task.FAIL_PROCESS_TASK)));
+    process.setStartTaskId("one");
+    process.setProcessContext(new JsonObject());
+    process.setMaxConcurrentTasks(2);
+    process.init();
+    for (int i = 0; i < 4; i++) {
+      process.continueExecution(runtime);
+    }
+    // both branches can only start if their start calls are made concurrently
+    assertEquals(2, process.getCurrenTaskSet().size());
+    assertEquals(Status.RUNNING, process.getAllTasks().get("left").getStatus());
+    assertEquals(Status.RUNNING, process.getAllTasks().get("right").getStatus());
+  }
+
+  public static class TestBarrierTaskDef extends TaskDefinition {
+
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+
+    public TestBarrierTaskDef() {
+      super("b");
+    }
+
+    @Override
+    public StatusUpdate startExecution(TaskRuntime runtime,
+                                       String taskId,
+                                       LifecycleProcess process,
+                                       JsonObject processContext,
+                                       JsonObject taskContext) throws Exception {
+      barrier.await(5, TimeUnit.SECONDS);
+      return StatusUpdate.create(Status.RUNNING);
+    }
+
+    @Override
+    public StatusUpdate checkStatus(TaskRuntime runtime,
+                                    String taskId,
+                                    LifecycleProcess process,
+                                    JsonObject processContext,
+                                    JsonObject taskContext) throws Exception {
+      return StatusUpdate.create(Status.RUNNING);
+    }
+
+    @Override
+    public void validate(String taskInstanceId,
+                         LifecycleProcess process,
+                         JsonObject processContext,
+                         JsonObject taskContext) throws Exception {
+    }
+
+  }
+
+  public static class TestRunningTaskDef extends TaskDefinition {
+
+    private volatile long retryAfterMs;
+
+    public TestRunningTaskDef() {
+      super("r");
+    }
+
+    @Override
+    public StatusUpdate startExecution(TaskRuntime runtime,
+                                       String taskId,
+                                       LifecycleProcess process,
+                                       JsonObject processContext,
+                                       JsonObject taskContext) throws Exception {
+      return StatusUpdate.create(Status.RUNNING);
+    }
+
+    @Override
+    public StatusUpdate checkStatus(TaskRuntime runtime,
+                                    String taskId,
+                                    LifecycleProcess process,
+                                    JsonObject processContext,
+                                    JsonObject taskContext) throws Exception {
+      StatusUpdate update = StatusUpdate.create(Status.RUNNING);
+      update.setRetryAfterMs(retryAfterMs);
+      return update;
+    }
+
+    @Override
+    public void validate(String taskInstanceId,
+                         LifecycleProcess process,
+                         JsonObject processContext,
+                         JsonObject taskContext) throws Exception {
+    }
+
+  }
+
   public static class TestSuccessTaskDef extends TaskDefinition {
 
     public TestSuccessTaskDef() {
@@ -0,0 +1,79 @@
+package com.pinterest.slate.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonObject;
+
+public class TestTaskInvocation {
+
+  @Test
+  public void testProjectionOfProcessContext() {
+    LifecycleProcess process = process();
+    // no projection sends the whole context
+    TaskInvocation invocation = TaskInvocation.create("def", "task", process, null);
+    assertSame(process.getProcessContext(), invocation.getProcessContext());
+    assertEquals("value", invocation.getTaskContext().get("key").getAsString());
+
+    // only the projected keys that exist are sent along with the task context
+    invocation = TaskInvocation.create("def", "task", process,
+        ImmutableSet.of("region", "missing"));
+    assertEquals(ImmutableSet.of("region"), invocation.getProcessContext().keySet());
+    assertEquals("value", invocation.getTaskContext().get("key").getAsString());
+
+    // an empty projection only sends the task context
+    invocation = TaskInvocation.create("def", "task", process, Collections.emptySet());
+    assertNull(invocation.getProcessContext());
+    assertEquals("exec_1", invocation.getExecutionId());
+    assertEquals("process_1", invocation.getProcessId());
+  }
+
+  @Test
+  public void testToProcessRebuildsContext() {
+    LifecycleProcess process = process();
+    TaskInvocation invocation = TaskInvocation.create("def", "task", process,
+        ImmutableSet.of("region"));
+    invocation.setCallbackToken("token");
+
+    LifecycleProcess called = invocation.toProcess();
+    assertEquals("process_1", called.getProcessId());
+    assertEquals("exec_1", called.getExecutionId());
+    JsonObject context = called.getProcessContext();
+    assertEquals(ImmutableSet.of("region", "task"), context.keySet());
+    JsonObject taskContext = context.getAsJsonObject("task");
+    assertEquals("value", taskContext.get("key").getAsString());
+    assertEquals("token", taskContext.get(TaskInvocation.CALLBACK_TOKEN_KEY).getAsString());
+    // the token is added to a copy, the task context of the process is unchanged
+    assertFalse(process.getProcessContext().getAsJsonObject("task")
+        .has(TaskInvocation.CALLBACK_TOKEN_KEY));
+
+    // tasks without a task context are still sent the token
+    invocation = TaskInvocation.create("def", "other", process, Collections.emptySet());
+    invocation.setCallbackToken("token");
+    context = invocation.toProcess().getProcessContext();
+    assertEquals(ImmutableSet.of("other"), context.keySet());
+    assertTrue(context.getAsJsonObject("other").has(TaskInvocation.CALLBACK_TOKEN_KEY));
+  }
+
+  private static LifecycleProcess process() {
+    LifecycleProcess process = new LifecycleProcess("process_1");
+    process.setExecutionId("exec_1");
+    JsonObject context = new JsonObject();
+    context.addProperty("region", "us-east-1");
+    context.addProperty("owner", "logging");
+    JsonObject taskContext = new JsonObject();
+    taskContext.addProperty("key", "value");
+    context.add("task", taskContext);
+    process.setProcessContext(context);
+    return process;
+  }
+
+}
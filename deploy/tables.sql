@@ -50,3 +50,15 @@ CREATE TABLE IF NOT EXISTS proposedresource (
 
 alter table resource add column parent_resource_id text after output_resource_ids;
 alter table resource add column child_resource_ids varchar(500) after parent_resource_id;
+alter table executiongraph add column lease_owner varchar(255) after state_path;
+alter table executiongraph add column lease_expiry bigint after lease_owner;
+alter table executiongraph add column fencing_token bigint DEFAULT 0 after lease_expiry;
+CREATE TABLE IF NOT EXISTS taskstatusupdate (
+  process_id varchar(500) NOT NULL,
+  task_id varchar(255) NOT NULL,
+  execution_id varchar(500) NOT NULL,
+  status_update mediumtext,
+  update_time timestamp NULL DEFAULT NULL,
+  PRIMARY KEY (process_id,task_id),
+  KEY execution_id (execution_id)
+);
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pinterest.slate.graph.SyntheticGraphs.Shape;
+
+/**
+ * Edge mutation generation for a planned synthetic graph.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EdgeMutationBenchmark {
+
+  @Param({ "CHAIN", "FAN_OUT", "DIAMOND", "PARENT_CHILD" })
+  public Shape shape;
+
+  @Param({ "10", "1000", "50000" })
+  public int vertices;
+
+  private GraphEngine engine;
+  private Map<String, PlanVertex> planGraph;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws Exception {
+    engine = new GraphEngine(new SyntheticResourceFactory(0), new InMemoryResourceDB());
+    planGraph = engine.planGraphUpdate("benchmark", SyntheticGraphs.generate(shape, vertices));
+  }
+
+  @Benchmark
+  public SortedMap<String, EdgeMutation> generateAllEdgeMutations() {
+    return engine.generateAllEdgeMutations(planGraph);
+  }
+
+}
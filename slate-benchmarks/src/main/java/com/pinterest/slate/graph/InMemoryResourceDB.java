@@ -0,0 +1,115 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.google.gson.Gson;
+import com.pinterest.slate.resources.Resource;
+
+/**
+ * {@link AbstractResourceDB} backed by a map of serialized resources so every
+ * read returns a fresh copy, the same as a database backed implementation.
+ */
+public class InMemoryResourceDB extends AbstractResourceDB {
+
+  private static final Gson GSON = new Gson();
+  private SortedMap<String, String> resourceMap = new ConcurrentSkipListMap<>();
+
+  @Override
+  public List<ResourceSearchResultEntry> searchResourceIdPrefix(String idPrefix) throws IOException {
+    List<ResourceSearchResultEntry> entries = new ArrayList<>();
+    SortedMap<String, String> subMap = resourceMap.subMap(idPrefix, idPrefix + Character.MAX_VALUE);
+    for (Entry<String, String> entry : subMap.entrySet()) {
+      Resource r = GSON.fromJson(entry.getValue(), Resource.class);
+      entries.add(new ResourceSearchResultEntry(entry.getKey(), r.getResourceDefinitionClass()));
+    }
+    return entries;
+  }
+
+  @Override
+  public void updateResources(Collection<Resource> resources) throws IOException {
+    for (Resource resource : resources) {
+      updateResource(resource);
+    }
+  }
+
+  @Override
+  public void updateResource(Resource resource) throws IOException {
+    resourceMap.put(resource.getId(), GSON.toJson(resource));
+  }
+
+  @Override
+  public void deleteResource(Resource resource) throws IOException {
+    resourceMap.remove(resource.getId());
+  }
+
+  @Override
+  public Resource getResourceById(String id) throws IOException {
+    String v = resourceMap.get(id);
+    if (v == null) {
+      return null;
+    }
+    return GSON.fromJson(v, Resource.class);
+  }
+
+  @Override
+  public List<Resource> getResourcesById(List<String> ids,
+                                         boolean errorOnMissing) throws IOException {
+    List<Resource> list = new ArrayList<>();
+    for (String id : ids) {
+      Resource r = getResourceById(id);
+      if (r == null && errorOnMissing) {
+        throw new IOException("No such element:" + id);
+      }
+      list.add(r);
+    }
+    return list;
+  }
+
+  @Override
+  public Map<String, Resource> getResourceByIdAsMap(Collection<String> ids) throws IOException {
+    Map<String, Resource> map = new HashMap<>();
+    for (String id : ids) {
+      Resource r = getResourceById(id);
+      if (r != null) {
+        map.put(id, r);
+      }
+    }
+    return map;
+  }
+
+  @Override
+  public Map<String, Long> getLastUpdateTimestamp(List<String> ids) throws IOException {
+    Map<String, Long> map = new HashMap<>();
+    for (String id : ids) {
+      Resource r = getResourceById(id);
+      if (r != null) {
+        map.put(id, r.getLastUpdateTimestamp());
+      }
+    }
+    return map;
+  }
+
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pinterest.slate.graph.SyntheticGraphs.Shape;
+import com.pinterest.slate.resources.Resource;
+
+/**
+ * End to end planning of synthetic delta graphs through
+ * {@link GraphEngine#planGraphUpdate(String, Map, PlanSummary)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlanningBenchmark {
+
+  @Param({ "CHAIN", "FAN_OUT", "DIAMOND", "PARENT_CHILD" })
+  public Shape shape;
+
+  @Param({ "10", "1000", "50000" })
+  public int vertices;
+
+  // plan updates to existing resources instead of creating new ones
+  @Param({ "false", "true" })
+  public boolean existing;
+
+  @Param({ "0" })
+  public long latencyMicros;
+
+  @Param({ "0" })
+  public int planningParallelism;
+
+  private GraphEngine engine;
+  private PlanningExecutor planningExecutor;
+  private Map<String, Resource> deltaGraph;
+
+  @Setup(Level.Trial)
+  public void setupTrial() throws Exception {
+    InMemoryResourceDB resourceDB = new InMemoryResourceDB();
+    if (existing) {
+      resourceDB.updateResources(SyntheticGraphs.generate(shape, vertices).values());
+    }
+    engine = new GraphEngine(new SyntheticResourceFactory(latencyMicros), resourceDB);
+    if (planningParallelism > 1) {
+      planningExecutor = new PlanningExecutor(planningParallelism, planningParallelism);
+      engine.setPlanningExecutor(planningExecutor);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    // planning modifies the delta graph so each invocation needs its own copy
+    deltaGraph = SyntheticGraphs.generate(shape, vertices);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    if (planningExecutor != null) {
+      planningExecutor.shutdown();
+    }
+  }
+
+  @Benchmark
+  public Map<String, PlanVertex> planGraphUpdate(PlanCounters counters) throws Exception {
+    PlanSummary summary = new PlanSummary();
+    Map<String, PlanVertex> planGraph = engine.planGraphUpdate("benchmark", deltaGraph, summary);
+    counters.iterations += summary.getIterations();
+    counters.replannedVertices += summary.getReplannedVertices();
+    return planGraph;
+  }
+
+  /**
+   * Planning passes and re-planned vertices, reported next to the throughput
+   * so changes to planner convergence are visible.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class PlanCounters {
+
+    public long iterations;
+    public long replannedVertices;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      iterations = 0;
+      replannedVertices = 0;
+    }
+
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.pinterest.slate.resources.Resource;
+
+/**
+ * Generates delta graphs of a given shape and size for the benchmarks.
+ */
+public class SyntheticGraphs {
+
+  public static final int CHILDREN_PER_PARENT = 10;
+
+  public enum Shape {
+                     /** v0 -> v1 -> ... -> vn */
+                     CHAIN,
+                     /** v0 -> every other vertex */
+                     FAN_OUT,
+                     /** repeated v0 -> (v1, v2) -> v3 diamonds */
+                     DIAMOND,
+                     /** parents with {@link SyntheticGraphs#CHILDREN_PER_PARENT} children each */
+                     PARENT_CHILD
+  }
+
+  private SyntheticGraphs() {
+  }
+
+  /**
+   * @param shape
+   * @param vertices
+   * @return delta graph keyed by resource id in generation order
+   */
+  public static Map<String, Resource> generate(Shape shape, int vertices) {
+    Map<String, Resource> graph = new LinkedHashMap<>();
+    switch (shape) {
+    case CHAIN:
+      for (int i = 0; i < vertices; i++) {
+        add(graph, i, SyntheticResourceFactory.NODE);
+        if (i > 0) {
+          connect(graph, i - 1, i);
+        }
+      }
+      break;
+    case FAN_OUT:
+      for (int i = 0; i < vertices; i++) {
+        add(graph, i, SyntheticResourceFactory.NODE);
+        if (i > 0) {
+          connect(graph, 0, i);
+        }
+      }
+      break;
+    case DIAMOND:
+      // every third vertex joins the two vertices before it and forks into the two
+      // after it
+      for (int i = 0; i < vertices; i++) {
+        add(graph, i, SyntheticResourceFactory.NODE);
+        if (i % 3 == 0) {
+          if (i > 0) {
+            connect(graph, i - 2, i);
+            connect(graph, i - 1, i);
+          }
+        } else {
+          connect(graph, i - i % 3, i);
+        }
+      }
+      break;
+    case PARENT_CHILD:
+      int parent = 0;
+      for (int i = 0; i < vertices; i++) {
+        if (i % (CHILDREN_PER_PARENT + 1) == 0) {
+          parent = i;
+          add(graph, i, SyntheticResourceFactory.PARENT).setChildResources(new HashSet<>());
+        } else {
+          Resource child = add(graph, i, SyntheticResourceFactory.CHILD);
+          child.setParentResource(id(parent));
+          graph.get(id(parent)).getChildResources().add(child.getId());
+        }
+      }
+      break;
+    }
+    return graph;
+  }
+
+  public static String id(int i) {
+    return "synthetic_" + i;
+  }
+
+  private static Resource add(Map<String, Resource> graph, int i, String resourceDefinitionClass) {
+    Resource resource = new Resource(id(i), resourceDefinitionClass, 1, 1);
+    resource.setOwner("benchmark");
+    resource.setProject("benchmark");
+    resource.setRegion("us-east-1");
+    resource.setEnvironment("test");
+    graph.put(resource.getId(), resource);
+    return resource;
+  }
+
+  private static void connect(Map<String, Resource> graph, int src, int dst) {
+    Resource srcResource = graph.get(id(src));
+    Resource dstResource = graph.get(id(dst));
+    edges(srcResource.getOutputResources(), SyntheticResourceFactory.OUTPUT).add(id(dst));
+    edges(dstResource.getInputResources(), SyntheticResourceFactory.INPUT).add(id(src));
+  }
+
+  private static Set<String> edges(Map<String, Set<String>> edges, String field) {
+    return edges.computeIfAbsent(field, k -> new HashSet<>());
+  }
+
+}
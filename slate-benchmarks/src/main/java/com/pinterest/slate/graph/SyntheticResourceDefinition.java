@@ -0,0 +1,171 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonObject;
+import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.Task;
+import com.pinterest.slate.resources.EdgeDefinition;
+import com.pinterest.slate.resources.IgnoreRD;
+import com.pinterest.slate.resources.Plan;
+import com.pinterest.slate.resources.PlanException;
+import com.pinterest.slate.resources.Resource;
+import com.pinterest.slate.resources.ResourceChange;
+import com.pinterest.slate.resources.ResourceDefinition;
+
+/**
+ * ResourceDefinition stub that plans a no-op process depending on all of its
+ * inputs and parent. Planning and reading the current state sleep for the
+ * configured latency to simulate the satellite round trip.
+ */
+@IgnoreRD
+public class SyntheticResourceDefinition implements ResourceDefinition {
+
+  private String simpleName;
+  private Map<String, EdgeDefinition> requiredInboundEdgeTypes;
+  private Map<String, EdgeDefinition> requiredOutboundEdgeTypes;
+  private EdgeDefinition requiredParentEdgeTypes;
+  private Set<EdgeDefinition> requiredChildEdgeTypes;
+  private long latencyMicros;
+
+  public SyntheticResourceDefinition(String simpleName,
+                                     Map<String, EdgeDefinition> requiredInboundEdgeTypes,
+                                     Map<String, EdgeDefinition> requiredOutboundEdgeTypes,
+                                     EdgeDefinition requiredParentEdgeTypes,
+                                     Set<EdgeDefinition> requiredChildEdgeTypes,
+                                     long latencyMicros) {
+    this.simpleName = simpleName;
+    this.requiredInboundEdgeTypes = requiredInboundEdgeTypes;
+    this.requiredOutboundEdgeTypes = requiredOutboundEdgeTypes;
+    this.requiredParentEdgeTypes = requiredParentEdgeTypes;
+    this.requiredChildEdgeTypes = requiredChildEdgeTypes;
+    this.latencyMicros = latencyMicros;
+  }
+
+  @Override
+  public Plan planChange(ResourceChange change) throws PlanException {
+    simulateLatency();
+    LifecycleProcess process = new LifecycleProcess();
+    process.setProcessContext(new JsonObject());
+    process.setStartTaskId(Task.SUCCEED_PROCESS_TASK);
+    Resource pR = change.getProposedResourceObject();
+    Set<String> upstream = new HashSet<>();
+    if (pR.getInputResources() != null) {
+      for (Set<String> ids : pR.getInputResources().values()) {
+        upstream.addAll(ids);
+      }
+    }
+    if (pR.getParentResource() != null) {
+      upstream.add(pR.getParentResource());
+    }
+    return Plan.of(pR, process, upstream.toArray(new String[0]));
+  }
+
+  @Override
+  public JsonObject readExternalCurrentState(Resource resource) throws Exception {
+    simulateLatency();
+    return resource.getDesiredState();
+  }
+
+  private void simulateLatency() {
+    if (latencyMicros > 0) {
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+    }
+  }
+
+  @Override
+  public Map<String, EdgeDefinition> getRequiredInboundEdgeTypes() {
+    return requiredInboundEdgeTypes;
+  }
+
+  @Override
+  public Map<String, EdgeDefinition> getRequiredOutboundEdgeTypes() {
+    return requiredOutboundEdgeTypes;
+  }
+
+  @Override
+  public EdgeDefinition getRequiredParentEdgeTypes() {
+    return requiredParentEdgeTypes;
+  }
+
+  @Override
+  public Set<EdgeDefinition> getRequiredChildEdgeTypes() {
+    return requiredChildEdgeTypes;
+  }
+
+  @Override
+  public JsonObject getInternalSchema() {
+    JsonObject schema = new JsonObject();
+    schema.addProperty("type", "object");
+    schema.addProperty("title", simpleName);
+    schema.add("properties", new JsonObject());
+    return schema;
+  }
+
+  @Override
+  public JsonObject getUiSchema() {
+    return new JsonObject();
+  }
+
+  @Override
+  public Resource newInstance(String id) {
+    return new Resource(id, simpleName, requiredInboundEdgeTypes.size(),
+        requiredOutboundEdgeTypes.size());
+  }
+
+  @Override
+  public String getSimpleName() {
+    return simpleName;
+  }
+
+  @Override
+  public Set<String> getTags() {
+    return ImmutableSet.of("Benchmark");
+  }
+
+  @Override
+  public String getDocumentation() {
+    return null;
+  }
+
+  @Override
+  public String getChatLink() {
+    return null;
+  }
+
+  @Override
+  public String getAuthor() {
+    return "Slate Team";
+  }
+
+  @Override
+  public String getShortDescription() {
+    return "Synthetic resource used by the planner benchmarks";
+  }
+
+  @Override
+  public String getDocumentationLink() {
+    return null;
+  }
+
+}
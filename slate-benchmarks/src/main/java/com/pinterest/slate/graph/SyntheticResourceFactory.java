@@ -0,0 +1,51 @@
+/**
+ * Copyright 2023 Pinterest, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pinterest.slate.graph;
+
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.pinterest.slate.resources.EdgeDefinition;
+import com.pinterest.slate.resources.ResourceFactory;
+
+/**
+ * ResourceFactory serving the {@link SyntheticResourceDefinition}s used by the
+ * synthetic benchmark graphs.
+ */
+public class SyntheticResourceFactory extends ResourceFactory {
+
+  public static final String NODE = "synthetic.Node";
+  public static final String PARENT = "synthetic.Parent";
+  public static final String CHILD = "synthetic.Child";
+  public static final String INPUT = "in";
+  public static final String OUTPUT = "out";
+
+  public SyntheticResourceFactory(long latencyMicros) {
+    Map<String, EdgeDefinition> inbound = ImmutableMap.of(INPUT,
+        new EdgeDefinition(NODE, 0, Integer.MAX_VALUE));
+    Map<String, EdgeDefinition> outbound = ImmutableMap.of(OUTPUT,
+        new EdgeDefinition(NODE, 0, Integer.MAX_VALUE));
+    resourceMap.put(NODE,
+        new SyntheticResourceDefinition(NODE, inbound, outbound, null, null, latencyMicros));
+    resourceMap.put(PARENT,
+        new SyntheticResourceDefinition(PARENT, ImmutableMap.of(), ImmutableMap.of(), null,
+            ImmutableSet.of(new EdgeDefinition(CHILD, 1, Integer.MAX_VALUE)), latencyMicros));
+    resourceMap.put(CHILD, new SyntheticResourceDefinition(CHILD, ImmutableMap.of(),
+        ImmutableMap.of(), new EdgeDefinition(PARENT, 1, 1), null, latencyMicros));
+  }
+
+}
@@ -1,21 +1,49 @@
 package com.pinterest.slate.satellite;
 
+import java.io.IOException;
+
 import org.apache.commons.configuration2.Configuration;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.gson.JsonObject;
 import com.pinterest.slate.process.LifecycleProcess;
 import com.pinterest.slate.process.Status;
 import com.pinterest.slate.process.StatusUpdate;
 import com.pinterest.slate.process.TaskDefinition;
+import com.pinterest.slate.process.TaskDispatcher;
+import com.pinterest.slate.process.TaskInvocation;
 import com.pinterest.slate.process.TaskRuntime;
+import com.pinterest.slate.resources.PlanException;
+import com.pinterest.slate.utils.HttpUtils;
 
 public class LocalTaskRuntime implements TaskRuntime {
 
+  private static final String CALLBACK_URL = "/api/v2/tasks/callbacks";
+  private String slateCoreUrl;
+  private TaskDispatcher taskDispatcher = new TaskDispatcher();
+
+  public LocalTaskRuntime() {
+  }
+
+  public LocalTaskRuntime(String slateCoreUrl) {
+    this.slateCoreUrl = slateCoreUrl;
+  }
+
+  public LocalTaskRuntime(String slateCoreUrl, TaskDispatcher taskDispatcher) {
+    this.slateCoreUrl = slateCoreUrl;
+    this.taskDispatcher = taskDispatcher;
+  }
+
   @Override
   public void configure(Configuration configuration) throws Exception {
     // TODO Auto-generated method stub
   }
 
+  @Override
+  public TaskDispatcher getTaskDispatcher() {
+    return taskDispatcher;
+  }
+
   @Override
   public StatusUpdate startExecution(String taskDefinitionId,
                                      String taskInstanceId,
@@ -49,4 +77,37 @@ public class LocalTaskRuntime implements TaskRuntime {
     }
   }
 
+  /**
+   * Send a status update of a task to Slate core so the graph running it
+   * advances right away. Only tasks whose definition accepts pushed updates are
+   * called with the callback token the update must carry. Tasks that push their
+   * updates should set retryAfterMs on the updates they return so core only
+   * polls them as a fallback for lost updates.
+   * 
+   * @param process        process the task was called with
+   * @param taskInstanceId
+   * @param update
+   * @throws IOException
+   */
+  public void sendStatusUpdate(LifecycleProcess process,
+                               String taskInstanceId,
+                               StatusUpdate update) throws IOException {
+    JsonObject taskContext = process.getProcessContext() != null
+        && process.getProcessContext().has(taskInstanceId)
+            ? process.getProcessContext().get(taskInstanceId).getAsJsonObject()
+            : null;
+    if (taskContext == null || !taskContext.has(TaskInvocation.CALLBACK_TOKEN_KEY)) {
+      throw new IOException("Task wasn't issued a callback token:" + taskInstanceId);
+    }
+    String token = taskContext.get(TaskInvocation.CALLBACK_TOKEN_KEY).getAsString();
+    try {
+      HttpUtils.makeHttpPost(
+          slateCoreUrl + CALLBACK_URL + "/" + process.getExecutionId() + "/"
+              + process.getProcessId() + "/" + taskInstanceId,
+          update, Void.class, ImmutableMap.of(TaskInvocation.CALLBACK_TOKEN_HEADER, token));
+    } catch (PlanException e) {
+      throw new IOException(e);
+    }
+  }
+
 }
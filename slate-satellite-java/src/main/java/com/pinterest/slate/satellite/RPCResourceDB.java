@@ -3,6 +3,7 @@ package com.pinterest.slate.satellite;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -71,7 +72,14 @@ public class RPCResourceDB extends AbstractResourceDB {
 
   @Override
   public Map<String, Resource> getResourceByIdAsMap(Collection<String> ids) throws IOException {
-    throw new UnsupportedOperationException();
+    Map<String, Resource> map = new HashMap<>(ids.size());
+    for (String id : ids) {
+      Resource resource = getResourceById(id);
+      if (resource != null) {
+        map.put(id, resource);
+      }
+    }
+    return map;
   }
 
   @Override
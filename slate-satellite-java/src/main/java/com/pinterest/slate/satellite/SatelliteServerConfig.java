@@ -15,7 +15,17 @@ public class SatelliteServerConfig extends Configuration {
   private String taskTmpDirectory = "/tmp";
   private String taskConfigurationDirectory;
   private List<String> taskDefinitionFQCN;
+  // status checks of a batch made concurrently
+  private int maxConcurrentStatusChecks = 16;
   
+  public int getMaxConcurrentStatusChecks() {
+    return maxConcurrentStatusChecks;
+  }
+
+  public void setMaxConcurrentStatusChecks(int maxConcurrentStatusChecks) {
+    this.maxConcurrentStatusChecks = maxConcurrentStatusChecks;
+  }
+
   public List<String> getTaskDefinitionFQCN() {
     return taskDefinitionFQCN;
   }
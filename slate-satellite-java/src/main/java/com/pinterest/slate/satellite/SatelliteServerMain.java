@@ -1,7 +1,9 @@
 package com.pinterest.slate.satellite;
 
 import com.pinterest.slate.GsonMessageBodyHandler;
+import com.pinterest.slate.GzipEncodingInterceptor;
 import com.pinterest.slate.human.TaskSystem;
+import com.pinterest.slate.process.TaskDispatcher;
 import com.pinterest.slate.satellite.api.ResourceApi;
 import com.pinterest.slate.satellite.api.TaskApi;
 
@@ -15,6 +17,7 @@ public class SatelliteServerMain extends Application<SatelliteServerConfig> {
   @Override
   public void run(SatelliteServerConfig config, Environment environment) throws Exception {
     environment.jersey().register(GsonMessageBodyHandler.class);
+    environment.jersey().register(GzipEncodingInterceptor.class);
     if (Boolean.parseBoolean(System.getProperty("loaddemo", "false"))) {
       System.out.println("Don't ignore RD");
       LocalResourceFactory.ACTIVATE_IGNORE_RD = false;
@@ -29,7 +32,8 @@ public class SatelliteServerMain extends Application<SatelliteServerConfig> {
         config.getTaskTmpDirectory(), hts, config.getTaskDefinitionFQCN());
     LocalTaskFactory.INSTANCE.init(ts);
     environment.jersey().register(new ResourceApi(resourceDB));
-    environment.jersey().register(new TaskApi(new LocalTaskRuntime()));
+    environment.jersey().register(new TaskApi(new LocalTaskRuntime(config.getSlateCoreUrl(),
+        new TaskDispatcher(config.getMaxConcurrentStatusChecks()))));
     environment.jersey().setUrlPattern("/api/*");
   }
   
@@ -1,6 +1,11 @@
 package com.pinterest.slate.satellite.api;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -16,7 +21,9 @@ import javax.ws.rs.core.MediaType;
 import com.pinterest.slate.process.LifecycleProcess;
 import com.pinterest.slate.process.StatusUpdate;
 import com.pinterest.slate.process.TaskDefinition;
+import com.pinterest.slate.process.TaskDispatcher;
 import com.pinterest.slate.process.TaskRuntime;
+import com.pinterest.slate.process.TaskInvocation;
 import com.pinterest.slate.satellite.LocalTaskFactory;
 
 @Path("/v1/tasks/")
@@ -41,6 +48,56 @@ public class TaskApi {
     return taskDefinitionSet;
   }
 
+  /**
+   * @return process context keys each task definition reads, null values for
+   *         definitions that read the whole context
+   */
+  @Path("/projections")
+  @GET
+  public Map<String, Set<String>> getProcessContextProjections() {
+    Map<String, Set<String>> projections = new HashMap<>();
+    for (TaskDefinition definition : LocalTaskFactory.INSTANCE.getTaskRegistry().values()) {
+      projections.put(definition.getTaskDefinitionId(),
+          definition.getProcessContextProjection());
+    }
+    return projections;
+  }
+
+  /**
+   * @return task definitions that push their status updates to Slate core
+   */
+  @Path("/pushed")
+  @GET
+  public Set<String> getPushedTaskDefinitions() {
+    Set<String> pushed = new HashSet<>();
+    for (TaskDefinition definition : LocalTaskFactory.INSTANCE.getTaskRegistry().values()) {
+      if (definition.acceptsPushedUpdates()) {
+        pushed.add(definition.getTaskDefinitionId());
+      }
+    }
+    return pushed;
+  }
+
+  @Path("/invocations/execution")
+  @POST
+  public StatusUpdate startExecution(TaskInvocation invocation) {
+    return runtime.startExecution(invocation.getTaskDefinitionId(), invocation.getTaskId(),
+        invocation.toProcess());
+  }
+
+  @Path("/invocations/status")
+  @POST
+  public StatusUpdate checkStatus(TaskInvocation invocation) {
+    return runtime.checkStatus(invocation.getTaskDefinitionId(), invocation.getTaskId(),
+        invocation.toProcess());
+  }
+
+  @Path("/invocations/validation")
+  @POST
+  public void validation(TaskInvocation invocation) {
+    validate(invocation.getTaskDefinitionId(), invocation.getTaskId(), invocation.toProcess());
+  }
+
   @Path("/{taskDefinitionId}/{taskInstanceId}/execution")
   @POST
   public StatusUpdate startExecution(@PathParam("taskDefinitionId") String taskDefinitionId,
@@ -57,11 +114,43 @@ public class TaskApi {
     return runtime.checkStatus(taskDefinitionId, taskInstanceId, process);
   }
 
+  /**
+   * Check the status of many tasks in one request.
+   * 
+   * @param checks
+   * @return status update of each check in the order of the checks
+   * @throws Exception
+   */
+  @Path("/status")
+  @POST
+  public List<StatusUpdate> checkStatus(List<TaskInvocation> checks) throws Exception {
+    Map<String, TaskDispatcher.TaskCall> calls = new LinkedHashMap<>();
+    for (int i = 0; i < checks.size(); i++) {
+      TaskInvocation check = checks.get(i);
+      calls.put(String.valueOf(i), executor -> runtime.checkStatusAsync(
+          check.getTaskDefinitionId(), check.getTaskId(), check.toProcess(), executor));
+    }
+    TaskDispatcher dispatcher = runtime.getTaskDispatcher();
+    Map<String, StatusUpdate> updates = dispatcher.invokeAll(calls,
+        dispatcher.getDefaultMaxConcurrentTasks());
+    List<StatusUpdate> result = new ArrayList<>(checks.size());
+    for (int i = 0; i < checks.size(); i++) {
+      result.add(updates.get(String.valueOf(i)));
+    }
+    return result;
+  }
+
   @Path("/{taskDefinitionId}/{taskInstanceId}/validation")
   @POST
   public void validation(@PathParam("taskDefinitionId") String taskDefinitionId,
                          @PathParam("taskInstanceId") String taskInstanceId,
                          LifecycleProcess process) {
+    validate(taskDefinitionId, taskInstanceId, process);
+  }
+
+  private void validate(String taskDefinitionId,
+                        String taskInstanceId,
+                        LifecycleProcess process) {
     try {
       LocalTaskFactory.INSTANCE.getTask(taskDefinitionId).validate(taskInstanceId, process,
           process.getProcessContext(),
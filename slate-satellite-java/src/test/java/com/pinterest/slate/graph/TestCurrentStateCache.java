@@ -0,0 +1,131 @@
+package com.pinterest.slate.graph;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.pinterest.slate.graph.TestUtils.ExecutionObjectBundle;
+import com.pinterest.slate.process.Status;
+import com.pinterest.slate.resources.Resource;
+
+public class TestCurrentStateCache {
+
+  private static final String DEFINITION_CLASS = "com.pinterest.slate.resources.DemoResourceDef";
+
+  @Test
+  public void testCacheHitSkipsRead() throws Exception {
+    CurrentStateCache cache = new CurrentStateCache(60, null);
+    Resource resource = resource("r1", 1L);
+    AtomicInteger reads = new AtomicInteger();
+    assertEquals("1", cache.get(resource, loader(reads)).get("read").getAsString());
+    assertEquals("1", cache.get(resource, loader(reads)).get("read").getAsString());
+    assertEquals("1",
+        cache.getAsync(resource, asyncLoader(reads)).get().get("read").getAsString());
+    assertEquals(1, reads.get());
+    assertEquals(2L, (long) cache.getStats().get("hits"));
+
+    // callers get a copy, changing it doesn't change the cached state
+    cache.get(resource, loader(reads)).add("read", new JsonPrimitive("x"));
+    assertEquals("1", cache.get(resource, loader(reads)).get("read").getAsString());
+
+    // definitions without a TTL aren't cached
+    CurrentStateCache disabled = new CurrentStateCache(0,
+        Collections.singletonMap("other", 60));
+    disabled.get(resource, loader(reads));
+    disabled.get(resource, loader(reads));
+    assertEquals(3, reads.get());
+  }
+
+  @Test
+  public void testStaleLastUpdateTimestampForcesReload() throws Exception {
+    CurrentStateCache cache = new CurrentStateCache(60, null);
+    AtomicInteger reads = new AtomicInteger();
+    cache.get(resource("r1", 1L), loader(reads));
+    assertEquals("2", cache.get(resource("r1", 2L), loader(reads)).get("read").getAsString());
+    assertEquals("2", cache.get(resource("r1", 2L), loader(reads)).get("read").getAsString());
+    assertEquals("3", cache.getAsync(resource("r1", 3L), asyncLoader(reads)).get().get("read")
+        .getAsString());
+    assertEquals("3", cache.get(resource("r1", 3L), loader(reads)).get("read").getAsString());
+    assertEquals(3, reads.get());
+  }
+
+  @Test
+  public void testEntriesExpireAfterTtl() throws Exception {
+    CurrentStateCache cache = new CurrentStateCache(60,
+        Collections.singletonMap(DEFINITION_CLASS, 1));
+    Resource resource = resource("r1", 1L);
+    AtomicInteger reads = new AtomicInteger();
+    cache.get(resource, loader(reads));
+    cache.get(resource, loader(reads));
+    assertEquals(1, reads.get());
+    Thread.sleep(1_100);
+    assertEquals("2", cache.get(resource, loader(reads)).get("read").getAsString());
+  }
+
+  @Test
+  public void testEntryIsInvalidatedWhenProcessEnds() throws Exception {
+    String graph = """
+        {"tmp_401":
+        {"id":"tmp_401",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_402"
+        },
+        "tmp_402":
+        {"id":"tmp_402",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+        "desiredState":{},
+        "childResources": ["tmp_401"]
+        }}
+        """;
+    CurrentStateCache cache = new CurrentStateCache(60, null);
+    AtomicInteger reads = new AtomicInteger();
+    Resource resource = resource("tmp_401", 0L);
+    ExecutionObjectBundle bundle = TestUtils.primeAndRunGraph(graph,
+        "target/testcurrentstatecache", "", 10, ge -> {
+          ge.getRuntime().setCurrentStateCache(cache);
+          return null;
+        });
+    cache.get(resource, loader(reads));
+    cache.get(resource, loader(reads));
+    assertEquals(1, reads.get());
+    TestUtils.executeUntilComplete(bundle);
+    assertEquals(Status.SUCCEEDED,
+        bundle.getGe().getRuntime().get(bundle.getEg().getExecutionId()).getStatus());
+    cache.get(resource, loader(reads));
+    assertEquals(2, reads.get());
+  }
+
+  private static Callable<JsonObject> loader(AtomicInteger reads) {
+    return () -> state(reads.incrementAndGet());
+  }
+
+  private static Supplier<CompletableFuture<JsonObject>> asyncLoader(AtomicInteger reads) {
+    return () -> CompletableFuture.completedFuture(state(reads.incrementAndGet()));
+  }
+
+  private static JsonObject state(int read) {
+    JsonObject state = new JsonObject();
+    state.addProperty("read", String.valueOf(read));
+    return state;
+  }
+
+  private static Resource resource(String id, long lastUpdateTimestamp) {
+    Resource resource = new Resource();
+    resource.setId(id);
+    resource.setResourceDefinitionClass(DEFINITION_CLASS);
+    resource.setLastUpdateTimestamp(lastUpdateTimestamp);
+    return resource;
+  }
+
+}
@@ -1,10 +1,23 @@
 package com.pinterest.slate.graph;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 
 import com.pinterest.slate.graph.TestUtils.ExecutionObjectBundle;
+import com.pinterest.slate.process.Status;
+import com.pinterest.slate.resources.Resource;
+import com.pinterest.slate.satellite.LocalResourceFactory;
 
 public class TestDemoGraphExecution {
 
@@ -56,4 +69,158 @@ public class TestDemoGraphExecution {
     TestUtils.printResourceDBState(bundle);
   }
 
+  @Test
+  public void testDemoParentChildExecutionWithWorkers() throws IOException, Exception {
+    String graph = """
+        {"tmp_201":
+        {"id":"tmp_201",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_202"
+        },
+        "tmp_202":
+        {"id":"tmp_202",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+        "desiredState":{},
+        "childResources": ["tmp_201"]
+        }}
+        """;
+    ExecutionObjectBundle bundle = TestUtils.primeAndRunGraph(graph, "target/testworkergraph", "",
+        10, null);
+    GraphExecutionRuntime runtime = bundle.getGe().getRuntime();
+    // intermediate states are kept in memory, only the terminal state is written
+    runtime.setFlushIntervalMs(60_000);
+    GraphExecutor executor = new GraphExecutor(runtime, 4, 100);
+    Thread th = new Thread(executor);
+    th.setDaemon(true);
+    th.start();
+    String executionId = bundle.getEg().getExecutionId();
+    try {
+      long deadline = System.currentTimeMillis() + 30_000;
+      while (!Status.isComplete(runtime.get(executionId).getStatus())
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100);
+      }
+      assertEquals(Status.SUCCEEDED, runtime.get(executionId).getStatus());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testRequestedPriorityOnlyLowersDerivedPriority() throws IOException, Exception {
+    String graph = """
+        {"tmp_%1$s1":
+        {"id":"tmp_%1$s1",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_%1$s2"
+        },
+        "tmp_%1$s2":
+        {"id":"tmp_%1$s2",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+        "desiredState":{},
+        "childResources": ["tmp_%1$s1"]
+        }}
+        """;
+    ExecutionObjectBundle bundle = TestUtils.primeAndRunGraph(String.format(graph, "22"),
+        "target/testprioritygraph", "", 10, null);
+    GraphEngine engine = new GraphEngine(LocalResourceFactory.INSTANCE,
+        bundle.getGe().getRuntime().getResourceDB(), bundle.getGe());
+    engine.setBatchPriorityMinVertices(2);
+    assertEquals(ExecutionPriority.BATCH, engine.executeGraphUpate("testuser",
+        deltaGraph(graph, "23"), null, ExecutionPriority.INTERACTIVE).getPriority());
+    assertEquals(ExecutionPriority.BACKFILL, engine.executeGraphUpate("testuser",
+        deltaGraph(graph, "24"), null, ExecutionPriority.BACKFILL).getPriority());
+    assertEquals(ExecutionPriority.INTERACTIVE, engine.executeGraphUpate("testuser",
+        deltaGraph(graph, "25"), null, ExecutionPriority.INTERACTIVE, true).getPriority());
+  }
+
+  private static Map<String, Resource> deltaGraph(String graph, String prefix) {
+    return TestUtils.GSON.fromJson(String.format(graph, prefix), TestUtils.DELTAGRAPHTYPE);
+  }
+
+  @Test
+  public void testDrainAndResumeFromManifest() throws IOException, Exception {
+    String graph = """
+        {"tmp_211":
+        {"id":"tmp_211",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_212"
+        },
+        "tmp_212":
+        {"id":"tmp_212",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+        "desiredState":{},
+        "childResources": ["tmp_211"]
+        }}
+        """;
+    ExecutionObjectBundle bundle = TestUtils.primeAndRunGraph(graph, "target/testdraingraph", "",
+        10, null);
+    GraphExecutionRuntime runtime = bundle.getGe().getRuntime();
+    runtime.setFlushIntervalMs(60_000);
+    String executionId = bundle.getEg().getExecutionId();
+    File manifest = new File("target/testdraingraph/resume-manifest.json");
+    manifest.delete();
+
+    GraphExecutor executor = new GraphExecutor(runtime, 4, 100);
+    Thread th = new Thread(executor);
+    th.setDaemon(true);
+    th.start();
+    executor.drain(10_000, manifest);
+    th.join(10_000);
+    assertTrue(manifest.exists());
+    assertFalse(Status.isComplete(runtime.get(executionId).getStatus()));
+    // a parked graph is recorded in the manifest, a queued one is left in the
+    // queue so it isn't acknowledged
+    ResumeManifest written = ResumeManifest.consume(manifest);
+    Set<String> queued = new HashSet<>();
+    String queuedId;
+    while ((queuedId = runtime.getExecutionQueue().poll()) != null) {
+      queued.add(queuedId);
+    }
+    assertTrue(written.getGraphs().keySet().equals(Collections.singleton(executionId))
+        || queued.contains(executionId));
+    assertTrue(written.getGraphs().size() <= 1);
+
+    // graphs that aren't due yet are parked again
+    new ResumeManifest(Collections.singletonMap(executionId, System.currentTimeMillis() + 60_000))
+        .write(manifest);
+    executor = new GraphExecutor(runtime, 4, 100, manifest);
+    assertFalse(manifest.exists());
+    assertEquals(Collections.singleton(executionId), executor.getParkedGraphs().keySet());
+    assertTrue(runtime.getExecutionQueue().isEmpty());
+    executor.shutdown();
+
+    // due graphs are re-queued once, even though they are incomplete as well
+    new ResumeManifest(Collections.singletonMap(executionId, 0L)).write(manifest);
+    executor = new GraphExecutor(runtime, 4, 100, manifest);
+    assertFalse(manifest.exists());
+    assertTrue(executor.getParkedGraphs().isEmpty());
+    assertEquals(executionId, runtime.getExecutionQueue().poll());
+    assertNull(runtime.getExecutionQueue().poll());
+    runtime.getExecutionQueue().add(executionId);
+    th = new Thread(executor);
+    th.setDaemon(true);
+    th.start();
+    try {
+      long deadline = System.currentTimeMillis() + 30_000;
+      while (!Status.isComplete(runtime.get(executionId).getStatus())
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100);
+      }
+      assertEquals(Status.SUCCEEDED, runtime.get(executionId).getStatus());
+      assertTrue(executor.getStartupToFirstTickMs() > 0);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
 }
@@ -0,0 +1,125 @@
+package com.pinterest.slate.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.Status;
+import com.pinterest.slate.resources.Resource;
+
+public class TestExecutionGraph {
+
+  @Test
+  public void testEdgeMutationIndex() {
+    ExecutionGraph graph = new ExecutionGraph();
+    TreeMap<String, EdgeMutation> mutations = new TreeMap<>();
+    for (EdgeMutation mutation : Arrays.asList(new EdgeMutation("a", "b", true),
+        new EdgeMutation("b", "c", false), new EdgeMutation("c", "c", true, true))) {
+      mutations.put(mutation.getId(), mutation);
+    }
+    graph.setAllEdgeMutations(mutations);
+    assertIndex(graph);
+
+    // the index isn't serialized and is rebuilt on first use
+    ExecutionGraph copy = TestUtils.GSON.fromJson(TestUtils.GSON.toJson(graph),
+        ExecutionGraph.class);
+    assertIndex(copy);
+
+    graph.setAllEdgeMutations(null);
+    assertTrue(graph.getEdgeMutationIndex().isEmpty());
+  }
+
+  private static void assertIndex(ExecutionGraph graph) {
+    Map<String, List<EdgeMutation>> index = graph.getEdgeMutationIndex();
+    assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), index.keySet());
+    assertEquals(Collections.singleton("a___b"), ids(index.get("a")));
+    assertEquals(new HashSet<>(Arrays.asList("a___b", "b___c")), ids(index.get("b")));
+    // a mutation whose source is its destination is indexed once
+    assertEquals(2, index.get("c").size());
+    assertEquals(new HashSet<>(Arrays.asList("b___c", "c___c")), ids(index.get("c")));
+    assertNull(index.get("d"));
+  }
+
+  private static Set<String> ids(List<EdgeMutation> mutations) {
+    return mutations.stream().map(EdgeMutation::getId).collect(Collectors.toSet());
+  }
+
+  @Test
+  public void testDiamondReleasesJoinAfterBothParents() {
+    // a -> b, a -> c, b -> d, c -> d
+    ExecutionGraph graph = new ExecutionGraph();
+    Map<String, PlanVertex> plan = new HashMap<>();
+    plan.put("a", vertex("a"));
+    plan.put("b", vertex("b", "a"));
+    plan.put("c", vertex("c", "a"));
+    plan.put("d", vertex("d", "b", "c"));
+    graph.setExecutionPlan(plan);
+
+    graph.enqueuePlanVerticesWithSatissfiedDependencies();
+    assertEquals(set("a"), graph.getCurrentPlanSet());
+    complete(graph, "a");
+    assertEquals(set("b", "c"), graph.getCurrentPlanSet());
+    complete(graph, "b");
+    assertEquals(set("c"), graph.getCurrentPlanSet());
+    // a vertex is released only once
+    graph.releaseDependents(set("b"));
+    assertEquals(set("c"), graph.getCurrentPlanSet());
+    complete(graph, "c");
+    assertEquals(set("d"), graph.getCurrentPlanSet());
+  }
+
+  @Test
+  public void testCountersAreRebuiltAfterDeserialization() {
+    ExecutionGraph graph = new ExecutionGraph();
+    Map<String, PlanVertex> plan = new HashMap<>();
+    plan.put("a", vertex("a"));
+    plan.put("b", vertex("b", "a"));
+    plan.put("c", vertex("c", "a"));
+    plan.put("d", vertex("d", "b", "c"));
+    graph.setExecutionPlan(plan);
+    graph.enqueuePlanVerticesWithSatissfiedDependencies();
+    complete(graph, "a");
+    complete(graph, "b");
+
+    ExecutionGraph copy = TestUtils.GSON.fromJson(TestUtils.GSON.toJson(graph),
+        ExecutionGraph.class);
+    assertEquals(set("c"), copy.getCurrentPlanSet());
+    complete(copy, "c");
+    assertEquals(set("d"), copy.getCurrentPlanSet());
+  }
+
+  private static void complete(ExecutionGraph graph, String id) {
+    graph.getExecutionPlan().get(id).getProcess().setEndStatus(Status.SUCCEEDED);
+    graph.getCurrentPlanSet().remove(id);
+    graph.releaseDependents(set(id));
+  }
+
+  private static PlanVertex vertex(String id, String... upstream) {
+    Resource resource = new Resource();
+    resource.setId(id);
+    PlanVertex vertex = new PlanVertex();
+    vertex.setProposedResource(resource);
+    vertex.setProcess(new LifecycleProcess());
+    vertex.setUpstreamVertices(Arrays.asList(upstream));
+    return vertex;
+  }
+
+  private static Set<String> set(String... ids) {
+    return new TreeSet<>(Arrays.asList(ids));
+  }
+
+}
@@ -0,0 +1,200 @@
+package com.pinterest.slate.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.pinterest.slate.graph.storage.LocalExecutionQueue;
+import com.pinterest.slate.graph.storage.LocalStateStore;
+import com.pinterest.slate.process.Status;
+
+import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+
+public class TestExecutionLeases {
+
+  private static SessionFactory sessionFactory;
+  private static ExecutionGraphDAO dao;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.addAnnotatedClass(ExecutionGraph.class);
+    configuration.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+    configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+    configuration.setProperty("hibernate.connection.url",
+        "jdbc:h2:mem:leases;DB_CLOSE_DELAY=-1");
+    configuration.setProperty("hibernate.hbm2ddl.auto", "create");
+    configuration.setProperty("hibernate.current_session_context_class", "managed");
+    sessionFactory = configuration.buildSessionFactory();
+    // lease columns aren't mapped by the entity, see deploy/tables.sql
+    inSession(() -> sessionFactory.getCurrentSession().createNativeQuery(
+        "alter table executiongraph add column lease_owner varchar(255); "
+            + "alter table executiongraph add column lease_expiry bigint; "
+            + "alter table executiongraph add column fencing_token bigint default 0")
+        .executeUpdate());
+
+    BaseConfiguration config = new BaseConfiguration();
+    config.setProperty("basegraphstoragepath", "target/testleases/graphs");
+    config.setProperty("baseresourceupdatestoragepath", "target/testleases/resources");
+    LocalStateStore store = new LocalStateStore();
+    store.init(config);
+    dao = new ExecutionGraphDAO(sessionFactory, store);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    sessionFactory.close();
+  }
+
+  @Test
+  public void testExpiredLeaseIsTakenOverAndFenced() throws Exception {
+    ExecutionGraph graph = new ExecutionGraph();
+    graph.setExecutionId("lease_1");
+    graph.setRequester("testuser");
+    graph.setStartTime(new Date());
+    graph.setExecutionPlan(new HashMap<>());
+    graph.setStatus(Status.RUNNING);
+    inSession(() -> {
+      dao.save(graph);
+      return null;
+    });
+
+    long tokenA = inSession(() -> dao.acquireLease("lease_1", "nodeA", 200));
+    assertTrue(tokenA > 0);
+    assertEquals(-1L, (long) inSession(() -> dao.acquireLease("lease_1", "nodeB", 200)));
+    assertTrue(inSession(() -> dao.renewLease("lease_1", "nodeA", tokenA, 200)));
+    assertTrue(inSession(() -> dao.listExpiredLeases()).isEmpty());
+
+    Thread.sleep(300);
+    assertEquals(1, inSession(() -> dao.listExpiredLeases()).size());
+    long tokenB = inSession(() -> dao.acquireLease("lease_1", "nodeB", 60_000));
+    assertTrue(tokenB > tokenA);
+    assertFalse(inSession(() -> dao.renewLease("lease_1", "nodeA", tokenA, 200)));
+
+    // the previous owner can no longer write the graph
+    graph.setFencingToken(tokenA);
+    graph.setStatus(Status.FAILED);
+    try {
+      inSession(() -> {
+        dao.save(graph);
+        return null;
+      });
+      fail("Update with a stale fencing token must be rejected");
+    } catch (LeaseLostException e) {
+    }
+    graph.setFencingToken(tokenB);
+    graph.setStatus(Status.SUCCEEDED);
+    inSession(() -> {
+      dao.save(graph);
+      return null;
+    });
+    inSession(() -> {
+      dao.releaseLease("lease_1", "nodeB", tokenB);
+      return null;
+    });
+    assertEquals(Status.SUCCEEDED, inSession(() -> dao.get("lease_1")).getStatus());
+    assertTrue(inSession(() -> dao.acquireLease("lease_1", "nodeA", 200)) > tokenB);
+  }
+
+  @Test
+  public void testRecordOfLeasedGraphIsParked() throws Exception {
+    ExecutionGraph graph = new ExecutionGraph();
+    graph.setExecutionId("lease_2");
+    graph.setRequester("testuser");
+    graph.setStartTime(new Date());
+    graph.setExecutionPlan(new HashMap<>());
+    graph.setStatus(Status.RUNNING);
+    inSession(() -> {
+      dao.save(graph);
+      return null;
+    });
+    GraphExecutionRuntime nodeA = runtime("nodeA");
+    assertTrue(nodeA.acquireLease("lease_2"));
+
+    // the graph is queued on the second node at startup
+    GraphExecutor executor = new GraphExecutor(runtime("nodeB"), 1, 100);
+    try {
+      executor.execute();
+      // the record is kept until the lease could have expired instead of being
+      // dropped, the graph isn't advanced
+      assertTrue(executor.getParkedGraphs().containsKey("lease_2"));
+      assertEquals(Status.RUNNING, inSession(() -> dao.get("lease_2")).getStatus());
+    } finally {
+      executor.shutdown();
+      nodeA.releaseLease("lease_2");
+    }
+  }
+
+  @Test
+  public void testUnleasedWriteOfLeasedGraphIsRejected() throws Exception {
+    ExecutionGraph graph = new ExecutionGraph();
+    graph.setExecutionId("lease_3");
+    graph.setRequester("testuser");
+    graph.setStartTime(new Date());
+    graph.setExecutionPlan(new HashMap<>());
+    graph.setStatus(Status.RUNNING);
+    inSession(() -> {
+      dao.save(graph);
+      return null;
+    });
+    GraphExecutionRuntime nodeA = runtime("nodeA");
+    assertTrue(nodeA.acquireLease("lease_3"));
+    graph.setStatus(Status.CANCELLED);
+    try {
+      inSession(() -> {
+        dao.save(graph);
+        return null;
+      });
+      fail("Write without a lease must be rejected while the graph is leased");
+    } catch (LeaseLostException e) {
+    }
+    assertEquals(Status.RUNNING, inSession(() -> dao.get("lease_3")).getStatus());
+    nodeA.releaseLease("lease_3");
+    inSession(() -> {
+      dao.save(graph);
+      return null;
+    });
+    assertEquals(Status.CANCELLED, inSession(() -> dao.get("lease_3")).getStatus());
+  }
+
+  private static GraphExecutionRuntime runtime(String owner) {
+    GraphExecutionRuntime runtime = new UnitOfWorkAwareProxyFactory("leases", sessionFactory)
+        .create(GraphExecutionRuntime.class, AbstractExecutionDAO.class, dao);
+    runtime.setLeaseOwner(owner);
+    runtime.setLeaseDurationMs(60_000);
+    runtime.setExecutionQueue(new LocalExecutionQueue());
+    return runtime;
+  }
+
+  private static <T> T inSession(Callable<T> callable) throws Exception {
+    Session session = sessionFactory.openSession();
+    ManagedSessionContext.bind(session);
+    try {
+      session.beginTransaction();
+      T result = callable.call();
+      session.getTransaction().commit();
+      return result;
+    } catch (Exception e) {
+      session.getTransaction().rollback();
+      throw e;
+    } finally {
+      ManagedSessionContext.unbind(sessionFactory);
+      session.close();
+    }
+  }
+
+}
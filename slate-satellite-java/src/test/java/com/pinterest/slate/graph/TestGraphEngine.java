@@ -1,15 +1,36 @@
 package com.pinterest.slate.graph;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.Task;
+import com.pinterest.slate.resources.DemoParentResourceDef;
+import com.pinterest.slate.resources.DemoResourceDef;
+import com.pinterest.slate.resources.EdgeDefinition;
+import com.pinterest.slate.resources.Plan;
 import com.pinterest.slate.resources.PlanException;
 import com.pinterest.slate.resources.Resource;
+import com.pinterest.slate.resources.ResourceChange;
+import com.pinterest.slate.resources.ResourceFactory;
 import com.pinterest.slate.satellite.LocalResourceFactory;
 import com.pinterest.slate.validation.ResourceValidationFactory;
 
@@ -99,6 +120,164 @@ public class TestGraphEngine {
     
   }
 
+  @Test
+  public void testPlannedValuePropagatesAlongChain() throws Exception {
+    AbstractResourceDB testDB = new TestResourceDB();
+    // every vertex copies the value of its upstream vertex into its own desired
+    // state, the chain runs against the id order so each pass moves the value
+    // one vertex further
+    ResourceFactory factory = new ResourceFactory() {
+      {
+        resourceMap.put(DemoResourceDef.class.getCanonicalName(), new DemoResourceDef() {
+
+          @Override
+          public Plan planChange(ResourceChange change) throws PlanException {
+            Resource pR = change.getProposedResourceObject();
+            Set<String> upstream = pR.getInputResources().get("i1");
+            if (upstream != null) {
+              JsonObject upstreamState = change.getDeltaGraph().get(upstream.iterator().next())
+                  .getDesiredState();
+              if (upstreamState.has("value")) {
+                pR.getDesiredState().add("value", upstreamState.get("value"));
+              }
+            }
+            LifecycleProcess process = new LifecycleProcess();
+            process.setProcessContext(new JsonObject());
+            process.setStartTaskId(Task.SUCCEED_PROCESS_TASK);
+            return Plan.of(pR, process, null);
+          }
+
+          @Override
+          public EdgeDefinition getRequiredParentEdgeTypes() {
+            return null;
+          }
+        });
+      }
+    };
+    GraphEngine g = new GraphEngine(factory, testDB);
+    PlanSummary summary = new PlanSummary();
+    Map<String, PlanVertex> plan = g.planGraphUpdate("testuser", GSON.fromJson("""
+        {"tmp_1":
+        {"id":"tmp_1",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "inputResources":{"i1":["tmp_2"]}
+        },
+        "tmp_2":
+        {"id":"tmp_2",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "inputResources":{"i1":["tmp_3"]},
+        "outputResources":{"o1":["tmp_1"]}
+        },
+        "tmp_3":
+        {"id":"tmp_3",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "inputResources":{"i1":["tmp_4"]},
+        "outputResources":{"o1":["tmp_2"]}
+        },
+        "tmp_4":
+        {"id":"tmp_4",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{"value":"v1"},
+        "outputResources":{"o1":["tmp_3"]}
+        }}
+        """, deltaGraphType), summary);
+    assertEquals(4, plan.size());
+    for (String id : plan.keySet()) {
+      assertEquals(id, "v1",
+          plan.get(id).getProposedResource().getDesiredState().get("value").getAsString());
+    }
+    assertTrue(summary.getIterations() > 2);
+    assertTrue(summary.getIterations() < GraphEngine.MAX_ITERATIONS);
+  }
+
+  @Test
+  public void testNeighborsAreResolvedOneFrontierAtATime() throws Exception {
+    List<Set<String>> lookups = new ArrayList<>();
+    TestResourceDB testDB = new TestResourceDB() {
+
+      @Override
+      public Map<String, Resource> getResourceByIdAsMap(Collection<String> ids) throws IOException {
+        lookups.add(new HashSet<>(ids));
+        return super.getResourceByIdAsMap(ids);
+      }
+
+      @Override
+      public Resource getResourceById(String id) throws IOException {
+        throw new IOException("Resources must be resolved in batches:" + id);
+      }
+    };
+    testDB.updateResources(GSON.<Map<String, Resource>>fromJson("""
+        {"tmp_31":
+        {"id":"tmp_31",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+        "desiredState":{},
+        "childResources":["tmp_32","tmp_33"]
+        },
+        "tmp_32":
+        {"id":"tmp_32",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_31"
+        },
+        "tmp_33":
+        {"id":"tmp_33",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_31"
+        }}
+        """, deltaGraphType).values());
+    ResourceFactory factory = new ResourceFactory() {
+      {
+        resourceMap.put(DemoResourceDef.class.getCanonicalName(), new DemoResourceDef());
+        resourceMap.put(DemoParentResourceDef.class.getCanonicalName(),
+            new DemoParentResourceDef());
+      }
+    };
+    GraphEngine g = new GraphEngine(factory, testDB);
+    // adding a child pulls in the existing children of the parent, the
+    // children known to the resource db were already part of the first
+    // frontier so no further lookups are needed
+    Map<String, PlanVertex> plan = g.planGraphUpdate("testuser", GSON.fromJson("""
+        {"tmp_31":
+        {"id":"tmp_31",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+        "desiredState":{},
+        "childResources":["tmp_32","tmp_33","tmp_34"]
+        },
+        "tmp_34":
+        {"id":"tmp_34",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_31"
+        }}
+        """, deltaGraphType));
+    assertEquals(4, plan.size());
+    assertEquals(Collections.singletonList(
+        new HashSet<>(Arrays.asList("tmp_31", "tmp_32", "tmp_33", "tmp_34"))), lookups);
+
+    // missing ids are remembered and only unresolved ids are fetched
+    lookups.clear();
+    ResourceSnapshot snapshot = new ResourceSnapshot(testDB);
+    snapshot.resolve(Arrays.asList("tmp_31", "tmp_99"));
+    assertNull(snapshot.get("tmp_99"));
+    snapshot.resolve(Arrays.asList("tmp_31", "tmp_32", "tmp_99"));
+    assertEquals("tmp_32", snapshot.get("tmp_32").getId());
+    assertEquals(Arrays.asList(new HashSet<>(Arrays.asList("tmp_31", "tmp_99")),
+        Collections.singleton("tmp_32")), lookups);
+  }
+
   public Map<String, PlanVertex> testGraph(String graphJson,
                                            String expectedErrorString,
                                            GraphEngine g) throws Exception {
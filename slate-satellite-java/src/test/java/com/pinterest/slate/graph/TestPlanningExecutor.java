@@ -0,0 +1,158 @@
+package com.pinterest.slate.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.pinterest.slate.resources.RPCBasedResourceDefinition;
+import com.pinterest.slate.resources.ResourceFactory;
+import com.pinterest.slate.satellite.LocalResourceFactory;
+import com.pinterest.slate.validation.GraphValidationException;
+import com.pinterest.slate.validation.ResourceValidationFactory;
+
+public class TestPlanningExecutor {
+
+  private static final String GRAPH = """
+      {"tmp_101":
+      {"id":"tmp_101",
+      "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+      "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+      "desiredState":{},
+      "parentResource":"tmp_102"
+      },
+      "tmp_102":
+      {"id":"tmp_102",
+      "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+      "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+      "desiredState":{},
+      "childResources": ["tmp_101","tmp_103"]
+      },
+      "tmp_103":
+      {"id":"tmp_103",
+      "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+      "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+      "desiredState":{},
+      "parentResource":"tmp_102"
+      }}
+      """;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    ResourceValidationFactory.getInstance().init("src/test/resources/dev-validation.properties");
+  }
+
+  @Test
+  public void testParallelPlanMatchesSequentialPlan() throws Exception {
+    TestResourceDB db = new TestResourceDB();
+    LocalResourceFactory.INSTANCE.ACTIVATE_IGNORE_RD = false;
+    LocalResourceFactory.INSTANCE.init("src/test/resources/resourceconfigs", db);
+    ResourceFactory.INSTANCE.updateReference(LocalResourceFactory.INSTANCE);
+
+    GraphEngine sequential = new GraphEngine(LocalResourceFactory.INSTANCE, db);
+    PlanSummary summary = new PlanSummary();
+    Map<String, PlanVertex> expected = sequential.planGraphUpdate("testuser",
+        TestUtils.GSON.fromJson(GRAPH, TestUtils.DELTAGRAPHTYPE), summary);
+    assertTrue(summary.getIterations() < GraphEngine.MAX_ITERATIONS);
+
+    GraphEngine parallel = new GraphEngine(LocalResourceFactory.INSTANCE, db);
+    PlanningExecutor executor = new PlanningExecutor(4, 2);
+    parallel.setPlanningExecutor(executor);
+    try {
+      Map<String, PlanVertex> actual = parallel.planGraphUpdate("testuser",
+          TestUtils.GSON.fromJson(GRAPH, TestUtils.DELTAGRAPHTYPE));
+      assertEquals(expected.keySet(), actual.keySet());
+      for (String id : expected.keySet()) {
+        assertEquals(expected.get(id).getProposedResource(),
+            actual.get(id).getProposedResource());
+        assertEquals(expected.get(id).getUpstreamVertices(), actual.get(id).getUpstreamVertices());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSatelliteCallsWaitForPermitsWithoutThreads() throws Exception {
+    RPCBasedResourceDefinition def = new RPCBasedResourceDefinition("http://satellite/r");
+    def.setSatelliteUrl("http://satellite");
+    // a single planning thread keeps every call outstanding, 2 at a time
+    PlanningExecutor executor = new PlanningExecutor(1, 2);
+    try {
+      List<CompletableFuture<Integer>> calls = new ArrayList<>();
+      List<CompletableFuture<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        results.add(executor.callAsyncWithPermit(def, () -> {
+          CompletableFuture<Integer> call = new CompletableFuture<>();
+          synchronized (calls) {
+            calls.add(call);
+          }
+          return call;
+        }));
+      }
+      assertEquals(2, calls.size());
+      calls.get(0).complete(0);
+      assertEquals(0, (int) results.get(0).get());
+      waitForCalls(calls, 3);
+      calls.get(1).completeExceptionally(new IllegalStateException());
+      waitForCalls(calls, 4);
+      assertTrue(results.get(1).isCompletedExceptionally());
+      for (int i = 2; i < 4; i++) {
+        calls.get(i).complete(i);
+      }
+      waitForCalls(calls, 5);
+      calls.get(4).complete(4);
+      for (int i = 2; i < 5; i++) {
+        assertEquals(i, (int) results.get(i).get(10, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void waitForCalls(List<CompletableFuture<Integer>> calls,
+                                   int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (System.currentTimeMillis() < deadline) {
+      synchronized (calls) {
+        if (calls.size() >= count) {
+          assertEquals(count, calls.size());
+          return;
+        }
+      }
+      Thread.sleep(10);
+    }
+    fail("Waiting call wasn't started after a permit was released");
+  }
+
+  @Test
+  public void testValidationReportsAllErrors() throws Exception {
+    TestResourceDB db = new TestResourceDB();
+    LocalResourceFactory.INSTANCE.ACTIVATE_IGNORE_RD = false;
+    LocalResourceFactory.INSTANCE.init("src/test/resources/resourceconfigs", db);
+    ResourceFactory.INSTANCE.updateReference(LocalResourceFactory.INSTANCE);
+
+    GraphEngine engine = new GraphEngine(LocalResourceFactory.INSTANCE, db);
+    PlanningExecutor executor = new PlanningExecutor(4, 2);
+    engine.setPlanningExecutor(executor);
+    String graph = GRAPH.replaceFirst("\"owner\":\"logging\",", "")
+        .replaceFirst("\"region\":\"us-east-1\",\"owner\"", "\"region\":\"mars\",\"owner\"");
+    try {
+      engine.planGraphUpdate("testuser", TestUtils.GSON.fromJson(graph, TestUtils.DELTAGRAPHTYPE));
+      fail("Invalid graph must not be planned");
+    } catch (GraphValidationException e) {
+      assertEquals(2, e.getErrors().size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,88 @@
+package com.pinterest.slate.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map.Entry;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.junit.Test;
+
+import com.pinterest.slate.graph.TestUtils.ExecutionObjectBundle;
+import com.pinterest.slate.graph.storage.LocalStateStore;
+import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.Status;
+import com.pinterest.slate.process.Task;
+
+public class TestStateStoreJournal {
+
+  @Test
+  public void testReplayMatchesExecutedGraph() throws Exception {
+    String graph = """
+        {"tmp_301":
+        {"id":"tmp_301",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoResourceDef",
+        "desiredState":{},
+        "parentResource":"tmp_302"
+        },
+        "tmp_302":
+        {"id":"tmp_302",
+        "project":"logging","region":"us-east-1","owner":"logging","environment":"prod",
+        "resourceDefinitionClass":"com.pinterest.slate.resources.DemoParentResourceDef",
+        "desiredState":{},
+        "childResources": ["tmp_301"]
+        }}
+        """;
+    ExecutionObjectBundle bundle = TestUtils.primeAndRunGraph(graph, "target/testjournalgraph", "",
+        10, null);
+    BaseConfiguration config = new BaseConfiguration();
+    config.setProperty("basegraphstoragepath", "target/testjournal/graphs");
+    config.setProperty("baseresourceupdatestoragepath", "target/testjournal/resources");
+    config.setProperty("snapshotinterval", 3);
+    LocalStateStore store = new LocalStateStore();
+    store.init(config);
+
+    GraphExecutionRuntime runtime = bundle.getGe().getRuntime();
+    String executionId = bundle.getEg().getExecutionId();
+    File journal = new File(store.getExecutionGraphStoragePath(executionId) + ".journal");
+    store.saveExecutionGraph(runtime.get(executionId));
+    boolean journaled = false;
+    while (!runtime.getExecutionQueue().isEmpty()) {
+      bundle.getGe().execute();
+      ExecutionGraph expected = runtime.get(executionId);
+      store.saveExecutionGraph(expected);
+      journaled |= journal.exists();
+      assertSameState(expected, store.getExecutionGraph(executionId));
+    }
+    assertTrue(journaled);
+    // terminal status compacts the journal into the snapshot
+    assertFalse(journal.exists());
+    assertEquals(Status.SUCCEEDED, store.getExecutionGraph(executionId).getStatus());
+  }
+
+  private static void assertSameState(ExecutionGraph expected, ExecutionGraph actual) {
+    assertEquals(expected.getStatus(), actual.getStatus());
+    assertEquals(expected.getCurrentPlanSet(), actual.getCurrentPlanSet());
+    for (Entry<String, PlanVertex> entry : expected.getExecutionPlan().entrySet()) {
+      PlanVertex vertex = actual.getExecutionPlan().get(entry.getKey());
+      assertEquals(entry.getValue().getProposedResource(), vertex.getProposedResource());
+      LifecycleProcess process = entry.getValue().getProcess();
+      if (process == null) {
+        continue;
+      }
+      assertEquals(process.getEndStatus(), vertex.getProcess().getEndStatus());
+      assertEquals(process.getCurrenTaskSet(), vertex.getProcess().getCurrenTaskSet());
+      assertEquals(process.getProcessContext(), vertex.getProcess().getProcessContext());
+      for (Task task : process.getAllTasks().values()) {
+        Task actualTask = vertex.getProcess().getAllTasks().get(task.getInstanceId());
+        assertEquals(task.getStatus(), actualTask.getStatus());
+        assertEquals(task.getStdOut().size(), actualTask.getStdOut().size());
+        assertEquals(task.getStdErr().size(), actualTask.getStdErr().size());
+      }
+    }
+  }
+
+}
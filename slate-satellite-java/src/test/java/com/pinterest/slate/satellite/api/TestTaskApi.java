@@ -0,0 +1,83 @@
+package com.pinterest.slate.satellite.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.gson.JsonObject;
+import com.pinterest.slate.process.LifecycleProcess;
+import com.pinterest.slate.process.Status;
+import com.pinterest.slate.process.StatusUpdate;
+import com.pinterest.slate.process.TaskDefinition;
+import com.pinterest.slate.process.TaskDispatcher;
+import com.pinterest.slate.process.TaskInvocation;
+import com.pinterest.slate.process.TaskRuntime;
+import com.pinterest.slate.satellite.LocalTaskFactory;
+import com.pinterest.slate.satellite.LocalTaskRuntime;
+
+public class TestTaskApi {
+
+  @Test
+  public void testBatchStatusChecksRunConcurrentlyInOrder() throws Exception {
+    LocalTaskFactory.INSTANCE.registerTask(new BarrierStatusTaskDef());
+    TaskApi api = new TaskApi(new LocalTaskRuntime(null, new TaskDispatcher(2)));
+    JsonObject context = new JsonObject();
+    JsonObject doneContext = new JsonObject();
+    doneContext.addProperty("done", true);
+    context.add("first", doneContext);
+    LifecycleProcess process = new LifecycleProcess("batch_process");
+    process.setProcessContext(context);
+
+    // both checks only return if they are made concurrently
+    List<StatusUpdate> updates = api.checkStatus(Arrays.asList(
+        TaskInvocation.create("barrierstatus", "first", process, null),
+        TaskInvocation.create("barrierstatus", "second", process, null)));
+    assertEquals(2, updates.size());
+    assertEquals(Status.SUCCEEDED, updates.get(0).getStatus());
+    assertEquals(Status.RUNNING, updates.get(1).getStatus());
+  }
+
+  public static class BarrierStatusTaskDef extends TaskDefinition {
+
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+
+    public BarrierStatusTaskDef() {
+      super("barrierstatus");
+    }
+
+    @Override
+    public StatusUpdate startExecution(TaskRuntime runtime,
+                                       String taskId,
+                                       LifecycleProcess process,
+                                       JsonObject processContext,
+                                       JsonObject taskContext) throws Exception {
+      return StatusUpdate.create(Status.RUNNING);
+    }
+
+    @Override
+    public StatusUpdate checkStatus(TaskRuntime runtime,
+                                    String taskId,
+                                    LifecycleProcess process,
+                                    JsonObject processContext,
+                                    JsonObject taskContext) throws Exception {
+      barrier.await(5, TimeUnit.SECONDS);
+      return StatusUpdate.create(taskContext != null && taskContext.has("done")
+          ? Status.SUCCEEDED
+          : Status.RUNNING);
+    }
+
+    @Override
+    public void validate(String taskInstanceId,
+                         LifecycleProcess process,
+                         JsonObject processContext,
+                         JsonObject taskContext) throws Exception {
+    }
+
+  }
+
+}
@@ -18,12 +18,13 @@ class Status(object):
 class StatusUpdate(object):
     
     def __init__(self, status, stdOut: Optional[str] = None, stdErr: Optional[str] = None,
-                 processContext: Optional[List] = None):
+                 processContext: Optional[List] = None, retryAfterMs: int = 0):
         self.__dict__ = {}
         self.status = status
         self.stdOut = stdOut
         self.stdErr = stdErr
         self.processContextUpdate = processContext or []
+        self.retryAfterMs = retryAfterMs
 
 
 class Task(object):